@@ -0,0 +1,339 @@
+/*
+ * noc-monitor-portmon - Port monitoring implementations.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of noc-monitor-portmon.
+ *
+ * noc-monitor-portmon is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * noc-monitor-portmon is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with noc-monitor-portmon.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.noc.monitor.portmon;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads and writes the lines of ASCII text protocols directly on the socket bytes.
+ * Lines are read into a reusable buffer and may be matched against reply prefixes,
+ * such as <code>"250 "</code> or <code>"+OK"</code>, without creating any
+ * {@link String}.  Strings are only created for the text actually returned.
+ *
+ * <p>Written text is buffered until {@link #flush()}, so several commands may be sent
+ * in a single write.</p>
+ *
+ * <p>Lines end with LF, with any CR immediately before the LF removed.  Characters
+ * outside of ASCII are written as <code>'?'</code>, matching
+ * {@link StandardCharsets#US_ASCII}.</p>
+ *
+ * <p>Instances are not thread-safe and are used for a single connection.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class AsciiLineIO implements Closeable {
+
+  /**
+   * The default maximum number of bytes in a line, not including the line ending.
+   */
+  public static final int DEFAULT_MAX_LINE_LENGTH = 16 * 1024;
+
+  private static final int BUFFER_SIZE = 4096;
+
+  private InputStream in;
+  private OutputStream out;
+  private final int maxLineLength;
+
+  private final byte[] inBuf = new byte[BUFFER_SIZE];
+  private int inPos;
+  private int inLimit;
+
+  private byte[] line = new byte[256];
+  private int lineLength;
+
+  private byte[] outBuf = new byte[BUFFER_SIZE];
+  private int outLength;
+
+  /**
+   * Creates a new line reader and writer.
+   *
+   * @param  maxLineLength  the maximum number of bytes in a line, not including the line ending
+   */
+  public AsciiLineIO(InputStream in, OutputStream out, int maxLineLength) {
+    if (maxLineLength < 1) {
+      throw new IllegalArgumentException("maxLineLength < 1: " + maxLineLength);
+    }
+    this.in = in;
+    this.out = out;
+    this.maxLineLength = maxLineLength;
+  }
+
+  /**
+   * Creates a new line reader and writer with the default maximum line length.
+   */
+  public AsciiLineIO(InputStream in, OutputStream out) {
+    this(in, out, DEFAULT_MAX_LINE_LENGTH);
+  }
+
+  /**
+   * Reads the next line, replacing the current line.
+   *
+   * @return  {@code false} when end of file is reached before any byte of the line
+   *
+   * @throws  IOException  when the line exceeds the maximum line length
+   */
+  public boolean readLine() throws IOException {
+    lineLength = 0;
+    boolean any = false;
+    while (true) {
+      if (inPos == inLimit) {
+        int count = in.read(inBuf, 0, inBuf.length);
+        if (count == -1) {
+          return any;
+        }
+        inPos = 0;
+        inLimit = count;
+      }
+      any = true;
+      // Scan the buffered bytes for the end of line
+      int start = inPos;
+      int end = start;
+      while (end < inLimit && inBuf[end] != '\n') {
+        end++;
+      }
+      append(inBuf, start, end - start);
+      if (end < inLimit) {
+        inPos = end + 1;
+        if (lineLength > 0 && line[lineLength - 1] == '\r') {
+          lineLength--;
+        }
+        if (lineLength > maxLineLength) {
+          throw new IOException("Line too long: more than " + maxLineLength + " bytes");
+        }
+        return true;
+      }
+      inPos = inLimit;
+    }
+  }
+
+  private void append(byte[] b, int off, int len) throws IOException {
+    int newLength = lineLength + len;
+    if (newLength > line.length) {
+      // Allow one extra byte for a trailing CR
+      if (newLength > maxLineLength + 1) {
+        throw new IOException("Line too long: more than " + maxLineLength + " bytes");
+      }
+      line = Arrays.copyOf(line, Math.min(Math.max(line.length * 2, newLength), maxLineLength + 1));
+    }
+    System.arraycopy(b, off, line, lineLength, len);
+    lineLength = newLength;
+  }
+
+  /**
+   * Reads bytes following the lines read, such as a message body.  Any bytes already buffered
+   * are returned first, without blocking.
+   *
+   * @return  the number of bytes read or {@code -1} when end of file is reached
+   */
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    if (inPos < inLimit) {
+      int count = Math.min(len, inLimit - inPos);
+      System.arraycopy(inBuf, inPos, b, off, count);
+      inPos += count;
+      return count;
+    }
+    return in.read(b, off, len);
+  }
+
+  /**
+   * Reads the next line and requires it to start with the given prefix.
+   *
+   * @param  what  describes the response in exception messages, such as <code>"QUIT response"</code>
+   *
+   * @throws  EOFException  when end of file is reached
+   * @throws  IOException   when the line does not start with the prefix
+   */
+  public void expect(String prefix, String what) throws IOException {
+    if (!readLine()) {
+      throw new EOFException("End of file reading " + what);
+    }
+    if (!startsWith(prefix)) {
+      throw new IOException("Unexpected line reading " + what + ": " + getLine());
+    }
+  }
+
+  /**
+   * Gets the number of bytes in the current line.
+   */
+  public int length() {
+    return lineLength;
+  }
+
+  /**
+   * Does the current line start with the given ASCII prefix?
+   */
+  public boolean startsWith(String prefix) {
+    int len = prefix.length();
+    if (len > lineLength) {
+      return false;
+    }
+    for (int i = 0; i < len; i++) {
+      if (line[i] != prefix.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Is the current line equal to the given ASCII text?
+   */
+  public boolean lineEquals(String text) {
+    return text.length() == lineLength && startsWith(text);
+  }
+
+  /**
+   * Finds the first occurrence of the given ASCII character in the current line.
+   *
+   * @return  the index or {@code -1} when not found
+   */
+  public int indexOf(char ch) {
+    for (int i = 0; i < lineLength; i++) {
+      if (line[i] == ch) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Gets the current line.
+   */
+  public String getLine() {
+    return substring(0, lineLength);
+  }
+
+  /**
+   * Gets the current line starting at the given index.
+   */
+  public String substring(int beginIndex) {
+    return substring(beginIndex, lineLength);
+  }
+
+  /**
+   * Gets part of the current line.
+   */
+  public String substring(int beginIndex, int endIndex) {
+    if (beginIndex < 0 || endIndex > lineLength || beginIndex > endIndex) {
+      throw new IndexOutOfBoundsException("beginIndex: " + beginIndex + ", endIndex: " + endIndex + ", length: " + lineLength);
+    }
+    return new String(line, beginIndex, endIndex - beginIndex, StandardCharsets.US_ASCII);
+  }
+
+  /**
+   * Buffers text to be written.
+   */
+  public void write(CharSequence text) {
+    int len = text.length();
+    ensureOut(len);
+    for (int i = 0; i < len; i++) {
+      char ch = text.charAt(i);
+      outBuf[outLength++] = ch <= 0x7F ? (byte) ch : (byte) '?';
+    }
+  }
+
+  /**
+   * Buffers a character to be written.
+   */
+  public void write(char ch) {
+    ensureOut(1);
+    outBuf[outLength++] = ch <= 0x7F ? (byte) ch : (byte) '?';
+  }
+
+  /**
+   * Buffers bytes to be written.
+   */
+  public void write(byte[] b) {
+    ensureOut(b.length);
+    System.arraycopy(b, 0, outBuf, outLength, b.length);
+    outLength += b.length;
+  }
+
+  /**
+   * Buffers text to be written, followed by CRLF.
+   */
+  public void writeLine(CharSequence text) {
+    write(text);
+    ensureOut(2);
+    outBuf[outLength++] = '\r';
+    outBuf[outLength++] = '\n';
+  }
+
+  private void ensureOut(int len) {
+    int newLength = outLength + len;
+    if (newLength > outBuf.length) {
+      outBuf = Arrays.copyOf(outBuf, Math.max(outBuf.length * 2, newLength));
+    }
+  }
+
+  /**
+   * Writes all buffered output in a single write.
+   */
+  public void flush() throws IOException {
+    if (outLength > 0) {
+      out.write(outBuf, 0, outLength);
+      outLength = 0;
+    }
+    out.flush();
+  }
+
+  /**
+   * Switches to the streams of a socket layered over the current connection,
+   * such as after STARTTLS.  Any buffered output is flushed first.
+   *
+   * @throws  IOException  when data was received beyond the last line read, which
+   *                       must not be trusted as having come over the new layer
+   */
+  public void upgrade(Socket socket) throws IOException {
+    if (inPos < inLimit) {
+      throw new IOException("Unexpected data received before upgrade: " + (inLimit - inPos) + " bytes");
+    }
+    flush();
+    in = socket.getInputStream();
+    out = socket.getOutputStream();
+  }
+
+  /**
+   * Closes the current streams.  Any buffered output is discarded.
+   */
+  @Override
+  public void close() throws IOException {
+    outLength = 0;
+    try {
+      in.close();
+    } finally {
+      out.close();
+    }
+  }
+}
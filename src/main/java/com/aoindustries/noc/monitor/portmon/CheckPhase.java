@@ -0,0 +1,62 @@
+/*
+ * noc-monitor-portmon - Port monitoring implementations.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of noc-monitor-portmon.
+ *
+ * noc-monitor-portmon is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * noc-monitor-portmon is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with noc-monitor-portmon.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.noc.monitor.portmon;
+
+/**
+ * The phases of a check, used to budget timeouts and report where time was spent.
+ *
+ * @author  AO Industries, Inc.
+ */
+public enum CheckPhase {
+
+  /**
+   * Establishing the TCP connection.
+   */
+  CONNECT,
+
+  /**
+   * Performing the TLS handshake, either immediately after connecting or after STARTTLS.
+   */
+  TLS_HANDSHAKE,
+
+  /**
+   * Waiting for the server greeting or banner.
+   */
+  GREETING,
+
+  /**
+   * Authenticating, including any database login.
+   */
+  AUTH,
+
+  /**
+   * Any other protocol command, such as sending a message or running a query.
+   */
+  COMMAND,
+
+  /**
+   * Ending the session, including any QUIT or LOGOUT command, and closing the connection.
+   */
+  CLOSE
+}
@@ -0,0 +1,219 @@
+/*
+ * noc-monitor-portmon - Port monitoring implementations.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of noc-monitor-portmon.
+ *
+ * noc-monitor-portmon is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * noc-monitor-portmon is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with noc-monitor-portmon.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.noc.monitor.portmon;
+
+import com.aoapps.net.InetAddress;
+import com.aoapps.net.Port;
+import com.aoapps.net.URIParameters;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Shares one check among all concurrent requests for the same target, with an optional
+ * cache of the last result.
+ *
+ * <p>Targets are identified by their IP address, port, application protocol, and monitoring
+ * parameters.  While a check of a target is in progress, further requests for the same target
+ * receive the result of that check instead of starting another.  When a time-to-live is given,
+ * the result, success or failure, is also returned to requests until it expires.</p>
+ *
+ * <p>Requests receive their own copy of the shared future, so canceling one request does not
+ * cancel the check for the others.  Checks are ended by the deadline of the executor.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+public class CoalescingPortChecker {
+
+  private static final class Key {
+
+    private final InetAddress ipAddress;
+    private final Port port;
+    private final String appProtocol;
+    /**
+     * Not part of equality, which uses the parameter map.
+     */
+    private final URIParameters monitoringParameters;
+    private final Map<String, List<String>> parameters;
+    private final int hash;
+
+    private Key(InetAddress ipAddress, Port port, String appProtocol, URIParameters monitoringParameters) {
+      this.ipAddress = ipAddress;
+      this.port = port;
+      this.appProtocol = appProtocol;
+      this.monitoringParameters = monitoringParameters;
+      this.parameters = monitoringParameters.getParameterMap();
+      this.hash = Objects.hash(ipAddress, port, appProtocol, parameters);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return
+          hash == other.hash
+              && ipAddress.equals(other.ipAddress)
+              && port.equals(other.port)
+              && Objects.equals(appProtocol, other.appProtocol)
+              && parameters.equals(other.parameters);
+    }
+  }
+
+  /**
+   * A check of a target, in progress or cached.
+   */
+  private static final class Entry {
+
+    /**
+     * Completed only after {@link #completedNanos} is set.
+     */
+    private final CompletableFuture<String> future = new CompletableFuture<>();
+    private volatile long completedNanos;
+
+    private boolean isCurrent(long now, long ttlNanos) {
+      return !future.isDone() || now - completedNanos < ttlNanos;
+    }
+  }
+
+  private final PortMonitorExecutor executor;
+  private final long ttlNanos;
+  private final ConcurrentMap<Key, Entry> entries = new ConcurrentHashMap<>();
+
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder checks = new LongAdder();
+
+  /**
+   * Creates a new coalescing checker.
+   *
+   * @param  executor  runs the checks, with its default deadline
+   * @param  ttl       how long results are cached after the check completes,
+   *                   or {@link Duration#ZERO} to only share checks in progress
+   */
+  public CoalescingPortChecker(PortMonitorExecutor executor, Duration ttl) {
+    if (ttl.isNegative()) {
+      throw new IllegalArgumentException("ttl may not be negative: " + ttl);
+    }
+    this.executor = executor;
+    this.ttlNanos = ttl.toNanos();
+  }
+
+  /**
+   * Creates a new coalescing checker that only shares checks in progress.
+   */
+  public CoalescingPortChecker(PortMonitorExecutor executor) {
+    this(executor, Duration.ZERO);
+  }
+
+  /**
+   * Checks a target, sharing any check of the same target in progress or cached.
+   *
+   * @see  PortMonitor#getPortMonitor(com.aoapps.net.InetAddress, com.aoapps.net.Port, java.lang.String, com.aoapps.net.URIParameters)
+   */
+  public CompletableFuture<String> checkPortAsync(InetAddress ipAddress, Port port, String appProtocol, URIParameters monitoringParameters) {
+    requests.increment();
+    Key key = new Key(ipAddress, port, appProtocol, monitoringParameters);
+    long now = System.nanoTime();
+    Entry entry = entries.get(key);
+    if (entry == null || !entry.isCurrent(now, ttlNanos)) {
+      Entry newEntry = new Entry();
+      entry = entries.compute(key, (k, old) -> old != null && old.isCurrent(now, ttlNanos) ? old : newEntry);
+      if (entry == newEntry) {
+        start(key, newEntry);
+      }
+    }
+    return entry.future.copy();
+  }
+
+  private void start(Key key, Entry entry) {
+    checks.increment();
+    CompletableFuture<String> future;
+    try {
+      future = executor.submit(PortMonitor.getPortMonitor(key.ipAddress, key.port, key.appProtocol, key.monitoringParameters));
+    } catch (RuntimeException e) {
+      future = CompletableFuture.failedFuture(e);
+    }
+    future.whenComplete((result, t) -> {
+      entry.completedNanos = System.nanoTime();
+      if (ttlNanos == 0) {
+        entries.remove(key, entry);
+      } else {
+        Deadlines.schedule(() -> entries.remove(key, entry), ttlNanos, TimeUnit.NANOSECONDS);
+      }
+      if (t == null) {
+        entry.future.complete(result);
+      } else {
+        entry.future.completeExceptionally(t);
+      }
+    });
+  }
+
+  /**
+   * Checks a target, waiting for the result.
+   *
+   * @see  #checkPortAsync(com.aoapps.net.InetAddress, com.aoapps.net.Port, java.lang.String, com.aoapps.net.URIParameters)
+   */
+  public String checkPort(InetAddress ipAddress, Port port, String appProtocol, URIParameters monitoringParameters) throws Exception {
+    try {
+      return checkPortAsync(ipAddress, port, appProtocol, monitoringParameters).get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof Exception) {
+        throw (Exception) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Gets the number of checks requested.
+   */
+  public long getRequests() {
+    return requests.sum();
+  }
+
+  /**
+   * Gets the number of checks actually run.  The difference from {@link #getRequests()}
+   * is the number of requests answered by a shared or cached check.
+   */
+  public long getChecks() {
+    return checks.sum();
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * noc-monitor-portmon - Port monitoring implementations.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of noc-monitor-portmon.
+ *
+ * noc-monitor-portmon is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * noc-monitor-portmon is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with noc-monitor-portmon.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.noc.monitor.portmon;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+
+/**
+ * A socket that counts the bytes sent and received.  TLS layered over this socket reads and writes
+ * through its streams, so the counts include the TLS records.
+ *
+ * @author  AO Industries, Inc.
+ */
+final class CountingSocket extends Socket {
+
+  private volatile long bytesSent;
+  private volatile long bytesReceived;
+
+  private InputStream countingIn;
+  private OutputStream countingOut;
+
+  @Override
+  public synchronized InputStream getInputStream() throws IOException {
+    if (countingIn == null) {
+      countingIn = new FilterInputStream(super.getInputStream()) {
+        @Override
+        public int read() throws IOException {
+          int b = super.read();
+          if (b != -1) {
+            bytesReceived++;
+          }
+          return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+          int count = super.read(b, off, len);
+          if (count > 0) {
+            bytesReceived += count;
+          }
+          return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+          long count = super.skip(n);
+          if (count > 0) {
+            bytesReceived += count;
+          }
+          return count;
+        }
+      };
+    }
+    return countingIn;
+  }
+
+  @Override
+  public synchronized OutputStream getOutputStream() throws IOException {
+    if (countingOut == null) {
+      countingOut = new FilterOutputStream(super.getOutputStream()) {
+        @Override
+        public void write(int b) throws IOException {
+          out.write(b);
+          bytesSent++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+          // Not byte-by-byte as in FilterOutputStream
+          out.write(b, off, len);
+          bytesSent += len;
+        }
+      };
+    }
+    return countingOut;
+  }
+
+  /**
+   * Gets the bytes sent.
+   */
+  long getBytesSent() {
+    return bytesSent;
+  }
+
+  /**
+   * Gets the bytes received.
+   */
+  long getBytesReceived() {
+    return bytesReceived;
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * noc-monitor-portmon - Port monitoring implementations.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of noc-monitor-portmon.
+ *
+ * noc-monitor-portmon is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * noc-monitor-portmon is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with noc-monitor-portmon.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.noc.monitor.portmon;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The shared timer that fires the deadlines of checks.  Deadline tasks must not block, so they
+ * hand {@link PortMonitor#cancel()} to {@link #cancel(PortMonitor)}.
+ *
+ * <p>Deadlines are kept on a {@link HashedTimingWheel}, since nearly all are canceled once
+ * their check completes and tens of thousands may be outstanding at once.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+final class Deadlines {
+
+  /** Make no instances. */
+  private Deadlines() {
+    throw new AssertionError();
+  }
+
+  /**
+   * The accuracy of deadlines.
+   */
+  private static final long TICK_MILLIS = 10;
+
+  /**
+   * The number of ticks in one rotation of the wheel, covering just over ten seconds.
+   */
+  private static final int WHEEL_SIZE = 1024;
+
+  private static final HashedTimingWheel wheel = new HashedTimingWheel(
+      Deadlines.class.getName(),
+      TICK_MILLIS,
+      TimeUnit.MILLISECONDS,
+      WHEEL_SIZE
+  );
+
+  /**
+   * Schedules a deadline.
+   *
+   * @return  the timeout used to cancel the deadline
+   */
+  static HashedTimingWheel.Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+    return wheel.schedule(task, delay, unit);
+  }
+
+  private static final AtomicInteger cancelThreadCounter = new AtomicInteger();
+
+  /**
+   * Runs {@link PortMonitor#cancel()} for deadlines, since closing a connection may block, such as
+   * {@link java.sql.Connection#close()} or a socket with <code>SO_LINGER</code>.  Separate from the
+   * executor of the checks, which may have all of its threads held by the very checks being canceled.
+   */
+  private static final Executor cancelExecutor = Executors.newCachedThreadPool(r -> {
+    Thread thread = new Thread(r, Deadlines.class.getName() + ".cancel-" + cancelThreadCounter.incrementAndGet());
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  /**
+   * Cancels a monitor off the thread of the wheel, so a blocking {@link PortMonitor#cancel()} does
+   * not delay other deadlines.
+   */
+  static void cancel(PortMonitor monitor) {
+    cancelExecutor.execute(monitor::cancel);
+  }
+}
@@ -1,6 +1,6 @@
 /*
  * noc-monitor-portmon - Port monitoring implementations.
- * Copyright (C) 2018, 2019, 2020, 2021, 2022  AO Industries, Inc.
+ * Copyright (C) 2018, 2019, 2020, 2021, 2022, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -31,7 +31,8 @@ import java.io.OutputStream;
 import java.net.Socket;
 
 /**
- * Monitors any SSL port by simply connecting and disconnecting.
+ * Monitors any SSL port by connecting, completing the TLS handshake, and disconnecting.
+ * The result includes the negotiated protocol, cipher suite, and handshake time.
  *
  * @author  AO Industries, Inc.
  */
@@ -45,18 +46,29 @@ public class DefaultSslPortMonitor extends DefaultTcpPortMonitor {
         ipAddress,
         port,
         // Use SSL unless explicitely disabled with ssl=false
-        !"false".equalsIgnoreCase(monitoringParameters.getParameter("ssl"))
+        !"false".equalsIgnoreCase(monitoringParameters.getParameter("ssl")),
+        monitoringParameters
     );
   }
 
   protected static final String CONNECTED_SUCCESSFULLY_SSL_DISABLED = CONNECTED_SUCCESSFULLY + " (SSL disabled)";
 
   @Override
-  public String checkPort(Socket socket, InputStream socketIn, OutputStream socketOut) throws Exception {
+  protected boolean isConnectOnly() {
+    return !ssl && getClass() == DefaultSslPortMonitor.class;
+  }
+
+  @Override
+  protected String getConnectedResult() {
     if (ssl) {
-      return CONNECTED_SUCCESSFULLY_SSL;
+      return super.getConnectedResult();
     } else {
       return CONNECTED_SUCCESSFULLY_SSL_DISABLED;
     }
   }
+
+  @Override
+  public String checkPort(Socket socket, InputStream socketIn, OutputStream socketOut) throws Exception {
+    return getConnectedResult();
+  }
 }
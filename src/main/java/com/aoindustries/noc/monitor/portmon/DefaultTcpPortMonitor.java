@@ -1,6 +1,6 @@
 /*
  * noc-monitor-portmon - Port monitoring implementations.
- * Copyright (C) 2001-2013, 2016, 2017, 2018, 2020, 2021, 2022, 2024  AO Industries, Inc.
+ * Copyright (C) 2001-2013, 2016, 2017, 2018, 2020, 2021, 2022, 2024, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -33,9 +33,11 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.SSLSocket;
 
 /**
  * Monitors any TCP port by simply connecting and disconnecting.  Additional
@@ -48,21 +50,86 @@ public class DefaultTcpPortMonitor extends PortMonitor {
 
   private static final Logger logger = Logger.getLogger(DefaultTcpPortMonitor.class.getName());
 
-  protected static final int TIMEOUT = 60_000;
+  /**
+   * The previous single timeout for all operations.
+   *
+   * @deprecated  Please use the per-phase {@link #timeouts}.
+   */
+  @Deprecated
+  protected static final int TIMEOUT = Timeouts.DEFAULT_TOTAL;
 
   protected final boolean ssl;
 
+  /**
+   * When {@code true}, the check ends after the TLS handshake without any protocol-specific monitoring.
+   *
+   * <p>TLS 1.3 servers send their session tickets after the handshake, which are only received
+   * once data is read.  Handshake-only checks of TLS 1.3 endpoints will not resume sessions.</p>
+   */
+  protected final boolean handshakeOnly;
+
+  protected final Timeouts timeouts;
+
+  private final InetSocketAddress socketAddress;
+
+  private volatile TlsHandshake handshake;
+
+  private volatile TimeoutBudget budget;
+
   private volatile Socket socket;
 
+  /**
+   * The underlying socket of the check in progress, counting the bytes on the connection.
+   */
+  private volatile CountingSocket countingSocket;
+
+  /**
+   * The future of the check when run by {@link NioConnectEngine}.
+   */
+  volatile Future<?> engineFuture;
+
   /**
    * Creates a new default TCP monitor.
+   *
+   * @param  handshakeOnly  ignored unless <code>ssl</code>
    */
-  public DefaultTcpPortMonitor(InetAddress ipAddress, Port port, boolean ssl) {
+  public DefaultTcpPortMonitor(InetAddress ipAddress, Port port, boolean ssl, boolean handshakeOnly, Timeouts timeouts) {
     super(ipAddress, port);
     if (port.getProtocol() != Protocol.TCP) {
       throw new IllegalArgumentException("port not TCP: " + port);
     }
     this.ssl = ssl;
+    this.handshakeOnly = ssl && handshakeOnly;
+    this.timeouts = timeouts;
+    this.socketAddress = new InetSocketAddress(toInetAddress(ipAddress), port.getPort());
+  }
+
+  /**
+   * Creates a new default TCP monitor.
+   */
+  public DefaultTcpPortMonitor(InetAddress ipAddress, Port port, boolean ssl, Timeouts timeouts) {
+    this(ipAddress, port, ssl, false, timeouts);
+  }
+
+  /**
+   * Creates a new default TCP monitor with the default timeouts.
+   */
+  public DefaultTcpPortMonitor(InetAddress ipAddress, Port port, boolean ssl) {
+    this(ipAddress, port, ssl, Timeouts.DEFAULT);
+  }
+
+  /**
+   * Creates a new TCP monitor, with the timeouts and handshake-only mode from the monitoring parameters.
+   * Handshake-only is enabled with <code>handshakeOnly=true</code>.
+   */
+  protected DefaultTcpPortMonitor(InetAddress ipAddress, Port port, boolean ssl, URIParameters monitoringParameters) {
+    this(
+        ipAddress,
+        port,
+        ssl,
+        Boolean.parseBoolean(monitoringParameters.getParameter("handshakeOnly")),
+        Timeouts.valueOf(monitoringParameters)
+    );
   }
 
   /**
@@ -73,13 +140,18 @@ public class DefaultTcpPortMonitor extends PortMonitor {
         ipAddress,
         port,
         // Do not use SSL unless explicitely enabled with ssl=true
-        Boolean.parseBoolean(monitoringParameters.getParameter("ssl"))
+        Boolean.parseBoolean(monitoringParameters.getParameter("ssl")),
+        monitoringParameters
     );
   }
 
   @Override
   public void cancel() {
     super.cancel();
+    Future<?> myEngineFuture = engineFuture;
+    if (myEngineFuture != null) {
+      myEngineFuture.cancel(false);
+    }
     Socket mySocket = socket;
     if (mySocket != null) {
       try {
@@ -91,22 +163,78 @@ public class DefaultTcpPortMonitor extends PortMonitor {
   }
 
   /**
-   * Gets the socket to use for this port connection.
+   * Gets the address this monitor connects to.
+   */
+  InetSocketAddress getSocketAddress() {
+    return socketAddress;
+  }
+
+  /**
+   * Gets the timeout budget of the check in progress, starting a new budget when called
+   * outside of {@link #checkPort()}.
+   */
+  protected TimeoutBudget getBudget() {
+    TimeoutBudget myBudget = budget;
+    if (myBudget == null) {
+      myBudget = new TimeoutBudget(timeouts);
+      budget = myBudget;
+    }
+    return myBudget;
+  }
+
+  /**
+   * Begins a new phase of the check, setting the socket timeout to the time available
+   * for the phase.  When the phase times out, the resulting {@link SocketTimeoutException}
+   * is reported as a {@link PhaseTimeoutException} for this phase.
+   *
+   * @throws  PhaseTimeoutException  when the total timeout has already been exceeded
+   */
+  protected void beginPhase(Socket socket, CheckPhase phase) throws IOException {
+    socket.setSoTimeout(getBudget().begin(phase));
+  }
+
+  /**
+   * Gets the TLS handshake of the most recent check, or {@code null} when no handshake
+   * has completed.
+   */
+  public TlsHandshake getTlsHandshake() {
+    return handshake;
+  }
+
+  /**
+   * Layers TLS over a connected socket and performs the handshake, such as after a
+   * STARTTLS command.  The handshake is recorded as {@link #getTlsHandshake()}.
+   *
+   * @param  autoClose  close the underlying socket when the returned socket is closed
+   */
+  protected SSLSocket startTls(Socket socket, boolean autoClose) throws IOException {
+    SSLSocket sslSocket = SslSessions.createSocket(socket, ipAddress, port.getPort(), autoClose);
+    beginPhase(sslSocket, CheckPhase.TLS_HANDSHAKE);
+    handshake = TlsHandshake.perform(sslSocket);
+    return sslSocket;
+  }
+
+  /**
+   * Gets the socket to use for this port connection.  When <code>ssl</code>, the
+   * TLS handshake is completed before returning.
    */
   protected Socket connect() throws Exception {
     boolean successful = false;
-    Socket s = new Socket();
+    CountingSocket counting = new CountingSocket();
+    countingSocket = counting;
+    Socket s = counting;
+    // Allow cancel() to abort the connect and handshake
+    socket = s;
     try {
       s.setKeepAlive(true);
       s.setSoLinger(true, AOPool.DEFAULT_SOCKET_SO_LINGER);
       // s.setTcpNoDelay(true);
-      s.setSoTimeout(TIMEOUT);
-      s.connect(new InetSocketAddress(ipAddress.toString(), port.getPort()), TIMEOUT);
-      successful = true;
+      s.connect(getSocketAddress(), getBudget().begin(CheckPhase.CONNECT));
       if (ssl) {
-        SSLSocketFactory sslFact = (SSLSocketFactory) SSLSocketFactory.getDefault();
-        s = sslFact.createSocket(s, ipAddress.toString(), port.getPort(), true);
+        s = startTls(s, true);
+        socket = s;
       }
+      successful = true;
       return s;
     } finally {
       if (!successful) {
@@ -120,23 +248,96 @@ public class DefaultTcpPortMonitor extends PortMonitor {
 
   @Override
   public final String checkPort() throws Exception {
-    socket = connect();
+    return checkPortResult().getMessage();
+  }
+
+  /**
+   * Checks the port, timing each phase begun by {@link #beginPhase(java.net.Socket, com.aoindustries.noc.monitor.portmon.CheckPhase)}.
+   * The connection is closed in {@link CheckPhase#CLOSE}, which subclasses may begin earlier
+   * for any QUIT or LOGOUT.
+   */
+  @Override
+  public final PortCheckResult checkPortResult() throws Exception {
+    long startNanos = checkStarted();
     try {
-      return checkPort(socket, socket.getInputStream(), socket.getOutputStream());
-    } finally {
-      socket.close();
+      PortCheckResult result = check();
+      checkCompleted(startNanos, null);
+      return result;
+    } catch (Throwable t) {
+      checkCompleted(startNanos, t);
+      throw t;
+    }
+  }
+
+  private PortCheckResult check() throws Exception {
+    TimeoutBudget myBudget = new TimeoutBudget(timeouts);
+    budget = myBudget;
+    handshake = null;
+    countingSocket = null;
+    try {
+      socket = connect();
+      String message;
+      try {
+        if (handshakeOnly) {
+          message = getConnectedResult();
+        } else {
+          beginPhase(socket, CheckPhase.GREETING);
+          message = checkPort(socket, socket.getInputStream(), socket.getOutputStream());
+        }
+        if (myBudget.getPhase() != CheckPhase.CLOSE) {
+          myBudget.enter(CheckPhase.CLOSE);
+        }
+      } finally {
+        socket.close();
+      }
+      CountingSocket counting = countingSocket;
+      return new PortCheckResult(
+          message,
+          myBudget,
+          counting == null ? -1 : counting.getBytesSent(),
+          counting == null ? -1 : counting.getBytesReceived(),
+          handshake
+      );
+    } catch (PhaseTimeoutException e) {
+      throw e;
+    } catch (SocketTimeoutException e) {
+      throw myBudget.timedOut(e);
     }
   }
 
   /**
-   * Performs any protocol-specific monitoring.  This default implementation does
-   * nothing.
+   * Is this monitor satisfied by a connection alone, without any protocol-specific I/O?
+   * Connect-only monitors may also be run by {@link NioConnectEngine}.
+   *
+   * <p>Subclasses inherit <code>false</code>, since they are expected to override
+   * {@link #checkPort(Socket, InputStream, OutputStream)}.  SSL monitors are never
+   * connect-only, since they perform the TLS handshake.</p>
    */
-  protected String checkPort(Socket socket, InputStream in, OutputStream out) throws Exception {
+  protected boolean isConnectOnly() {
+    return !ssl && getClass() == DefaultTcpPortMonitor.class;
+  }
+
+  /**
+   * Gets the message returned when connected without any protocol-specific monitoring,
+   * including the details of the TLS handshake when <code>ssl</code>.
+   */
+  protected String getConnectedResult() {
     if (ssl) {
-      return CONNECTED_SUCCESSFULLY_SSL;
+      TlsHandshake myHandshake = handshake;
+      if (myHandshake == null) {
+        return CONNECTED_SUCCESSFULLY_SSL;
+      }
+      return CONNECTED_SUCCESSFULLY_SSL + " (" + myHandshake + ')';
     } else {
       return CONNECTED_SUCCESSFULLY;
     }
   }
+
+  /**
+   * Performs any protocol-specific monitoring.  This default implementation does
+   * nothing.
+   */
+  protected String checkPort(Socket socket, InputStream in, OutputStream out) throws Exception {
+    return getConnectedResult();
+  }
 }
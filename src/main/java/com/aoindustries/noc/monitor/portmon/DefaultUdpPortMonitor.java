@@ -1,6 +1,6 @@
 /*
  * noc-monitor-portmon - Port monitoring implementations.
- * Copyright (C) 2001-2009, 2016, 2017, 2020, 2021, 2022  AO Industries, Inc.
+ * Copyright (C) 2001-2009, 2016, 2017, 2020, 2021, 2022, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -25,46 +25,108 @@ package com.aoindustries.noc.monitor.portmon;
 
 import com.aoapps.net.Port;
 import com.aoapps.net.Protocol;
-import java.net.DatagramSocket;
-import java.net.InetAddress;
+import com.aoapps.net.URIParameters;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
- * Monitors any UDP port.
+ * Monitors any UDP port by sending a {@link UdpProbe} with the shared {@link UdpProbeEngine}.
  *
  * @author  AO Industries, Inc.
  */
 public class DefaultUdpPortMonitor extends PortMonitor {
 
-  private volatile DatagramSocket datagramSocket;
+  private final InetSocketAddress socketAddress;
+  private final UdpProbe probe;
+  private final Timeouts timeouts;
+
+  private volatile Future<?> engineFuture;
 
   /**
    * Creates a new default UDP monitor.
    */
-  public DefaultUdpPortMonitor(com.aoapps.net.InetAddress ipAddress, Port port) {
+  public DefaultUdpPortMonitor(com.aoapps.net.InetAddress ipAddress, Port port, UdpProbe probe, Timeouts timeouts) {
     super(ipAddress, port);
     if (port.getProtocol() != Protocol.UDP) {
       throw new IllegalArgumentException("port not UDP: " + port);
     }
+    this.socketAddress = new InetSocketAddress(toInetAddress(ipAddress), port.getPort());
+    this.probe = probe;
+    this.timeouts = timeouts;
+  }
+
+  /**
+   * Creates a new UDP monitor, with the probe and timeouts from the monitoring parameters.
+   *
+   * @see  UdpProbe#valueOf(com.aoapps.net.Port, com.aoapps.net.URIParameters)
+   */
+  public DefaultUdpPortMonitor(com.aoapps.net.InetAddress ipAddress, Port port, URIParameters monitoringParameters) {
+    this(ipAddress, port, UdpProbe.valueOf(port, monitoringParameters), Timeouts.valueOf(monitoringParameters));
+  }
+
+  /**
+   * Creates a new default UDP monitor, with the {@linkplain UdpProbe#silent() silent probe} and the default timeouts.
+   */
+  public DefaultUdpPortMonitor(com.aoapps.net.InetAddress ipAddress, Port port) {
+    this(ipAddress, port, UdpProbe.silent(), Timeouts.DEFAULT);
   }
 
   @Override
   public void cancel() {
     super.cancel();
-    DatagramSocket myDatagramSocket = datagramSocket;
-    if (myDatagramSocket != null) {
-      myDatagramSocket.close();
+    Future<?> myEngineFuture = engineFuture;
+    if (myEngineFuture != null) {
+      myEngineFuture.cancel(false);
     }
   }
 
+  private CompletableFuture<String> probe() {
+    long startNanos = checkStarted();
+    CompletableFuture<String> future = UdpProbeEngine.getInstance().probe(socketAddress, probe, timeouts);
+    future.whenComplete((result, t) -> checkCompleted(startNanos, t));
+    engineFuture = future;
+    if (canceled) {
+      future.cancel(false);
+    }
+    return future;
+  }
+
   @Override
   public String checkPort() throws Exception {
-    datagramSocket = new DatagramSocket();
     try {
-      datagramSocket.connect(InetAddress.getByName(ipAddress.toString()), port.getPort());
-    } finally {
-      // datagramSocket.disconnect();
-      datagramSocket.close();
+      return probe().get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof Exception) {
+        throw (Exception) cause;
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Checks the port on the selector thread of the {@link UdpProbeEngine}, without using the executor.
+   */
+  @Override
+  public CompletableFuture<String> checkPortAsync(Executor executor, Duration timeout) {
+    if (timeout.isNegative() || timeout.isZero()) {
+      throw new IllegalArgumentException("timeout must be positive: " + timeout);
     }
-    return DefaultTcpPortMonitor.CONNECTED_SUCCESSFULLY;
+    CompletableFuture<String> future = probe();
+    HashedTimingWheel.Timeout deadline = Deadlines.schedule(
+        () -> future.completeExceptionally(new TimeoutException(
+            "Check timed out after " + timeout.toMillis() + " ms: " + ipAddress + ":" + port
+        )),
+        timeout.toNanos(),
+        TimeUnit.NANOSECONDS
+    );
+    future.whenComplete((result, t) -> deadline.cancel());
+    return future;
   }
 }
@@ -0,0 +1,275 @@
+/*
+ * noc-monitor-portmon - Port monitoring implementations.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of noc-monitor-portmon.
+ *
+ * noc-monitor-portmon is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * noc-monitor-portmon is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with noc-monitor-portmon.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.noc.monitor.portmon;
+
+import com.aoapps.lang.Strings;
+import com.aoapps.lang.validation.ValidationException;
+import com.aoapps.net.InetAddress;
+import com.aoapps.net.URIParameters;
+import java.util.Locale;
+
+/**
+ * The configuration of {@link DnsPortMonitor}, parsed and validated once from the monitoring parameters.
+ *
+ * <p>Set through monitoring parameters <code>query</code> for the name queried, defaulting to the root,
+ * <code>type</code> for the record type, defaulting to <code>NS</code> for the root and <code>A</code>
+ * otherwise, <code>rcode</code> for the expected response code, defaulting to <code>NOERROR</code>,
+ * <code>expect</code> for an answer that must be present, <code>recurse=false</code> to not request
+ * recursion, and <code>authoritative=true</code> to require an authoritative answer.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class DnsConfig {
+
+  static final int TYPE_A = 1;
+  static final int TYPE_NS = 2;
+  static final int TYPE_CNAME = 5;
+  static final int TYPE_SOA = 6;
+  static final int TYPE_PTR = 12;
+  static final int TYPE_MX = 15;
+  static final int TYPE_TXT = 16;
+  static final int TYPE_AAAA = 28;
+  static final int TYPE_SRV = 33;
+
+  private static final String[] TYPE_NAMES = new String[TYPE_SRV + 1];
+
+  static {
+    TYPE_NAMES[TYPE_A] = "A";
+    TYPE_NAMES[TYPE_NS] = "NS";
+    TYPE_NAMES[TYPE_CNAME] = "CNAME";
+    TYPE_NAMES[TYPE_SOA] = "SOA";
+    TYPE_NAMES[TYPE_PTR] = "PTR";
+    TYPE_NAMES[TYPE_MX] = "MX";
+    TYPE_NAMES[TYPE_TXT] = "TXT";
+    TYPE_NAMES[TYPE_AAAA] = "AAAA";
+    TYPE_NAMES[TYPE_SRV] = "SRV";
+  }
+
+  /**
+   * Gets the name of a record type.
+   */
+  static String getTypeName(int type) {
+    String name = type < TYPE_NAMES.length ? TYPE_NAMES[type] : null;
+    return name != null ? name : ("TYPE" + type);
+  }
+
+  /**
+   * Parses a record type by name, or by number in the form <code>TYPE<i>n</i></code> or <code><i>n</i></code>.
+   *
+   * @return  the type or {@code -1} when invalid
+   */
+  private static int parseType(String type) {
+    String upper = type.toUpperCase(Locale.ROOT);
+    for (int i = 0; i < TYPE_NAMES.length; i++) {
+      if (upper.equals(TYPE_NAMES[i])) {
+        return i;
+      }
+    }
+    String number = upper.startsWith("TYPE") ? upper.substring(4) : upper;
+    try {
+      int value = Integer.parseInt(number);
+      return (value >= 1 && value <= 0xFFFF) ? value : -1;
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Parses a response code by name or number.
+   *
+   * @return  the response code or {@code -1} when invalid
+   */
+  private static int parseRcode(String rcode) {
+    for (int i = 0; i < 16; i++) {
+      if (rcode.equalsIgnoreCase(UdpProbe.getRcodeName(i))) {
+        return i;
+      }
+    }
+    try {
+      int value = Integer.parseInt(rcode);
+      return (value >= 0 && value <= 0xF) ? value : -1;
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Normalizes a name for comparison: lower-case without any trailing dot.
+   */
+  static String normalizeName(String name) {
+    String lower = name.toLowerCase(Locale.ROOT);
+    return (lower.length() > 1 && lower.endsWith(".")) ? lower.substring(0, lower.length() - 1) : lower;
+  }
+
+  /**
+   * The parameters that request a DNS-level check.
+   */
+  private static final String[] REQUEST_PARAMETERS = {"query", "type", "rcode", "expect", "recurse", "authoritative"};
+
+  /**
+   * Do the monitoring parameters request a DNS-level check?  Without any of <code>query</code>,
+   * <code>type</code>, <code>rcode</code>, <code>expect</code>, <code>recurse</code>, or
+   * <code>authoritative</code>, DNS ports are monitored by the default monitor of the network protocol,
+   * as before {@link DnsPortMonitor} was added.
+   */
+  public static boolean isRequested(URIParameters monitoringParameters) {
+    for (String name : REQUEST_PARAMETERS) {
+      if (monitoringParameters.getParameter(name) != null) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Gets the configuration from monitoring parameters.
+   *
+   * @throws  IllegalArgumentException  when any parameter is invalid
+   */
+  public static DnsConfig valueOf(URIParameters monitoringParameters) throws IllegalArgumentException {
+    String query = Strings.nullIfEmpty(monitoringParameters.getParameter("query"));
+    if (query == null) {
+      query = ".";
+    }
+    String typeParam = Strings.nullIfEmpty(monitoringParameters.getParameter("type"));
+    int type;
+    if (typeParam == null) {
+      type = ".".equals(query) ? TYPE_NS : TYPE_A;
+    } else {
+      type = parseType(typeParam);
+      if (type == -1) {
+        throw new IllegalArgumentException("monitoringParameters contains invalid type: " + typeParam);
+      }
+    }
+    String rcodeParam = Strings.nullIfEmpty(monitoringParameters.getParameter("rcode"));
+    int rcode;
+    if (rcodeParam == null) {
+      rcode = 0;
+    } else {
+      rcode = parseRcode(rcodeParam);
+      if (rcode == -1) {
+        throw new IllegalArgumentException("monitoringParameters contains invalid rcode: " + rcodeParam);
+      }
+    }
+    String expect = Strings.nullIfEmpty(monitoringParameters.getParameter("expect"));
+    if (expect != null) {
+      if (type == TYPE_A || type == TYPE_AAAA) {
+        // Compare addresses in their canonical form
+        try {
+          String address = InetAddress.valueOf(expect).toString();
+          if ((address.indexOf(':') == -1) != (type == TYPE_A)) {
+            throw new IllegalArgumentException("monitoringParameters contains expect of wrong address family for type " + getTypeName(type) + ": " + expect);
+          }
+          expect = address;
+        } catch (ValidationException e) {
+          throw new IllegalArgumentException("monitoringParameters contains invalid expect: " + expect, e);
+        }
+      } else if (type != TYPE_TXT) {
+        expect = normalizeName(expect);
+      }
+    }
+    // Request recursion unless explicitely disabled with recurse=false
+    boolean recurse = !"false".equalsIgnoreCase(monitoringParameters.getParameter("recurse"));
+    boolean authoritative = Boolean.parseBoolean(monitoringParameters.getParameter("authoritative"));
+    try {
+      return new DnsConfig(query, type, rcode, expect, recurse, authoritative);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("monitoringParameters contains invalid query: " + query, e);
+    }
+  }
+
+  private final String query;
+  private final int type;
+  private final int rcode;
+  private final String expect;
+  private final boolean recurse;
+  private final boolean authoritative;
+  private final byte[] question;
+
+  private DnsConfig(String query, int type, int rcode, String expect, boolean recurse, boolean authoritative) throws IllegalArgumentException {
+    this.query = query;
+    this.type = type;
+    this.rcode = rcode;
+    this.expect = expect;
+    this.recurse = recurse;
+    this.authoritative = authoritative;
+    byte[] name = UdpProbe.encodeName(query);
+    question = new byte[name.length + 4];
+    System.arraycopy(name, 0, question, 0, name.length);
+    question[name.length] = (byte) (type >> 8);
+    question[name.length + 1] = (byte) type;
+    // Class IN
+    question[name.length + 3] = 1;
+  }
+
+  /**
+   * Gets the name queried.
+   */
+  public String getQuery() {
+    return query;
+  }
+
+  /**
+   * Gets the record type queried.
+   */
+  public int getType() {
+    return type;
+  }
+
+  /**
+   * Gets the expected response code.
+   */
+  public int getRcode() {
+    return rcode;
+  }
+
+  /**
+   * Gets the answer that must be present, or {@code null} when any answer is accepted.
+   * Addresses are in canonical form and names are normalized.
+   */
+  public String getExpect() {
+    return expect;
+  }
+
+  /**
+   * Is recursion requested?
+   */
+  public boolean isRecurse() {
+    return recurse;
+  }
+
+  /**
+   * Is an authoritative answer required?
+   */
+  public boolean isAuthoritative() {
+    return authoritative;
+  }
+
+  /**
+   * Gets the encoded question section, not copied for performance.
+   */
+  byte[] getQuestion() {
+    return question;
+  }
+}
@@ -0,0 +1,448 @@
+/*
+ * noc-monitor-portmon - Port monitoring implementations.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of noc-monitor-portmon.
+ *
+ * noc-monitor-portmon is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * noc-monitor-portmon is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with noc-monitor-portmon.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.noc.monitor.portmon;
+
+import com.aoapps.net.InetAddress;
+import com.aoapps.net.Port;
+import com.aoapps.net.Protocol;
+import com.aoapps.net.URIParameters;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Monitors DNS by sending the query of a {@link DnsConfig} and checking the response code and answers.
+ *
+ * <p>Over UDP, queries are sent by the shared {@link UdpProbeEngine}, so any number of checks are
+ * multiplexed on a single selector thread without blocking a thread per check.  A truncated response
+ * is retried over TCP.  Over TCP, the query is sent directly.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+public class DnsPortMonitor extends PortMonitor {
+
+  private static final Logger logger = Logger.getLogger(DnsPortMonitor.class.getName());
+
+  /**
+   * Bounds following compression pointers, which could otherwise loop.
+   */
+  private static final int MAX_POINTERS = 64;
+
+  /**
+   * Indicates a truncated UDP response, to be retried over TCP.
+   */
+  private static final class TruncatedException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private TruncatedException() {
+      super("Truncated response");
+    }
+  }
+
+  private final InetSocketAddress socketAddress;
+  private final DnsConfig config;
+  private final Timeouts timeouts;
+
+  private final UdpProbe probe = new UdpProbe() {
+    @Override
+    protected void writeRequest(ByteBuffer buffer, int transactionId) {
+      writeQuery(buffer, transactionId);
+    }
+
+    @Override
+    protected String checkReply(ByteBuffer reply, int transactionId) throws IOException {
+      return checkResponse(reply, transactionId, true);
+    }
+  };
+
+  private volatile Future<?> engineFuture;
+  private volatile Socket socket;
+
+  /**
+   * Creates a new DNS monitor.
+   */
+  public DnsPortMonitor(InetAddress ipAddress, Port port, DnsConfig config, Timeouts timeouts) {
+    super(ipAddress, port);
+    this.socketAddress = new InetSocketAddress(toInetAddress(ipAddress), port.getPort());
+    this.config = config;
+    this.timeouts = timeouts;
+  }
+
+  /**
+   * Creates a new DNS monitor, with the query and timeouts from the monitoring parameters.
+   */
+  public DnsPortMonitor(InetAddress ipAddress, Port port, URIParameters monitoringParameters) {
+    this(ipAddress, port, DnsConfig.valueOf(monitoringParameters), Timeouts.valueOf(monitoringParameters));
+  }
+
+  @Override
+  public void cancel() {
+    super.cancel();
+    Future<?> myEngineFuture = engineFuture;
+    if (myEngineFuture != null) {
+      myEngineFuture.cancel(false);
+    }
+    Socket mySocket = socket;
+    if (mySocket != null) {
+      try {
+        mySocket.close();
+      } catch (IOException err) {
+        logger.log(Level.WARNING, null, err);
+      }
+    }
+  }
+
+  private void writeQuery(ByteBuffer buffer, int id) {
+    buffer
+        .putShort((short) id)
+        .putShort((short) (config.isRecurse() ? 0x0100 : 0))
+        // One question
+        .putShort((short) 1)
+        .putShort((short) 0)
+        .putShort((short) 0)
+        .putShort((short) 0)
+        .put(config.getQuestion());
+  }
+
+  /**
+   * Reads a possibly compressed name.
+   *
+   * @param  name  the name is appended here, without any trailing dot
+   *
+   * @return  the position after the name at <code>pos</code>
+   */
+  private static int readName(ByteBuffer msg, int pos, StringBuilder name) throws IOException {
+    int end = -1;
+    int pointers = 0;
+    while (true) {
+      int len = msg.get(pos) & 0xFF;
+      if (len == 0) {
+        return end == -1 ? pos + 1 : end;
+      }
+      if ((len & 0xC0) == 0xC0) {
+        if (++pointers > MAX_POINTERS) {
+          throw new IOException("Too many compression pointers");
+        }
+        if (end == -1) {
+          end = pos + 2;
+        }
+        pos = ((len & 0x3F) << 8) | (msg.get(pos + 1) & 0xFF);
+      } else if ((len & 0xC0) != 0) {
+        throw new IOException("Unsupported label type: 0x" + Integer.toHexString(len));
+      } else {
+        if (name != null) {
+          if (name.length() > 0) {
+            name.append('.');
+          }
+          for (int i = 1; i <= len; i++) {
+            name.append((char) (msg.get(pos + i) & 0xFF));
+          }
+        }
+        pos += 1 + len;
+      }
+    }
+  }
+
+  private static String readName(ByteBuffer msg, int pos) throws IOException {
+    StringBuilder name = new StringBuilder();
+    readName(msg, pos, name);
+    return DnsConfig.normalizeName(name.length() == 0 ? "." : name.toString());
+  }
+
+  /**
+   * Gets the text of the data of a record, in the same form as {@link DnsConfig#getExpect()}.
+   */
+  private static String getText(ByteBuffer msg, int type, int pos, int length) throws IOException {
+    switch (type) {
+      case DnsConfig.TYPE_A:
+        if (length != 4) {
+          throw new IOException("Invalid A record length: " + length);
+        }
+        return (msg.get(pos) & 0xFF) + "." + (msg.get(pos + 1) & 0xFF) + "." + (msg.get(pos + 2) & 0xFF) + "." + (msg.get(pos + 3) & 0xFF);
+      case DnsConfig.TYPE_AAAA:
+        if (length != 16) {
+          throw new IOException("Invalid AAAA record length: " + length);
+        }
+        return InetAddress.valueOf(msg.getLong(pos), msg.getLong(pos + 8)).toString();
+      case DnsConfig.TYPE_NS:
+      case DnsConfig.TYPE_CNAME:
+      case DnsConfig.TYPE_PTR:
+        return readName(msg, pos);
+      case DnsConfig.TYPE_MX:
+        return readName(msg, pos + 2);
+      case DnsConfig.TYPE_SRV:
+        return readName(msg, pos + 6);
+      case DnsConfig.TYPE_SOA:
+        return readName(msg, pos);
+      case DnsConfig.TYPE_TXT:
+        StringBuilder text = new StringBuilder();
+        for (int i = pos, end = pos + length; i < end; ) {
+          int len = msg.get(i) & 0xFF;
+          if (i + 1 + len > end) {
+            throw new IOException("Invalid TXT record");
+          }
+          byte[] bytes = new byte[len];
+          for (int j = 0; j < len; j++) {
+            bytes[j] = msg.get(i + 1 + j);
+          }
+          text.append(new String(bytes, StandardCharsets.UTF_8));
+          i += 1 + len;
+        }
+        return text.toString();
+      default:
+        return length + " bytes";
+    }
+  }
+
+  /**
+   * Checks a response.
+   *
+   * @return  the result or {@code null} when the response is not for this query
+   *
+   * @throws  TruncatedException  when <code>udp</code> and truncated
+   */
+  private String checkResponse(ByteBuffer msg, int id, boolean udp) throws IOException {
+    try {
+      if (
+          msg.remaining() < 12
+              || msg.getShort(0) != (short) id
+              // Not a response
+              || (msg.get(2) & 0x80) == 0
+      ) {
+        return null;
+      }
+      // The same question
+      byte[] question = config.getQuestion();
+      int pos = 12;
+      if (msg.getShort(4) != 1 || msg.remaining() < pos + question.length) {
+        return null;
+      }
+      for (byte b : question) {
+        int ch = msg.get(pos++);
+        // Case-insensitive for ASCII letters
+        if (ch != b && ((ch | 0x20) != (b | 0x20) || (b | 0x20) < 'a' || (b | 0x20) > 'z')) {
+          return null;
+        }
+      }
+      int flags = msg.getShort(2) & 0xFFFF;
+      if (udp && (flags & 0x0200) != 0) {
+        throw new TruncatedException();
+      }
+      int rcode = flags & 0xF;
+      if (rcode != config.getRcode()) {
+        throw new IOException("Unexpected response code: " + UdpProbe.getRcodeName(rcode) + ", expected " + UdpProbe.getRcodeName(config.getRcode()));
+      }
+      if (config.isAuthoritative() && (flags & 0x0400) == 0) {
+        throw new IOException("Answer not authoritative");
+      }
+      // Answers of the type queried
+      int type = config.getType();
+      String expect = config.getExpect();
+      List<String> answers = new ArrayList<>();
+      boolean found = false;
+      for (int i = 0, count = msg.getShort(6) & 0xFFFF; i < count; i++) {
+        pos = readName(msg, pos, null);
+        int rrType = msg.getShort(pos) & 0xFFFF;
+        int length = msg.getShort(pos + 8) & 0xFFFF;
+        pos += 10;
+        if (pos + length > msg.limit()) {
+          throw new IOException("Record data beyond end of message");
+        }
+        if (rrType == type) {
+          String text = getText(msg, type, pos, length);
+          answers.add(text);
+          if (text.equals(expect)) {
+            found = true;
+          }
+        }
+        pos += length;
+      }
+      if (expect != null && !found) {
+        throw new IOException("Expected answer not found: " + expect + ", got " + answers);
+      }
+      StringBuilder result = new StringBuilder();
+      result.append(UdpProbe.getRcodeName(rcode));
+      if (!answers.isEmpty()) {
+        result.append(": ");
+        for (int i = 0, size = answers.size(); i < size; i++) {
+          if (i > 0) {
+            result.append(", ");
+          }
+          result.append(answers.get(i));
+        }
+      }
+      return result.toString();
+    } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+      throw new IOException("Invalid response", e);
+    }
+  }
+
+  /**
+   * Performs the query over TCP.
+   */
+  private String queryTcp() throws IOException {
+    TimeoutBudget budget = new TimeoutBudget(timeouts);
+    try (Socket s = new Socket()) {
+      // Allow cancel() to abort the connect and query
+      socket = s;
+      if (canceled) {
+        throw new IOException("Canceled");
+      }
+      s.connect(socketAddress, budget.begin(CheckPhase.CONNECT));
+      s.setSoTimeout(budget.begin(CheckPhase.GREETING));
+      int id = ThreadLocalRandom.current().nextInt() & 0xFFFF;
+      ByteBuffer query = ByteBuffer.allocate(2 + 12 + config.getQuestion().length);
+      query.position(2);
+      writeQuery(query, id);
+      query.putShort(0, (short) (query.position() - 2));
+      OutputStream out = s.getOutputStream();
+      out.write(query.array(), 0, query.position());
+      out.flush();
+      DataInputStream in = new DataInputStream(s.getInputStream());
+      byte[] response = new byte[in.readUnsignedShort()];
+      in.readFully(response);
+      String result = checkResponse(ByteBuffer.wrap(response), id, false);
+      if (result == null) {
+        throw new IOException("Response does not match query");
+      }
+      return result;
+    } catch (PhaseTimeoutException e) {
+      throw e;
+    } catch (SocketTimeoutException e) {
+      throw budget.timedOut(e);
+    }
+  }
+
+  private CompletableFuture<String> queryUdp() {
+    CompletableFuture<String> future = UdpProbeEngine.getInstance().probe(socketAddress, probe, timeouts);
+    engineFuture = future;
+    if (canceled) {
+      future.cancel(false);
+    }
+    return future;
+  }
+
+  @Override
+  public String checkPort() throws Exception {
+    long startNanos = checkStarted();
+    try {
+      String result = query();
+      checkCompleted(startNanos, null);
+      return result;
+    } catch (Throwable t) {
+      checkCompleted(startNanos, t);
+      throw t;
+    }
+  }
+
+  private String query() throws Exception {
+    if (port.getProtocol() == Protocol.TCP) {
+      return queryTcp();
+    }
+    try {
+      return queryUdp().get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof TruncatedException) {
+        return queryTcp();
+      }
+      if (cause instanceof Exception) {
+        throw (Exception) cause;
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Over UDP, checks the port on the selector thread of the {@link UdpProbeEngine}, only using the
+   * executor for any TCP retry of a truncated response.  Over TCP, runs {@link #checkPort()} on the executor.
+   */
+  @Override
+  public CompletableFuture<String> checkPortAsync(Executor executor, Duration timeout) {
+    if (port.getProtocol() == Protocol.TCP) {
+      return super.checkPortAsync(executor, timeout);
+    }
+    if (timeout.isNegative() || timeout.isZero()) {
+      throw new IllegalArgumentException("timeout must be positive: " + timeout);
+    }
+    long startNanos = checkStarted();
+    CompletableFuture<String> future = queryUdp().handle((result, t) -> {
+      if (t instanceof TruncatedException) {
+        CompletableFuture<String> tcp = new CompletableFuture<>();
+        try {
+          executor.execute(() -> {
+            try {
+              tcp.complete(queryTcp());
+            } catch (Throwable t2) {
+              tcp.completeExceptionally(t2);
+            }
+          });
+        } catch (RejectedExecutionException e) {
+          tcp.completeExceptionally(e);
+        }
+        return tcp;
+      }
+      return t == null ? CompletableFuture.completedFuture(result) : CompletableFuture.<String>failedFuture(t);
+    }).thenCompose(Function.identity());
+    HashedTimingWheel.Timeout deadline = Deadlines.schedule(
+        () -> {
+          if (future.completeExceptionally(new TimeoutException(
+              "Check timed out after " + timeout.toMillis() + " ms: " + ipAddress + ":" + port
+          ))) {
+            Deadlines.cancel(this);
+          }
+        },
+        timeout.toNanos(),
+        TimeUnit.NANOSECONDS
+    );
+    future.whenComplete((result, t) -> {
+      deadline.cancel();
+      checkCompleted(startNanos, t);
+      if (future.isCancelled()) {
+        cancel();
+      }
+    });
+    return future;
+  }
+}
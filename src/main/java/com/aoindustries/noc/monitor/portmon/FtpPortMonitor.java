@@ -1,6 +1,6 @@
 /*
  * noc-monitor-portmon - Port monitoring implementations.
- * Copyright (C) 2001-2013, 2016, 2017, 2018, 2019, 2020, 2021, 2022, 2024  AO Industries, Inc.
+ * Copyright (C) 2001-2013, 2016, 2017, 2018, 2019, 2020, 2021, 2022, 2024, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -26,17 +26,9 @@ package com.aoindustries.noc.monitor.portmon;
 import com.aoapps.net.InetAddress;
 import com.aoapps.net.Port;
 import com.aoapps.net.URIParameters;
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.EOFException;
-import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
 import java.net.Socket;
-import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
 
 /**
  * Monitors with FTP-specific protocol support.
@@ -47,83 +39,33 @@ import java.nio.charset.StandardCharsets;
  */
 public class FtpPortMonitor extends DefaultTcpPortMonitor {
 
-  private final URIParameters monitoringParameters;
+  private final ProtocolScript.Bound script;
 
   /**
    * Creates a new FTP monitor.
    */
   public FtpPortMonitor(InetAddress ipAddress, Port port, URIParameters monitoringParameters) {
-    super(ipAddress, port, false);
-    this.monitoringParameters = monitoringParameters;
+    super(ipAddress, port, false, monitoringParameters);
+    this.script = SCRIPT.bind(monitoringParameters);
   }
 
+  private static final ProtocolScript SCRIPT = ProtocolScript.builder()
+      .expect("status", "220 ")
+      .phase(CheckPhase.AUTH)
+      .send("user ${username}")
+      .expect("user response", "331 ")
+      .send("pass ${password}")
+      .capture("pass response", "230 ")
+      .phase(CheckPhase.CLOSE)
+      .send("quit")
+      .expect("quit response", "221 ")
+      .drain("quit response", "221 ")
+      .build();
+
   @Override
   public String checkPort(Socket socket, InputStream socketIn, OutputStream socketOut) throws Exception {
-    // Get the configuration
-    String username = monitoringParameters.getParameter("username");
-    if (username == null || username.length() == 0) {
-      throw new IllegalArgumentException("monitoringParameters does not include the username");
-    }
-    String password = monitoringParameters.getParameter("password");
-    if (password == null || password.length() == 0) {
-      throw new IllegalArgumentException("monitoringParameters does not include the password");
-    }
-
-    Charset charset = StandardCharsets.US_ASCII;
-    try (
-        BufferedWriter out = new BufferedWriter(new OutputStreamWriter(socketOut, charset));
-        BufferedReader in = new BufferedReader(new InputStreamReader(socketIn, charset))
-        ) {
-      // Status line
-      String line = in.readLine();
-      if (line == null) {
-        throw new EOFException("End of file reading status");
-      }
-      if (!line.startsWith("220 ")) {
-        throw new IOException("Unexpected status line: " + line);
-      }
-      // User
-      out.write("user ");
-      out.write(username);
-      out.write(CRLF);
-      out.flush();
-      line = in.readLine();
-      if (line == null) {
-        throw new EOFException("End of file reading user response");
-      }
-      if (!line.startsWith("331 ")) {
-        throw new IOException("Unexpected line reading user response: " + line);
-      }
-      // Pass
-      out.write("pass ");
-      out.write(password);
-      out.write(CRLF);
-      out.flush();
-      line = in.readLine();
-      if (line == null) {
-        throw new EOFException("End of file reading pass response");
-      }
-      if (!line.startsWith("230 ")) {
-        throw new IOException("Unexpected line reading pass response: " + line);
-      }
-      final String result = line.substring(4);
-      // Quit
-      out.write("quit" + CRLF);
-      out.flush();
-      line = in.readLine();
-      if (line == null) {
-        throw new EOFException("End of file reading quit response");
-      }
-      if (!line.startsWith("221 ")) {
-        throw new IOException("Unexpected line reading quit response: " + line);
-      }
-      while ((line = in.readLine()) != null) {
-        if (!line.startsWith("221 ")) {
-          throw new IOException("Unexpected line reading quit response: " + line);
-        }
-      }
-      // Return OK result
-      return result;
+    try (AsciiLineIO io = new AsciiLineIO(socketIn, socketOut)) {
+      return script.run(this, socket, io);
     }
   }
 }
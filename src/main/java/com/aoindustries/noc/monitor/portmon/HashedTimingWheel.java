@@ -0,0 +1,288 @@
+/*
+ * noc-monitor-portmon - Port monitoring implementations.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of noc-monitor-portmon.
+ *
+ * noc-monitor-portmon is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * noc-monitor-portmon is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with noc-monitor-portmon.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.noc.monitor.portmon;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A hashed timing wheel, with constant-time scheduling and cancellation of timeouts.
+ *
+ * <p>Timeouts are kept in a ring of buckets, one per tick.  A single thread advances one bucket
+ * per tick, running the timeouts that are due.  Timeouts further away than one rotation of the
+ * wheel remain in their bucket for the remaining rotations.</p>
+ *
+ * <p>Timeouts never run early, and run within about one tick after they are due.  Scheduling and
+ * canceling only add to lock-free queues, which are applied to the buckets by the wheel thread on
+ * its next tick.  Tasks are run on the wheel thread and must not block.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+final class HashedTimingWheel {
+
+  private static final Logger logger = Logger.getLogger(HashedTimingWheel.class.getName());
+
+  /**
+   * A scheduled task.
+   */
+  static final class Timeout {
+
+    private static final int ST_PENDING = 0;
+    private static final int ST_CANCELED = 1;
+    private static final int ST_EXPIRED = 2;
+
+    private static final AtomicIntegerFieldUpdater<Timeout> STATE =
+        AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+    private final HashedTimingWheel wheel;
+    private final Runnable task;
+    /**
+     * The deadline, in nanoseconds since the wheel started.
+     */
+    private final long deadline;
+
+    @SuppressWarnings("unused") // Updated by STATE
+    private volatile int state = ST_PENDING;
+
+    // All used by the wheel thread only
+    private long remainingRounds;
+    private Bucket bucket;
+    private Timeout prev;
+    private Timeout next;
+
+    private Timeout(HashedTimingWheel wheel, Runnable task, long deadline) {
+      this.wheel = wheel;
+      this.task = task;
+      this.deadline = deadline;
+    }
+
+    /**
+     * Cancels this timeout.
+     *
+     * @return  {@code false} when already canceled or expired
+     */
+    boolean cancel() {
+      if (!STATE.compareAndSet(this, ST_PENDING, ST_CANCELED)) {
+        return false;
+      }
+      wheel.canceled.add(this);
+      return true;
+    }
+
+    boolean isCanceled() {
+      return state == ST_CANCELED;
+    }
+
+    boolean isExpired() {
+      return state == ST_EXPIRED;
+    }
+
+    private void expire() {
+      if (STATE.compareAndSet(this, ST_PENDING, ST_EXPIRED)) {
+        try {
+          task.run();
+        } catch (Throwable t) {
+          logger.log(Level.WARNING, null, t);
+        }
+      }
+    }
+  }
+
+  /**
+   * A doubly-linked list of timeouts, used by the wheel thread only.
+   */
+  private static final class Bucket {
+
+    private Timeout head;
+    private Timeout tail;
+
+    private void add(Timeout timeout) {
+      timeout.bucket = this;
+      if (head == null) {
+        head = tail = timeout;
+      } else {
+        tail.next = timeout;
+        timeout.prev = tail;
+        tail = timeout;
+      }
+    }
+
+    private Timeout remove(Timeout timeout) {
+      Timeout next = timeout.next;
+      if (timeout.prev != null) {
+        timeout.prev.next = next;
+      }
+      if (next != null) {
+        next.prev = timeout.prev;
+      }
+      if (timeout == head) {
+        head = next;
+      }
+      if (timeout == tail) {
+        tail = timeout.prev;
+      }
+      timeout.prev = null;
+      timeout.next = null;
+      timeout.bucket = null;
+      return next;
+    }
+
+    /**
+     * Runs all timeouts in their final rotation.
+     */
+    private void expire() {
+      Timeout timeout = head;
+      while (timeout != null) {
+        if (timeout.remainingRounds <= 0) {
+          Timeout next = remove(timeout);
+          timeout.expire();
+          timeout = next;
+        } else if (timeout.isCanceled()) {
+          timeout = remove(timeout);
+        } else {
+          timeout.remainingRounds--;
+          timeout = timeout.next;
+        }
+      }
+    }
+  }
+
+  private final long tickNanos;
+  private final Bucket[] buckets;
+  private final int mask;
+  private final long startNanos = System.nanoTime();
+  private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+  private final Queue<Timeout> canceled = new ConcurrentLinkedQueue<>();
+
+  /**
+   * Creates a new timing wheel and starts its thread.
+   *
+   * @param  wheelSize  the number of buckets, rounded up to a power of two
+   */
+  HashedTimingWheel(String name, long tickDuration, TimeUnit unit, int wheelSize) {
+    if (tickDuration <= 0) {
+      throw new IllegalArgumentException("tickDuration must be positive: " + tickDuration);
+    }
+    if (wheelSize < 1 || wheelSize > (1 << 30)) {
+      throw new IllegalArgumentException("wheelSize out of range: " + wheelSize);
+    }
+    tickNanos = unit.toNanos(tickDuration);
+    int size = Integer.highestOneBit(wheelSize);
+    if (size < wheelSize) {
+      size <<= 1;
+    }
+    buckets = new Bucket[size];
+    for (int i = 0; i < size; i++) {
+      buckets[i] = new Bucket();
+    }
+    mask = size - 1;
+    Thread thread = new Thread(this::run, name);
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Schedules a task to run once the delay has passed.
+   *
+   * @return  the timeout used to cancel the task
+   */
+  Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+    long deadline = System.nanoTime() + unit.toNanos(Math.max(delay, 0)) - startNanos;
+    if (deadline < 0) {
+      // Overflow
+      deadline = Long.MAX_VALUE;
+    }
+    Timeout timeout = new Timeout(this, task, deadline);
+    pending.add(timeout);
+    return timeout;
+  }
+
+  private void run() {
+    long tick = 0;
+    while (true) {
+      waitForTick(tick);
+      removeCanceled();
+      addPending(tick);
+      buckets[(int) (tick & mask)].expire();
+      tick++;
+    }
+  }
+
+  /**
+   * Waits until the end of the given tick.
+   */
+  private void waitForTick(long tick) {
+    long end = tickNanos * (tick + 1);
+    while (true) {
+      long now = System.nanoTime() - startNanos;
+      long sleepNanos = end - now;
+      if (sleepNanos <= 0) {
+        return;
+      }
+      try {
+        TimeUnit.NANOSECONDS.sleep(sleepNanos);
+      } catch (InterruptedException e) {
+        // The wheel runs for the life of the JVM
+        logger.log(Level.WARNING, null, e);
+      }
+    }
+  }
+
+  private void removeCanceled() {
+    Timeout timeout;
+    while ((timeout = canceled.poll()) != null) {
+      Bucket bucket = timeout.bucket;
+      if (bucket != null) {
+        bucket.remove(timeout);
+      }
+    }
+  }
+
+  /**
+   * Adds the newly scheduled timeouts to their buckets.
+   */
+  private void addPending(long tick) {
+    Timeout timeout;
+    while ((timeout = pending.poll()) != null) {
+      if (timeout.isCanceled()) {
+        continue;
+      }
+      // The tick at the end of which the timeout is due
+      long dueTick = timeout.deadline / tickNanos;
+      if (timeout.deadline % tickNanos == 0 && dueTick > 0) {
+        dueTick--;
+      }
+      if (dueTick < tick) {
+        // Already past due, run in this tick
+        dueTick = tick;
+      }
+      timeout.remainingRounds = (dueTick - tick) / buckets.length;
+      buckets[(int) (dueTick & mask)].add(timeout);
+    }
+  }
+}
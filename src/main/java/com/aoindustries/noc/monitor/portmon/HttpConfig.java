@@ -0,0 +1,269 @@
+/*
+ * noc-monitor-portmon - Port monitoring implementations.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of noc-monitor-portmon.
+ *
+ * noc-monitor-portmon is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * noc-monitor-portmon is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with noc-monitor-portmon.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.noc.monitor.portmon;
+
+import com.aoapps.lang.Strings;
+import com.aoapps.net.URIParameters;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The configuration of {@link HttpPortMonitor}, parsed and validated once from the monitoring parameters.
+ *
+ * <p>Set through monitoring parameters <code>method</code> of <code>GET</code>, <code>HEAD</code>,
+ * or <code>OPTIONS</code>, defaulting to <code>GET</code>, <code>path</code> defaulting to
+ * <code>/</code>, <code>host</code> for the virtual host sent as the <code>Host</code> header and
+ * TLS server name, defaulting to the IP address, and <code>status</code> for the expected status
+ * codes as a comma-separated list of codes or classes like <code>2xx</code>, defaulting to
+ * <code>2xx,3xx</code>.  The response may be further required to have a body containing the
+ * <code>contains</code> parameter, and a header for each <code>header</code> parameter in the form
+ * <code><i>name</i>: <i>substring</i></code>.  Connections are kept alive for reuse unless
+ * <code>keepAlive=false</code>.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class HttpConfig {
+
+  /**
+   * A required response header.
+   */
+  public static final class HeaderMatcher {
+
+    private final String name;
+    private final String substring;
+
+    private HeaderMatcher(String name, String substring) {
+      this.name = name;
+      this.substring = substring;
+    }
+
+    /**
+     * Gets the header name.
+     */
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * Gets the text the header value must contain, which may be empty to only require the header.
+     */
+    public String getSubstring() {
+      return substring;
+    }
+
+    @Override
+    public String toString() {
+      return name + ": " + substring;
+    }
+  }
+
+  /**
+   * Is the value printable ASCII, without spaces?
+   */
+  private static boolean isToken(String value) {
+    for (int i = 0, len = value.length(); i < len; i++) {
+      char ch = value.charAt(i);
+      if (ch <= ' ' || ch > '~') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static BitSet parseStatus(String status) throws IllegalArgumentException {
+    BitSet statuses = new BitSet(600);
+    for (String code : status.split(",", -1)) {
+      String trimmed = code.trim().toLowerCase(Locale.ROOT);
+      if (trimmed.length() != 3) {
+        throw new IllegalArgumentException("monitoringParameters contains invalid status: " + status);
+      }
+      char first = trimmed.charAt(0);
+      if (first < '1' || first > '5') {
+        throw new IllegalArgumentException("monitoringParameters contains invalid status: " + status);
+      }
+      if (trimmed.endsWith("xx")) {
+        int from = (first - '0') * 100;
+        statuses.set(from, from + 100);
+      } else {
+        try {
+          statuses.set(Integer.parseInt(trimmed));
+        } catch (NumberFormatException e) {
+          throw new IllegalArgumentException("monitoringParameters contains invalid status: " + status, e);
+        }
+      }
+    }
+    return statuses;
+  }
+
+  /**
+   * The parameters that request an HTTP-level check.
+   */
+  private static final String[] REQUEST_PARAMETERS = {"method", "path", "host", "status", "contains", "header"};
+
+  /**
+   * Do the monitoring parameters request an HTTP-level check?  Without any of <code>method</code>,
+   * <code>path</code>, <code>host</code>, <code>status</code>, <code>contains</code>, or <code>header</code>,
+   * HTTP ports are only connected to and HTTPS ports only complete the TLS handshake, as before
+   * {@link HttpPortMonitor} was added.
+   */
+  public static boolean isRequested(URIParameters monitoringParameters) {
+    for (String name : REQUEST_PARAMETERS) {
+      if (monitoringParameters.getParameter(name) != null) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Gets the configuration from monitoring parameters.
+   *
+   * @throws  IllegalArgumentException  when any parameter is invalid
+   */
+  public static HttpConfig valueOf(URIParameters monitoringParameters) throws IllegalArgumentException {
+    String method = Strings.nullIfEmpty(monitoringParameters.getParameter("method"));
+    if (method == null) {
+      method = "GET";
+    } else {
+      method = method.toUpperCase(Locale.ROOT);
+      // Only methods that are safe to retry on a stale keep-alive connection
+      if (!"GET".equals(method) && !"HEAD".equals(method) && !"OPTIONS".equals(method)) {
+        throw new IllegalArgumentException("monitoringParameters contains unsupported method: " + method);
+      }
+    }
+    String path = Strings.nullIfEmpty(monitoringParameters.getParameter("path"));
+    if (path == null) {
+      path = "/";
+    } else if ((!path.startsWith("/") && !("*".equals(path) && "OPTIONS".equals(method))) || !isToken(path)) {
+      throw new IllegalArgumentException("monitoringParameters contains invalid path: " + path);
+    }
+    String host = Strings.nullIfEmpty(monitoringParameters.getParameter("host"));
+    if (host != null && !isToken(host)) {
+      throw new IllegalArgumentException("monitoringParameters contains invalid host: " + host);
+    }
+    String status = Strings.nullIfEmpty(monitoringParameters.getParameter("status"));
+    BitSet statuses = parseStatus(status == null ? "2xx,3xx" : status);
+    String contains = Strings.nullIfEmpty(monitoringParameters.getParameter("contains"));
+    List<String> headerValues = monitoringParameters.getParameterValues("header");
+    List<HeaderMatcher> headers;
+    if (headerValues == null || headerValues.isEmpty()) {
+      headers = Collections.emptyList();
+    } else {
+      headers = new ArrayList<>(headerValues.size());
+      for (String header : headerValues) {
+        int colonPos = header.indexOf(':');
+        String name = (colonPos == -1 ? header : header.substring(0, colonPos)).trim();
+        if (name.isEmpty() || !isToken(name)) {
+          throw new IllegalArgumentException("monitoringParameters contains invalid header: " + header);
+        }
+        headers.add(new HeaderMatcher(name, colonPos == -1 ? "" : header.substring(colonPos + 1).trim()));
+      }
+      headers = Collections.unmodifiableList(headers);
+    }
+    // Keep-alive unless explicitely disabled with keepAlive=false
+    boolean keepAlive = !"false".equalsIgnoreCase(monitoringParameters.getParameter("keepAlive"));
+    return new HttpConfig(method, path, host, statuses, contains, headers, keepAlive);
+  }
+
+  private final String method;
+  private final String path;
+  private final String host;
+  private final BitSet statuses;
+  private final String contains;
+  private final byte[] containsBytes;
+  private final List<HeaderMatcher> headers;
+  private final boolean keepAlive;
+
+  private HttpConfig(String method, String path, String host, BitSet statuses, String contains, List<HeaderMatcher> headers, boolean keepAlive) {
+    this.method = method;
+    this.path = path;
+    this.host = host;
+    this.statuses = statuses;
+    this.contains = contains;
+    this.containsBytes = contains == null ? null : contains.getBytes(StandardCharsets.UTF_8);
+    this.headers = headers;
+    this.keepAlive = keepAlive;
+  }
+
+  /**
+   * Gets the request method.
+   */
+  public String getMethod() {
+    return method;
+  }
+
+  /**
+   * Gets the request path.
+   */
+  public String getPath() {
+    return path;
+  }
+
+  /**
+   * Gets the virtual host, or {@code null} to use the IP address.
+   */
+  public String getHost() {
+    return host;
+  }
+
+  /**
+   * Is the given status code expected?
+   */
+  public boolean isExpectedStatus(int status) {
+    return status >= 0 && statuses.get(status);
+  }
+
+  /**
+   * Gets the text the body must contain, or {@code null} when the body is not checked.
+   */
+  public String getContains() {
+    return contains;
+  }
+
+  /**
+   * Gets {@link #getContains()} encoded in UTF-8, not copied for performance.
+   */
+  byte[] getContainsBytes() {
+    return containsBytes;
+  }
+
+  /**
+   * Gets the required response headers.
+   */
+  @SuppressWarnings("ReturnOfCollectionOrArrayField") // Returning unmodifiable
+  public List<HeaderMatcher> getHeaders() {
+    return headers;
+  }
+
+  /**
+   * Are connections kept alive for reuse?
+   */
+  public boolean isKeepAlive() {
+    return keepAlive;
+  }
+}
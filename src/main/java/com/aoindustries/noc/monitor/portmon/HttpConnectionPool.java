@@ -0,0 +1,258 @@
+/*
+ * noc-monitor-portmon - Port monitoring implementations.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of noc-monitor-portmon.
+ *
+ * noc-monitor-portmon is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * noc-monitor-portmon is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with noc-monitor-portmon.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.noc.monitor.portmon;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps a small number of idle keep-alive connections per address, TLS, and virtual host, so that
+ * repeated {@link HttpPortMonitor} checks of the same site avoid the connect and TLS handshake of a
+ * new connection on every check.
+ *
+ * <p>Connections are kept idle no longer than the <code>timeout</code> of any <code>Keep-Alive</code>
+ * response header, less a second, or {@link #MAX_IDLE_TIME} when not given.  A reused connection
+ * closed by the server may still be taken, in which case the monitor retries on a new connection.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+final class HttpConnectionPool {
+
+  private static final Logger logger = Logger.getLogger(HttpConnectionPool.class.getName());
+
+  /**
+   * The maximum number of idle connections kept per pool.
+   */
+  static final int MAX_IDLE = 4;
+
+  /**
+   * The maximum time a connection is kept idle when the server does not give a keep-alive timeout.
+   */
+  static final long MAX_IDLE_TIME = TimeUnit.SECONDS.toNanos(15);
+
+  private static final long EVICTION_INTERVAL = TimeUnit.SECONDS.toNanos(5);
+
+  private static final class Key {
+
+    private final InetSocketAddress address;
+    private final boolean ssl;
+    private final String host;
+
+    private Key(InetSocketAddress address, boolean ssl, String host) {
+      this.address = address;
+      this.ssl = ssl;
+      this.host = host;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return
+          ssl == other.ssl
+              && address.equals(other.address)
+              && Objects.equals(host, other.host);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(address, ssl, host);
+    }
+  }
+
+  /**
+   * A connection along with its line reader and writer, and when it expires once idle.
+   */
+  static final class Entry {
+
+    private final Socket socket;
+    private final CountingSocket counting;
+    private final AsciiLineIO io;
+    private long expires;
+
+    /**
+     * Tracks a newly established connection.
+     */
+    Entry(Socket socket, CountingSocket counting, AsciiLineIO io) {
+      this.socket = socket;
+      this.counting = counting;
+      this.io = io;
+    }
+
+    Socket getSocket() {
+      return socket;
+    }
+
+    /**
+     * Gets the underlying socket, counting the bytes over the life of the connection.
+     */
+    CountingSocket getCounting() {
+      return counting;
+    }
+
+    AsciiLineIO getIO() {
+      return io;
+    }
+
+    void close() {
+      try {
+        socket.close();
+      } catch (IOException err) {
+        logger.log(Level.WARNING, null, err);
+      }
+    }
+  }
+
+  private static final ConcurrentMap<Key, HttpConnectionPool> pools = new ConcurrentHashMap<>();
+
+  static {
+    ScheduledThreadPoolExecutor evictor = new ScheduledThreadPoolExecutor(1, r -> {
+      Thread thread = new Thread(r, HttpConnectionPool.class.getName());
+      thread.setDaemon(true);
+      return thread;
+    });
+    evictor.scheduleWithFixedDelay(
+        () -> {
+          try {
+            for (HttpConnectionPool pool : pools.values()) {
+              pool.evict(false);
+            }
+          } catch (RuntimeException e) {
+            logger.log(Level.SEVERE, null, e);
+          }
+        },
+        EVICTION_INTERVAL,
+        EVICTION_INTERVAL,
+        TimeUnit.NANOSECONDS
+    );
+  }
+
+  /**
+   * Gets the pool for the given address, TLS, and virtual host, creating it when first needed.
+   */
+  static HttpConnectionPool getInstance(InetSocketAddress address, boolean ssl, String host) {
+    return pools.computeIfAbsent(new Key(address, ssl, host), key -> new HttpConnectionPool());
+  }
+
+  /**
+   * Closes all idle connections in all pools.
+   */
+  static void closeAll() {
+    for (HttpConnectionPool pool : pools.values()) {
+      pool.evict(true);
+    }
+  }
+
+  /**
+   * Idle connections, most recently released first.
+   */
+  private final Deque<Entry> idle = new ArrayDeque<>();
+
+  private HttpConnectionPool() {
+    // Created by getInstance
+  }
+
+  /**
+   * Takes an idle connection that has not expired.
+   *
+   * @return  the connection or {@code null} when none available
+   */
+  Entry take() {
+    long now = System.nanoTime();
+    while (true) {
+      Entry entry;
+      synchronized (idle) {
+        entry = idle.pollFirst();
+      }
+      if (entry == null) {
+        return null;
+      }
+      if (now - entry.expires < 0 && !entry.socket.isClosed()) {
+        return entry;
+      }
+      entry.close();
+    }
+  }
+
+  /**
+   * Returns a connection after a complete response.  The connection is closed instead when it has
+   * already been closed, such as by {@link HttpPortMonitor#cancel()}, or when the pool is full.
+   *
+   * @param  keepAliveTimeout  the seconds the server keeps the connection idle, or {@code -1} when not given
+   */
+  void release(Entry entry, int keepAliveTimeout) {
+    if (!entry.socket.isClosed()) {
+      long idleTime = keepAliveTimeout == -1 ? MAX_IDLE_TIME : TimeUnit.SECONDS.toNanos(keepAliveTimeout - 1L);
+      if (idleTime > 0) {
+        synchronized (idle) {
+          if (idle.size() < MAX_IDLE) {
+            entry.expires = System.nanoTime() + Math.min(idleTime, MAX_IDLE_TIME);
+            idle.addFirst(entry);
+            return;
+          }
+        }
+      }
+    }
+    entry.close();
+  }
+
+  /**
+   * Closes idle connections.
+   *
+   * @param  all  close all idle connections, otherwise only those expired
+   */
+  private void evict(boolean all) {
+    List<Entry> evicted = new ArrayList<>();
+    long now = System.nanoTime();
+    synchronized (idle) {
+      Iterator<Entry> iter = idle.iterator();
+      while (iter.hasNext()) {
+        Entry entry = iter.next();
+        if (all || now - entry.expires >= 0) {
+          iter.remove();
+          evicted.add(entry);
+        }
+      }
+    }
+    // Close outside the lock, since closing may block on the network
+    for (Entry entry : evicted) {
+      entry.close();
+    }
+  }
+}
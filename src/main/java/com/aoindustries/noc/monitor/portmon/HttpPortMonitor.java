@@ -0,0 +1,520 @@
+/*
+ * noc-monitor-portmon - Port monitoring implementations.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of noc-monitor-portmon.
+ *
+ * noc-monitor-portmon is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * noc-monitor-portmon is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with noc-monitor-portmon.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.noc.monitor.portmon;
+
+import com.aoapps.hodgepodge.io.AOPool;
+import com.aoapps.net.InetAddress;
+import com.aoapps.net.Port;
+import com.aoapps.net.Protocol;
+import com.aoapps.net.URIParameters;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.net.ssl.SNIHostName;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+
+/**
+ * Monitors HTTP and HTTPS by sending a request of a {@link HttpConfig} and checking the status, headers,
+ * and body of the response.
+ *
+ * <p>Connections are kept alive in a {@link HttpConnectionPool} shared by all monitors, so repeated checks
+ * of the same site reuse an open connection instead of connecting and performing the TLS handshake each
+ * time.  When a reused connection has been closed by the server, the request is retried once on a new
+ * connection, which is safe since only idempotent methods are allowed.  Idle connections are closed
+ * once expired, or immediately by {@link #closePooledConnections()}.</p>
+ *
+ * <p>The HTTP and HTTPS application protocols only use this monitor when
+ * {@linkplain HttpConfig#isRequested(com.aoapps.net.URIParameters) requested by the monitoring parameters}.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+public class HttpPortMonitor extends PortMonitor {
+
+  private static final Logger logger = Logger.getLogger(HttpPortMonitor.class.getName());
+
+  /**
+   * The maximum number of bytes of the body kept for {@link HttpConfig#getContains()}.
+   */
+  public static final int MAX_BODY = 64 * 1024;
+
+  /**
+   * The maximum number of bytes of the body read.  When longer, the connection is closed
+   * instead of read to the end for reuse.
+   */
+  public static final int MAX_DRAIN = 1024 * 1024;
+
+  private static final String USER_AGENT = "noc-monitor-portmon";
+
+  private final InetSocketAddress socketAddress;
+  private final boolean ssl;
+  private final HttpConfig config;
+  private final Timeouts timeouts;
+
+  /**
+   * The socket while used by the check in progress, closed by {@link #cancel()}.
+   * Cleared before the connection is released to the pool.
+   */
+  private volatile Socket socket;
+  private volatile TlsHandshake handshake;
+
+  /**
+   * Creates a new HTTP monitor.
+   */
+  public HttpPortMonitor(InetAddress ipAddress, Port port, boolean ssl, HttpConfig config, Timeouts timeouts) {
+    super(ipAddress, port);
+    if (port.getProtocol() != Protocol.TCP) {
+      throw new IllegalArgumentException("port not TCP: " + port);
+    }
+    this.socketAddress = new InetSocketAddress(toInetAddress(ipAddress), port.getPort());
+    this.ssl = ssl;
+    this.config = config;
+    this.timeouts = timeouts;
+  }
+
+  /**
+   * Creates a new HTTP monitor, with the request and timeouts from the monitoring parameters.
+   */
+  public HttpPortMonitor(InetAddress ipAddress, Port port, boolean ssl, URIParameters monitoringParameters) {
+    this(ipAddress, port, ssl, HttpConfig.valueOf(monitoringParameters), Timeouts.valueOf(monitoringParameters));
+  }
+
+  @Override
+  public void cancel() {
+    super.cancel();
+    Socket mySocket = socket;
+    if (mySocket != null) {
+      try {
+        mySocket.close();
+      } catch (IOException err) {
+        logger.log(Level.WARNING, null, err);
+      }
+    }
+  }
+
+  /**
+   * Closes all idle connections kept alive by any monitor.
+   */
+  public static void closePooledConnections() {
+    HttpConnectionPool.closeAll();
+  }
+
+  /**
+   * Gets the TLS handshake of the most recent check, or {@code null} when no handshake
+   * was performed, including when a kept-alive connection was reused.
+   */
+  public TlsHandshake getTlsHandshake() {
+    return handshake;
+  }
+
+  /**
+   * Gets the value of the <code>Host</code> header.
+   */
+  private String getHost() {
+    String host = config.getHost();
+    if (host != null) {
+      return host;
+    }
+    int defaultPort = ssl ? 443 : 80;
+    String address = ipAddress.toBracketedString();
+    return port.getPort() == defaultPort ? address : (address + ':' + port.getPort());
+  }
+
+  private HttpConnectionPool.Entry connect(TimeoutBudget budget) throws IOException {
+    boolean successful = false;
+    CountingSocket counting = new CountingSocket();
+    Socket s = counting;
+    // Allow cancel() to abort the connect and handshake
+    socket = s;
+    try {
+      if (canceled) {
+        throw new IOException("Canceled");
+      }
+      s.setKeepAlive(true);
+      s.setSoLinger(true, AOPool.DEFAULT_SOCKET_SO_LINGER);
+      s.connect(socketAddress, budget.begin(CheckPhase.CONNECT));
+      if (ssl) {
+        SSLSocket sslSocket = SslSessions.createSocket(s, ipAddress, port.getPort(), true);
+        String host = config.getHost();
+        if (host != null) {
+          SSLParameters params = sslSocket.getSSLParameters();
+          params.setServerNames(Collections.singletonList(new SNIHostName(host)));
+          sslSocket.setSSLParameters(params);
+        }
+        s = sslSocket;
+        socket = s;
+        s.setSoTimeout(budget.begin(CheckPhase.TLS_HANDSHAKE));
+        handshake = TlsHandshake.perform(sslSocket);
+      }
+      HttpConnectionPool.Entry entry = new HttpConnectionPool.Entry(s, counting, new AsciiLineIO(s.getInputStream(), s.getOutputStream()));
+      successful = true;
+      return entry;
+    } finally {
+      if (!successful) {
+        s.close();
+      }
+    }
+  }
+
+  /**
+   * The parts of a response needed after the body is read.
+   */
+  private static final class Response {
+    private String statusLine;
+    private int status;
+    private final List<String> headers = new ArrayList<>();
+    private boolean reusable;
+    private int keepAliveTimeout = -1;
+    private byte[] body;
+    private int bodyLength;
+  }
+
+  /**
+   * Gets the value of the first header of the given name, or {@code null} when not present.
+   */
+  private static String getHeader(List<String> headers, String name) {
+    for (String header : headers) {
+      if (header.length() > name.length() && header.charAt(name.length()) == ':' && header.regionMatches(true, 0, name, 0, name.length())) {
+        return header.substring(name.length() + 1).trim();
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Reads body bytes, keeping up to {@link #MAX_BODY} when the body is checked.
+   *
+   * @return  {@code false} when end of file reached
+   */
+  private static boolean readBody(AsciiLineIO io, Response response, long length, byte[] skip) throws IOException {
+    while (length > 0) {
+      int count;
+      if (response.body != null && response.bodyLength < MAX_BODY) {
+        count = io.read(response.body, response.bodyLength, (int) Math.min(length, MAX_BODY - response.bodyLength));
+        if (count > 0) {
+          response.bodyLength += count;
+        }
+      } else {
+        count = io.read(skip, 0, (int) Math.min(length, skip.length));
+      }
+      if (count == -1) {
+        return false;
+      }
+      length -= count;
+    }
+    return true;
+  }
+
+  /**
+   * Reads a response, including the body, with the status line already read as the current line.
+   */
+  private Response readResponse(AsciiLineIO io) throws IOException {
+    Response response = new Response();
+    String statusLine = io.getLine();
+    if ((!io.startsWith("HTTP/1.1 ") && !io.startsWith("HTTP/1.0 ")) || io.length() < 12) {
+      throw new IOException("Unexpected status line: " + statusLine);
+    }
+    response.statusLine = statusLine;
+    try {
+      response.status = Integer.parseInt(statusLine.substring(9, 12));
+    } catch (NumberFormatException e) {
+      throw new IOException("Unexpected status line: " + statusLine, e);
+    }
+    boolean http11 = io.startsWith("HTTP/1.1 ");
+    // Headers
+    while (true) {
+      if (!io.readLine()) {
+        throw new EOFException("End of file reading headers");
+      }
+      if (io.length() == 0) {
+        break;
+      }
+      response.headers.add(io.getLine());
+    }
+    // Keep-alive
+    String connection = getHeader(response.headers, "Connection");
+    connection = connection == null ? "" : connection.toLowerCase(Locale.ROOT);
+    response.reusable = config.isKeepAlive() && (http11 ? !connection.contains("close") : connection.contains("keep-alive"));
+    String keepAlive = getHeader(response.headers, "Keep-Alive");
+    if (keepAlive != null) {
+      int timeoutPos = keepAlive.toLowerCase(Locale.ROOT).indexOf("timeout=");
+      if (timeoutPos != -1) {
+        int start = timeoutPos + "timeout=".length();
+        int end = start;
+        while (end < keepAlive.length() && Character.isDigit(keepAlive.charAt(end))) {
+          end++;
+        }
+        try {
+          response.keepAliveTimeout = Integer.parseInt(keepAlive.substring(start, end));
+        } catch (NumberFormatException e) {
+          // Ignored, use the default idle time
+        }
+      }
+    }
+    // Body, see https://datatracker.ietf.org/doc/html/rfc9112#section-6.3
+    if (config.getContainsBytes() != null) {
+      response.body = new byte[MAX_BODY];
+    }
+    int status = response.status;
+    if ("HEAD".equals(config.getMethod()) || (status >= 100 && status < 200) || status == 204 || status == 304) {
+      return response;
+    }
+    byte[] skip = new byte[4096];
+    String transferEncoding = getHeader(response.headers, "Transfer-Encoding");
+    String contentLength = getHeader(response.headers, "Content-Length");
+    if (transferEncoding != null && transferEncoding.toLowerCase(Locale.ROOT).endsWith("chunked")) {
+      long total = 0;
+      while (true) {
+        if (!io.readLine()) {
+          throw new EOFException("End of file reading chunk size");
+        }
+        String sizeLine = io.getLine();
+        int semicolonPos = sizeLine.indexOf(';');
+        long size;
+        try {
+          size = Long.parseLong((semicolonPos == -1 ? sizeLine : sizeLine.substring(0, semicolonPos)).trim(), 16);
+        } catch (NumberFormatException e) {
+          throw new IOException("Invalid chunk size: " + sizeLine, e);
+        }
+        if (size < 0) {
+          throw new IOException("Invalid chunk size: " + sizeLine);
+        }
+        if (size == 0) {
+          // Trailers
+          do {
+            if (!io.readLine()) {
+              throw new EOFException("End of file reading trailers");
+            }
+          } while (io.length() != 0);
+          return response;
+        }
+        total += size;
+        if (total > MAX_DRAIN) {
+          response.reusable = false;
+          return response;
+        }
+        if (!readBody(io, response, size, skip)) {
+          throw new EOFException("End of file reading chunk");
+        }
+        if (!io.readLine() || io.length() != 0) {
+          throw new IOException("Missing end of chunk");
+        }
+      }
+    } else if (contentLength != null) {
+      long length;
+      try {
+        length = Long.parseLong(contentLength);
+      } catch (NumberFormatException e) {
+        throw new IOException("Invalid Content-Length: " + contentLength, e);
+      }
+      if (length < 0) {
+        throw new IOException("Invalid Content-Length: " + contentLength);
+      }
+      if (length > MAX_DRAIN) {
+        // Only read what is kept
+        length = response.body == null ? 0 : MAX_BODY;
+        response.reusable = false;
+      }
+      if (!readBody(io, response, length, skip)) {
+        throw new EOFException("End of file reading body");
+      }
+    } else {
+      // Read until closed
+      response.reusable = false;
+      readBody(io, response, MAX_DRAIN, skip);
+    }
+    return response;
+  }
+
+  /**
+   * Does the body contain the given bytes?
+   */
+  private static boolean contains(byte[] body, int length, byte[] bytes) {
+    outer:
+    for (int i = 0, last = length - bytes.length; i <= last; i++) {
+      for (int j = 0; j < bytes.length; j++) {
+        if (body[i + j] != bytes[j]) {
+          continue outer;
+        }
+      }
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Checks the response against the configuration.
+   *
+   * @return  the result
+   */
+  private String checkResponse(Response response, boolean reused) throws IOException {
+    if (!config.isExpectedStatus(response.status)) {
+      throw new IOException("Unexpected status: " + response.statusLine);
+    }
+    for (HttpConfig.HeaderMatcher matcher : config.getHeaders()) {
+      String value = getHeader(response.headers, matcher.getName());
+      if (value == null) {
+        throw new IOException("Missing header: " + matcher.getName());
+      }
+      if (!value.contains(matcher.getSubstring())) {
+        throw new IOException("Unexpected header: " + matcher.getName() + ": " + value);
+      }
+    }
+    byte[] containsBytes = config.getContainsBytes();
+    if (containsBytes != null && !contains(response.body, response.bodyLength, containsBytes)) {
+      throw new IOException("Body does not contain: " + config.getContains());
+    }
+    StringBuilder result = new StringBuilder(response.statusLine);
+    TlsHandshake myHandshake = handshake;
+    if (myHandshake != null) {
+      result.append(" (").append(myHandshake).append(')');
+    } else if (reused) {
+      result.append(" (reused connection)");
+    }
+    return result.toString();
+  }
+
+  @Override
+  public String checkPort() throws Exception {
+    return checkPortResult().getMessage();
+  }
+
+  /**
+   * Checks the port, counting only the bytes of this check on any reused connection.
+   */
+  @Override
+  public PortCheckResult checkPortResult() throws Exception {
+    long startNanos = checkStarted();
+    try {
+      PortCheckResult result = check();
+      checkCompleted(startNanos, null);
+      return result;
+    } catch (Throwable t) {
+      checkCompleted(startNanos, t);
+      throw t;
+    }
+  }
+
+  private PortCheckResult check() throws Exception {
+    TimeoutBudget budget = new TimeoutBudget(timeouts);
+    handshake = null;
+    HttpConnectionPool pool = HttpConnectionPool.getInstance(socketAddress, ssl, config.getHost());
+    HttpConnectionPool.Entry entry = config.isKeepAlive() ? pool.take() : null;
+    long bytesSent = 0;
+    long bytesReceived = 0;
+    try {
+      while (true) {
+        boolean reused = entry != null;
+        // Counts already on a reused connection belong to earlier checks
+        CountingSocket counting = reused ? entry.getCounting() : null;
+        long sentBefore = reused ? counting.getBytesSent() : 0;
+        long receivedBefore = reused ? counting.getBytesReceived() : 0;
+        if (reused) {
+          socket = entry.getSocket();
+          if (canceled) {
+            throw new IOException("Canceled");
+          }
+        } else {
+          entry = connect(budget);
+          counting = entry.getCounting();
+        }
+        Socket s = entry.getSocket();
+        s.setSoTimeout(budget.begin(CheckPhase.COMMAND));
+        AsciiLineIO io = entry.getIO();
+        io.write(config.getMethod());
+        io.write(' ');
+        io.write(config.getPath());
+        io.writeLine(" HTTP/1.1");
+        io.write("Host: ");
+        io.writeLine(getHost());
+        io.writeLine("User-Agent: " + USER_AGENT);
+        io.writeLine("Accept: */*");
+        if (!config.isKeepAlive()) {
+          io.writeLine("Connection: close");
+        }
+        io.writeLine("");
+        boolean statusRead;
+        try {
+          io.flush();
+          statusRead = io.readLine();
+        } catch (IOException e) {
+          if (reused && !canceled && !(e instanceof SocketTimeoutException)) {
+            // Reset by the server while idle, retry on a new connection
+            bytesSent += counting.getBytesSent() - sentBefore;
+            bytesReceived += counting.getBytesReceived() - receivedBefore;
+            entry.close();
+            entry = null;
+            continue;
+          }
+          throw e;
+        }
+        if (!statusRead) {
+          if (reused && !canceled) {
+            // Closed by the server while idle, retry on a new connection
+            bytesSent += counting.getBytesSent() - sentBefore;
+            bytesReceived += counting.getBytesReceived() - receivedBefore;
+            entry.close();
+            entry = null;
+            continue;
+          }
+          throw new EOFException("End of file reading status line");
+        }
+        Response response = readResponse(io);
+        String result = checkResponse(response, reused);
+        HttpConnectionPool.Entry released = entry;
+        entry = null;
+        // Counted before release, after which another check may use the connection
+        bytesSent += counting.getBytesSent() - sentBefore;
+        bytesReceived += counting.getBytesReceived() - receivedBefore;
+        budget.enter(CheckPhase.CLOSE);
+        // Hidden from cancel() before release, when another check may take the connection.  Since cancel()
+        // sets canceled before reading socket, a cancel() racing this is seen below and the connection closed.
+        socket = null;
+        if (response.reusable && !canceled) {
+          pool.release(released, response.keepAliveTimeout);
+        } else {
+          released.close();
+        }
+        return new PortCheckResult(result, budget, bytesSent, bytesReceived, handshake);
+      }
+    } catch (PhaseTimeoutException e) {
+      throw e;
+    } catch (SocketTimeoutException e) {
+      throw budget.timedOut(e);
+    } finally {
+      socket = null;
+      if (entry != null) {
+        entry.close();
+      }
+    }
+  }
+}
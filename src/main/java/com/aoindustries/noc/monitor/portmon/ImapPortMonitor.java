@@ -1,6 +1,6 @@
 /*
  * noc-monitor-portmon - Port monitoring implementations.
- * Copyright (C) 2001-2013, 2016, 2017, 2018, 2019, 2020, 2021, 2022  AO Industries, Inc.
+ * Copyright (C) 2001-2013, 2016, 2017, 2018, 2019, 2020, 2021, 2022, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -26,20 +26,18 @@ package com.aoindustries.noc.monitor.portmon;
 import com.aoapps.net.InetAddress;
 import com.aoapps.net.Port;
 import com.aoapps.net.URIParameters;
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.Reader;
-import java.io.Writer;
 import java.net.Socket;
-import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import javax.net.ssl.SSLSocketFactory;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import javax.net.ssl.SSLSocket;
 
 /**
  * Monitors with IMAP-specific protocol support.
@@ -48,22 +46,22 @@ import javax.net.ssl.SSLSocketFactory;
  */
 public class ImapPortMonitor extends DefaultTcpPortMonitor {
 
-  private final URIParameters monitoringParameters;
+  private final LoginConfig config;
 
   /**
    * Creates a new IMAP monitor.
    */
   public ImapPortMonitor(InetAddress ipAddress, Port port, boolean ssl, URIParameters monitoringParameters) {
-    super(ipAddress, port, ssl);
-    this.monitoringParameters = monitoringParameters;
+    super(ipAddress, port, ssl, monitoringParameters);
+    this.config = LoginConfig.valueOf(monitoringParameters);
   }
 
   /**
    * Creates a new IMAP monitor.
    */
   public ImapPortMonitor(InetAddress ipAddress, Port port, URIParameters monitoringParameters) {
-    super(ipAddress, port, false);
-    this.monitoringParameters = monitoringParameters;
+    super(ipAddress, port, false, monitoringParameters);
+    this.config = LoginConfig.valueOf(monitoringParameters);
   }
 
   /**
@@ -81,121 +79,167 @@ public class ImapPortMonitor extends DefaultTcpPortMonitor {
    */
   private static final String TAG_LOGOUT = "AC";
 
-  private static void logout(Reader in, Writer out, StringBuilder buffer) throws IOException {
-    out.write(TAG_LOGOUT + " LOGOUT" + CRLF);
-    out.flush();
-    String line = readLine(in, buffer);
-    if (line == null) {
+  private static void writeLogout(AsciiLineIO io) {
+    io.writeLine(TAG_LOGOUT + " LOGOUT");
+  }
+
+  private static void readLogout(AsciiLineIO io) throws IOException {
+    if (!io.readLine()) {
       throw new EOFException("End of file reading logout response line 1");
     }
-    if (!line.startsWith("* BYE") && !line.startsWith(TAG_LOGOUT + " OK LOGOUT")) {
-      throw new IOException("Unexpected line reading logout response line 1: " + line);
+    if (!io.startsWith("* BYE") && !io.startsWith(TAG_LOGOUT + " OK LOGOUT")) {
+      throw new IOException("Unexpected line reading logout response line 1: " + io.getLine());
     }
-    // if (line == null) {
+    // if (!io.readLine()) {
     //   throw new EOFException("End of file reading logout response line 2");
     // }
-    // if (!line.startsWith("* BYE") && !line.startsWith(TAG_LOGOUT + " OK LOGOUT")) {
-    //   throw new IOException("Unexpected line reading logout response line 2: "+line);
+    // if (!io.startsWith("* BYE") && !io.startsWith(TAG_LOGOUT + " OK LOGOUT")) {
+    //   throw new IOException("Unexpected line reading logout response line 2: " + io.getLine());
     // }
   }
 
+  private static void logout(AsciiLineIO io) throws IOException {
+    writeLogout(io);
+    io.flush();
+    readLogout(io);
+  }
+
+  /**
+   * Parses the capabilities from the text between the brackets of a response code.
+   */
+  private static Set<String> parseCapabilities(String capability) {
+    Set<String> capabilities = new HashSet<>();
+    for (String token : capability.trim().split(" +")) {
+      capabilities.add(token.toUpperCase(Locale.ROOT));
+    }
+    return capabilities;
+  }
+
+  /**
+   * Can the value be sent as a quoted string?
+   *
+   * @see  <a href="https://datatracker.ietf.org/doc/html/rfc3501#section-4.3">RFC 3501 - 4.3. String</a>
+   */
+  private static boolean isQuotable(String value) {
+    for (int i = 0, len = value.length(); i < len; i++) {
+      char ch = value.charAt(i);
+      if (ch == 0 || ch == '\r' || ch == '\n' || ch > 0x7F) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Writes a string argument, quoted when possible, or as a non-synchronizing literal
+   * when <code>LITERAL+</code> is supported.
+   *
+   * @see  <a href="https://datatracker.ietf.org/doc/html/rfc7888">RFC 7888 - IMAP4 Non-synchronizing Literals</a>
+   */
+  private static void writeString(AsciiLineIO io, String value, boolean literalPlus, String name) {
+    if (isQuotable(value)) {
+      io.write('"');
+      for (int i = 0, len = value.length(); i < len; i++) {
+        char ch = value.charAt(i);
+        if (ch == '"' || ch == '\\') {
+          io.write('\\');
+        }
+        io.write(ch);
+      }
+      io.write('"');
+    } else if (literalPlus) {
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      io.writeLine("{" + bytes.length + "+}");
+      io.write(bytes);
+    } else {
+      throw new IllegalArgumentException("monitoringParameters " + name + " requires a literal, but LITERAL+ not supported");
+    }
+  }
+
   @Override
   public String checkPort(Socket socket, InputStream socketIn, OutputStream socketOut) throws Exception {
-    Socket sslSocket = null;
+    SSLSocket sslSocket = null;
     try {
-      // Get the configuration
-      String username = monitoringParameters.getParameter("username");
-      if (username == null || username.length() == 0) {
-        throw new IllegalArgumentException("monitoringParameters does not include the username");
-      }
-      String password = monitoringParameters.getParameter("password");
-      if (password == null || password.length() == 0) {
-        throw new IllegalArgumentException("monitoringParameters does not include the password");
-      }
-      boolean starttls =
-          // Will not try STARTTLS when is SSL
-          !ssl
-              // Use SSL unless explicitely disabled with starttls=false
-              && !"false".equalsIgnoreCase(monitoringParameters.getParameter("starttls"));
-
-      final StringBuilder buffer = new StringBuilder();
-      Charset charset = StandardCharsets.US_ASCII;
-      Writer out = new OutputStreamWriter(socketOut, charset);
-      try {
-        Reader in = new InputStreamReader(socketIn, charset);
-        try {
-          // Buffer now when not using STARTTLS
-          if (!starttls) {
-            out = new BufferedWriter(out);
-            in = new BufferedReader(in);
-          }
-          // Capabilities
-          String line = readLine(in, buffer);
-          if (line == null) {
-            throw new EOFException("End of file reading capabilities");
-          }
-          int bracketPos = line.indexOf(']');
-          final String cap1 = "* OK [";
-          if (!line.startsWith(cap1) || bracketPos == -1) {
-            throw new IOException("Unexpected capabilities line: " + line);
-          }
-          if (starttls) {
-            // See https://datatracker.ietf.org/doc/html/rfc2595
-            final String capability = line.substring(
-                // Include first space of capabilities always
-                cap1.length() - 1,
-                bracketPos
-            );
-            if (
-                !capability.startsWith("STARTTLS ")
-                    && !capability.endsWith(" STARTTLS")
-                    && !capability.contains(" STARTTLS ")
-            ) {
-              // Logout
-              logout(in, out, buffer);
-              throw new IOException("Host does not support STARTTLS: " + capability);
-            }
-            // STARTTLS
-            out.write(TAG_STARTTLS + " STARTTLS" + CRLF);
-            out.flush();
-            line = readLine(in, buffer);
-            if (line == null) {
-              throw new EOFException("End of file reading STARTTLS response");
-            }
-            if (!line.startsWith(TAG_STARTTLS + " OK ")) {
-              throw new IOException("Unexpected line reading STARTTLS response: " + line);
-            }
-            // Wrap in SSL
-            SSLSocketFactory sslFact = (SSLSocketFactory) SSLSocketFactory.getDefault();
-            sslSocket = sslFact.createSocket(socket, ipAddress.toString(), port.getPort(), false);
-            out = new BufferedWriter(new OutputStreamWriter(sslSocket.getOutputStream(), charset));
-            in = new BufferedReader(new InputStreamReader(sslSocket.getInputStream(), charset));
-          }
-          // Login
-          out.write(TAG_LOGIN + " LOGIN ");
-          out.write(username);
-          out.write(" \"");
-          out.write(password);
-          out.write("\"" + CRLF);
-          out.flush();
-          line = readLine(in, buffer);
-          if (line == null) {
-            throw new EOFException("End of file reading login response");
-          }
-          bracketPos = line.indexOf(']');
-          if (!line.startsWith(TAG_LOGIN + " OK [") || bracketPos == -1) {
-            throw new IOException("Unexpected line reading login response: " + line);
+      final String username = config.getUsername();
+      final String password = config.getPassword();
+      // Will not try STARTTLS when is SSL
+      final boolean starttls = !ssl && config.isStarttls();
+
+      try (AsciiLineIO io = new AsciiLineIO(socketIn, socketOut)) {
+        // Capabilities
+        if (!io.readLine()) {
+          throw new EOFException("End of file reading capabilities");
+        }
+        int bracketPos = io.indexOf(']');
+        final String cap1 = "* OK [";
+        if (!io.startsWith(cap1) || bracketPos == -1) {
+          throw new IOException("Unexpected capabilities line: " + io.getLine());
+        }
+        final String capability = io.substring(
+            // Include first space of capabilities always
+            cap1.length() - 1,
+            bracketPos
+        );
+        Set<String> capabilities = parseCapabilities(capability);
+        beginPhase(socket, CheckPhase.COMMAND);
+        if (starttls) {
+          // See https://datatracker.ietf.org/doc/html/rfc2595
+          if (!capabilities.contains("STARTTLS")) {
+            // Logout
+            logout(io);
+            throw new IOException("Host does not support STARTTLS: " + capability);
           }
-          String result = line.substring(bracketPos + 1).trim();
-          // Logout
-          logout(in, out, buffer);
-          // Return OK result
-          return result;
-        } finally {
-          in.close();
+          // STARTTLS
+          io.writeLine(TAG_STARTTLS + " STARTTLS");
+          io.flush();
+          io.expect(TAG_STARTTLS + " OK ", "STARTTLS response");
+          // Wrap in SSL
+          sslSocket = startTls(socket, false);
+          io.upgrade(sslSocket);
+          // Capabilities from before TLS must be discarded, see https://datatracker.ietf.org/doc/html/rfc3501#section-6.2.1
+          capabilities = Collections.emptySet();
+        }
+        // Login
+        beginPhase(socket, CheckPhase.AUTH);
+        // See https://datatracker.ietf.org/doc/html/rfc4959
+        final boolean saslIr = capabilities.contains("SASL-IR") && capabilities.contains("AUTH=PLAIN");
+        final boolean literalPlus = capabilities.contains("LITERAL+");
+        // The LOGOUT is sent along with the login when the server has indicated support for pipelined logins
+        final boolean pipelining = saslIr || literalPlus;
+        if (saslIr) {
+          // See https://datatracker.ietf.org/doc/html/rfc4616
+          String authMessage = "\0" + username + "\0" + password;
+          io.write(TAG_LOGIN + " AUTHENTICATE PLAIN ");
+          io.writeLine(Base64.getEncoder().encodeToString(authMessage.getBytes(StandardCharsets.UTF_8)));
+        } else {
+          io.write(TAG_LOGIN + " LOGIN ");
+          writeString(io, username, literalPlus, "username");
+          io.write(" ");
+          writeString(io, password, literalPlus, "password");
+          io.writeLine("");
+        }
+        if (pipelining) {
+          writeLogout(io);
+        }
+        io.flush();
+        // Tagged responses are read in the order sent
+        if (!io.readLine()) {
+          throw new EOFException("End of file reading login response");
+        }
+        bracketPos = io.indexOf(']');
+        if (!io.startsWith(TAG_LOGIN + " OK [") || bracketPos == -1) {
+          throw new IOException("Unexpected line reading login response: " + io.getLine());
+        }
+        String result = io.substring(bracketPos + 1).trim();
+        // Logout
+        beginPhase(socket, CheckPhase.CLOSE);
+        if (pipelining) {
+          readLogout(io);
+        } else {
+          logout(io);
         }
-      } finally {
-        out.close();
+        // Return OK result
+        return result;
       }
     } finally {
       if (sslSocket != null) {
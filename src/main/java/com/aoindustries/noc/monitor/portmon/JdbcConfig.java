@@ -0,0 +1,136 @@
+/*
+ * noc-monitor-portmon - Port monitoring implementations.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of noc-monitor-portmon.
+ *
+ * noc-monitor-portmon is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * noc-monitor-portmon is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with noc-monitor-portmon.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.noc.monitor.portmon;
+
+import com.aoapps.lang.Strings;
+import com.aoapps.net.URIParameters;
+
+/**
+ * The configuration of {@link JdbcPortMonitor}, parsed and validated once from the monitoring parameters.
+ *
+ * <p>Set through monitoring parameters <code>password</code>, required, and optional <code>username</code>,
+ * <code>database</code>, <code>query</code>, <code>readOnly=false</code> to not use a read-only
+ * connection, and <code>pool=true</code> to keep logged-in connections between checks.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class JdbcConfig {
+
+  /**
+   * Gets the configuration from monitoring parameters, with the given defaults for any not provided.
+   *
+   * @throws  IllegalArgumentException  when the password is missing
+   */
+  public static JdbcConfig valueOf(
+      URIParameters monitoringParameters,
+      String defaultUsername,
+      String defaultDatabase,
+      String defaultQuery
+  ) throws IllegalArgumentException {
+    String username = Strings.nullIfEmpty(monitoringParameters.getParameter("username"));
+    if (username == null) {
+      username = defaultUsername;
+    }
+    String password = Strings.nullIfEmpty(monitoringParameters.getParameter("password"));
+    if (password == null) {
+      throw new IllegalArgumentException("monitoringParameters does not include the password parameter");
+    }
+    String database = Strings.nullIfEmpty(monitoringParameters.getParameter("database"));
+    if (database == null) {
+      database = defaultDatabase;
+    }
+    String query = Strings.nullIfEmpty(monitoringParameters.getParameter("query"));
+    if (query == null) {
+      query = defaultQuery;
+    }
+    return new JdbcConfig(
+        username,
+        password,
+        database,
+        query,
+        // Is read-only unless explicitely disabled with readOnly=false
+        !"false".equalsIgnoreCase(monitoringParameters.getParameter("readOnly")),
+        // Is not pooled unless explicitely enabled with pool=true
+        Boolean.parseBoolean(monitoringParameters.getParameter("pool"))
+    );
+  }
+
+  private final String username;
+  private final String password;
+  private final String database;
+  private final String query;
+  private final boolean readOnly;
+  private final boolean pooled;
+
+  private JdbcConfig(String username, String password, String database, String query, boolean readOnly, boolean pooled) {
+    this.username = username;
+    this.password = password;
+    this.database = database;
+    this.query = query;
+    this.readOnly = readOnly;
+    this.pooled = pooled;
+  }
+
+  /**
+   * Gets the username.
+   */
+  public String getUsername() {
+    return username;
+  }
+
+  /**
+   * Gets the password.
+   */
+  public String getPassword() {
+    return password;
+  }
+
+  /**
+   * Gets the database.
+   */
+  public String getDatabase() {
+    return database;
+  }
+
+  /**
+   * Gets the query, which must return a single row with a single column.
+   */
+  public String getQuery() {
+    return query;
+  }
+
+  /**
+   * Is the connection read-only?
+   */
+  public boolean isReadOnly() {
+    return readOnly;
+  }
+
+  /**
+   * Are logged-in connections kept between checks?
+   */
+  public boolean isPooled() {
+    return pooled;
+  }
+}
@@ -0,0 +1,271 @@
+/*
+ * noc-monitor-portmon - Port monitoring implementations.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of noc-monitor-portmon.
+ *
+ * noc-monitor-portmon is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * noc-monitor-portmon is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with noc-monitor-portmon.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.noc.monitor.portmon;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps a small number of idle, logged-in connections per JDBC URL and credentials,
+ * so that pooled {@link JdbcPortMonitor} checks avoid the connect, TLS, and
+ * authentication of a new connection on every check.
+ *
+ * <p>Connections are validated with {@link Connection#isValid(int)} before reuse.
+ * Connections idle longer than {@link #MAX_IDLE_TIME} are closed in the background,
+ * and connections older than {@link #MAX_CONNECTION_AGE} are replaced so that
+ * authentication is still verified periodically.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+final class JdbcConnectionPool {
+
+  private static final Logger logger = Logger.getLogger(JdbcConnectionPool.class.getName());
+
+  /**
+   * The maximum number of idle connections kept per pool.
+   */
+  static final int MAX_IDLE = 2;
+
+  /**
+   * The maximum time a connection is kept idle.
+   */
+  static final long MAX_IDLE_TIME = TimeUnit.MINUTES.toNanos(5);
+
+  /**
+   * The maximum time a connection is reused after it was established.
+   */
+  static final long MAX_CONNECTION_AGE = TimeUnit.MINUTES.toNanos(30);
+
+  private static final long EVICTION_INTERVAL = TimeUnit.MINUTES.toNanos(1);
+
+  private static final class Key {
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final boolean readOnly;
+
+    private Key(String url, String username, String password, boolean readOnly) {
+      this.url = url;
+      this.username = username;
+      this.password = password;
+      this.readOnly = readOnly;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return
+          readOnly == other.readOnly
+              && url.equals(other.url)
+              && username.equals(other.username)
+              && password.equals(other.password);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(url, username, password, readOnly);
+    }
+  }
+
+  /**
+   * A connection along with when it was established and last released.
+   */
+  static final class Entry {
+
+    private final Connection conn;
+    private final long created;
+    private long released;
+
+    /**
+     * Tracks a newly established connection.
+     */
+    Entry(Connection conn) {
+      this.conn = conn;
+      this.created = System.nanoTime();
+    }
+
+    Connection getConnection() {
+      return conn;
+    }
+
+    private void close() {
+      try {
+        conn.close();
+      } catch (SQLException err) {
+        logger.log(Level.WARNING, null, err);
+      }
+    }
+  }
+
+  private static final ConcurrentMap<Key, JdbcConnectionPool> pools = new ConcurrentHashMap<>();
+
+  static {
+    ScheduledThreadPoolExecutor evictor = new ScheduledThreadPoolExecutor(1, r -> {
+      Thread thread = new Thread(r, JdbcConnectionPool.class.getName());
+      thread.setDaemon(true);
+      return thread;
+    });
+    evictor.scheduleWithFixedDelay(
+        () -> {
+          try {
+            for (JdbcConnectionPool pool : pools.values()) {
+              pool.evict(false);
+            }
+          } catch (RuntimeException e) {
+            logger.log(Level.SEVERE, null, e);
+          }
+        },
+        EVICTION_INTERVAL,
+        EVICTION_INTERVAL,
+        TimeUnit.NANOSECONDS
+    );
+  }
+
+  /**
+   * Gets the pool for the given URL and credentials, creating it when first needed.
+   */
+  static JdbcConnectionPool getInstance(String url, String username, String password, boolean readOnly) {
+    return pools.computeIfAbsent(new Key(url, username, password, readOnly), key -> new JdbcConnectionPool());
+  }
+
+  /**
+   * Closes all idle connections in all pools.
+   */
+  static void closeAll() {
+    for (JdbcConnectionPool pool : pools.values()) {
+      pool.evict(true);
+    }
+  }
+
+  /**
+   * Idle connections, most recently released first.
+   */
+  private final Deque<Entry> idle = new ArrayDeque<>();
+
+  private JdbcConnectionPool() {
+    // Created by getInstance
+  }
+
+  /**
+   * Takes an idle connection that is still valid.
+   *
+   * @param  timeout  the seconds to wait for each validation, greater than zero
+   *
+   * @return  the connection or {@code null} when none available
+   */
+  Entry take(int timeout) {
+    while (true) {
+      Entry entry;
+      synchronized (idle) {
+        entry = idle.pollFirst();
+      }
+      if (entry == null) {
+        return null;
+      }
+      boolean valid;
+      if (System.nanoTime() - entry.created >= MAX_CONNECTION_AGE) {
+        valid = false;
+      } else {
+        try {
+          valid = entry.conn.isValid(timeout);
+        } catch (SQLException e) {
+          logger.log(Level.FINE, null, e);
+          valid = false;
+        }
+      }
+      if (valid) {
+        return entry;
+      }
+      entry.close();
+    }
+  }
+
+  /**
+   * Returns a connection after a successful check.  The connection is closed instead when it has
+   * already been closed, such as by {@link JdbcPortMonitor#cancel()}, or when the pool is full.
+   */
+  void release(Entry entry) {
+    boolean closed;
+    try {
+      closed = entry.conn.isClosed();
+    } catch (SQLException e) {
+      logger.log(Level.FINE, null, e);
+      closed = true;
+    }
+    if (!closed) {
+      synchronized (idle) {
+        if (idle.size() < MAX_IDLE) {
+          entry.released = System.nanoTime();
+          idle.addFirst(entry);
+          return;
+        }
+      }
+    }
+    entry.close();
+  }
+
+  /**
+   * Closes idle connections.
+   *
+   * @param  all  close all idle connections, otherwise only those idle too long or too old
+   */
+  private void evict(boolean all) {
+    List<Entry> evicted = new ArrayList<>();
+    long now = System.nanoTime();
+    synchronized (idle) {
+      Iterator<Entry> iter = idle.iterator();
+      while (iter.hasNext()) {
+        Entry entry = iter.next();
+        if (
+            all
+                || now - entry.released >= MAX_IDLE_TIME
+                || now - entry.created >= MAX_CONNECTION_AGE
+        ) {
+          iter.remove();
+          evicted.add(entry);
+        }
+      }
+    }
+    // Close outside the lock, since closing may block on the network
+    for (Entry entry : evicted) {
+      entry.close();
+    }
+  }
+}
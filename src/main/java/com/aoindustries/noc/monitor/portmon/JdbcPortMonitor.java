@@ -1,6 +1,6 @@
 /*
  * noc-monitor-portmon - Port monitoring implementations.
- * Copyright (C) 2009-2013, 2016, 2017, 2018, 2019, 2020, 2021, 2022, 2023, 2024  AO Industries, Inc.
+ * Copyright (C) 2009-2013, 2016, 2017, 2018, 2019, 2020, 2021, 2022, 2023, 2024, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -27,11 +27,13 @@ import com.aoapps.lang.util.ErrorPrinter;
 import com.aoapps.net.InetAddress;
 import com.aoapps.net.Port;
 import com.aoapps.net.URIParameters;
+import java.net.SocketTimeoutException;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
 import java.sql.Statement;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -59,80 +61,183 @@ public abstract class JdbcPortMonitor extends PortMonitor {
     }
   }
 
-  protected static final int TIMEOUT = DefaultTcpPortMonitor.TIMEOUT;
+  /**
+   * The previous single timeout for all operations.
+   *
+   * @deprecated  Please use the per-phase {@link #timeouts}.
+   */
+  @Deprecated
+  protected static final int TIMEOUT = Timeouts.DEFAULT_TOTAL;
+
+  /**
+   * Converts a timeout in milliseconds to whole seconds, rounding up, for drivers that
+   * configure timeouts in seconds.
+   */
+  protected static int toSeconds(int millis) {
+    return (millis + 999) / 1000;
+  }
+
+  /**
+   * Determines if the given exception is caused by a timeout.
+   */
+  private static boolean isTimeout(Throwable t) {
+    while (t != null) {
+      if (t instanceof SQLTimeoutException || t instanceof SocketTimeoutException) {
+        return true;
+      }
+      t = t.getCause();
+    }
+    return false;
+  }
 
-  private final URIParameters monitoringParameters;
+  /**
+   * The configuration, parsed from the monitoring parameters.
+   */
+  protected final JdbcConfig config;
 
   protected final boolean readOnly;
 
+  /**
+   * When {@code true}, logged-in connections are kept between checks.
+   *
+   * @see  #closePooledConnections()
+   */
+  protected final boolean pooled;
+
+  /**
+   * The timeouts, which subclasses must include in their JDBC URL.
+   * The connection is established in {@link CheckPhase#AUTH} and the query run in {@link CheckPhase#COMMAND}.
+   */
+  protected final Timeouts timeouts;
+
   /**
    * Creates a new JDBC monitor.
    */
   protected JdbcPortMonitor(InetAddress ipAddress, Port port, URIParameters monitoringParameters) {
     super(ipAddress, port);
-    this.monitoringParameters = monitoringParameters;
-    // Is read-only unless explicitely disabled with readOnly=false
-    readOnly = !"false".equalsIgnoreCase(monitoringParameters.getParameter("readOnly"));
+    config = JdbcConfig.valueOf(monitoringParameters, getDefaultUsername(), getDefaultDatabase(), getDefaultQuery());
+    readOnly = config.isReadOnly();
+    pooled = config.isPooled();
+    timeouts = Timeouts.valueOf(monitoringParameters);
+  }
+
+  private volatile String jdbcUrl;
+
+  /**
+   * Gets the JDBC URL, only generating it on first use.  Subclasses should call this at the
+   * end of their constructors, once all fields used by
+   * {@link #getJdbcUrl(com.aoapps.net.InetAddress, int, java.lang.String)} are set.
+   */
+  protected final String getJdbcUrl() {
+    String url = jdbcUrl;
+    if (url == null) {
+      url = getJdbcUrl(ipAddress, port.getPort(), config.getDatabase());
+      jdbcUrl = url;
+    }
+    return url;
   }
 
   private volatile Connection conn;
 
   @Override
   public final String checkPort() throws Exception {
-    // Get the configuration
-    String username = monitoringParameters.getParameter("username");
-    if (username == null || username.length() == 0) {
-      username = getDefaultUsername();
-    }
-    String password = monitoringParameters.getParameter("password");
-    if (password == null || password.length() == 0) {
-      throw new IllegalArgumentException("monitoringParameters does not include the password parameter");
-    }
-    String database = monitoringParameters.getParameter("database");
-    if (database == null || database.length() == 0) {
-      database = getDefaultDatabase();
-    }
-    String query = monitoringParameters.getParameter("query");
-    if (query == null || query.length() == 0) {
-      query = getDefaultQuery();
+    return checkPortResult().getMessage();
+  }
+
+  /**
+   * Checks the port, timing the login in {@link CheckPhase#AUTH}, the query in {@link CheckPhase#COMMAND},
+   * and the release or close of the connection in {@link CheckPhase#CLOSE}.  The bytes on the connection
+   * are not available through JDBC.
+   */
+  @Override
+  public final PortCheckResult checkPortResult() throws Exception {
+    long startNanos = checkStarted();
+    try {
+      PortCheckResult result = check();
+      checkCompleted(startNanos, null);
+      return result;
+    } catch (Throwable t) {
+      checkCompleted(startNanos, t);
+      throw t;
     }
+  }
+
+  private PortCheckResult check() throws Exception {
+    final String username = config.getUsername();
+    final String password = config.getPassword();
+    final String query = config.getQuery();
 
     loadDriver(getDriver());
-    conn = DriverManager.getConnection(
-        getJdbcUrl(ipAddress, port.getPort(), database),
-        username,
-        password
-    );
+    String url = getJdbcUrl();
+    TimeoutBudget budget = new TimeoutBudget(timeouts);
     try {
-      conn.setReadOnly(readOnly);
-      @SuppressWarnings("UnusedAssignment")
-      String currentSql = null;
-      try (
-          Statement stmt = conn.createStatement();
-          ResultSet results = stmt.executeQuery(currentSql = query)
-          ) {
-        if (!results.next()) {
-          throw new SQLException("No row returned"); // TODO: NoRowException move to ao-sql
-        }
-        ResultSetMetaData metaData = results.getMetaData();
-        int colCount = metaData.getColumnCount();
-        if (colCount == 0) {
-          throw new SQLException("No columns returned"); // TODO: Create a NoColumnException in ao-sql
+      int authTimeout = budget.begin(CheckPhase.AUTH);
+      JdbcConnectionPool pool;
+      JdbcConnectionPool.Entry entry;
+      if (pooled) {
+        pool = JdbcConnectionPool.getInstance(url, username, password, readOnly);
+        entry = pool.take(toSeconds(authTimeout));
+      } else {
+        pool = null;
+        entry = null;
+      }
+      boolean connected = entry == null;
+      if (connected) {
+        // Connects, negotiates any TLS, and logs in, limited by the timeouts in the JDBC URL
+        entry = new JdbcConnectionPool.Entry(DriverManager.getConnection(url, username, password));
+      }
+      conn = entry.getConnection();
+      boolean release = false;
+      String result;
+      try {
+        if (connected) {
+          conn.setReadOnly(readOnly);
         }
-        if (colCount > 1) {
-          throw new SQLException("More than one column returned"); // TODO: Create an ExtraRowException in ao-sql
+        budget.begin(CheckPhase.COMMAND);
+        @SuppressWarnings("UnusedAssignment")
+        String currentSql = null;
+        try (
+            Statement stmt = conn.createStatement();
+            ResultSet results = stmt.executeQuery(currentSql = query)
+            ) {
+          if (!results.next()) {
+            throw new SQLException("No row returned"); // TODO: NoRowException move to ao-sql
+          }
+          ResultSetMetaData metaData = results.getMetaData();
+          int colCount = metaData.getColumnCount();
+          if (colCount == 0) {
+            throw new SQLException("No columns returned"); // TODO: Create a NoColumnException in ao-sql
+          }
+          if (colCount > 1) {
+            throw new SQLException("More than one column returned"); // TODO: Create an ExtraRowException in ao-sql
+          }
+          result = results.getString(1);
+          if (results.next()) {
+            throw new SQLException("More than one row returned"); // TODO: ExtraRowException move to ao-sql
+          }
+          // Only connections that completed a successful check are reused
+          release = pool != null;
+        } catch (Error | RuntimeException | SQLException e) {
+          ErrorPrinter.addSql(e, currentSql);
+          throw e;
         }
-        String result = results.getString(1);
-        if (results.next()) {
-          throw new SQLException("More than one row returned"); // TODO: ExtraRowException move to ao-sql
+      } finally {
+        budget.enter(CheckPhase.CLOSE);
+        // Hidden from cancel() before release, when another monitor may take the connection.  Since cancel()
+        // sets canceled before reading conn, a cancel() racing this is seen below and the connection closed.
+        conn = null;
+        if (release && !canceled) {
+          pool.release(entry);
+        } else {
+          entry.getConnection().close();
         }
-        return result;
-      } catch (Error | RuntimeException | SQLException e) {
-        ErrorPrinter.addSql(e, currentSql);
-        throw e;
       }
-    } finally {
-      conn.close();
+      return new PortCheckResult(result, budget, -1, -1, null);
+    } catch (SQLException e) {
+      if (isTimeout(e)) {
+        throw budget.timedOut(e);
+      }
+      throw e;
     }
   }
 
@@ -149,6 +254,13 @@ public abstract class JdbcPortMonitor extends PortMonitor {
     }
   }
 
+  /**
+   * Closes all idle connections kept by pooled monitors.
+   */
+  public static void closePooledConnections() {
+    JdbcConnectionPool.closeAll();
+  }
+
   /**
    * Gets the driver classname.
    */
@@ -160,15 +272,21 @@ public abstract class JdbcPortMonitor extends PortMonitor {
   protected abstract String getJdbcUrl(InetAddress ipAddress, int port, String database);
 
   /**
-   * Gets the default JDBC username.
+   * Gets the default JDBC username.  Called during construction, so must not depend on
+   * any field of the subclass.
    */
   protected abstract String getDefaultUsername();
 
   /**
-   * Gets the default JDBC database.
+   * Gets the default JDBC database.  Called during construction, so must not depend on
+   * any field of the subclass.
    */
   protected abstract String getDefaultDatabase();
 
+  /**
+   * Gets the default query.  Called during construction, so must not depend on
+   * any field of the subclass.
+   */
   protected String getDefaultQuery() {
     return "select 1";
   }
@@ -0,0 +1,151 @@
+/*
+ * noc-monitor-portmon - Port monitoring implementations.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of noc-monitor-portmon.
+ *
+ * noc-monitor-portmon is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * noc-monitor-portmon is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with noc-monitor-portmon.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.noc.monitor.portmon;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size histogram of latencies with logarithmic buckets, recorded without locking.
+ *
+ * <p>Latencies are measured in units of 1024 nanoseconds, about one microsecond.  The first four
+ * buckets are one unit wide, and each following power of two is split into four equal buckets,
+ * keeping the relative error under 25% from microseconds to over half an hour.  Longer latencies
+ * are counted in the last bucket.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+final class LatencyHistogram {
+
+  /**
+   * The bits of nanoseconds below the unit of the buckets.
+   */
+  private static final int UNIT_SHIFT = 10;
+
+  /**
+   * The bits of each power of two used to select its sub-bucket.
+   */
+  private static final int SUB_BITS = 2;
+
+  private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+  /**
+   * The highest power of two of units with its own buckets, about 2200 seconds.
+   */
+  private static final int MAX_EXPONENT = 31;
+
+  /**
+   * The number of buckets.
+   */
+  static final int BUCKETS = SUB_BUCKETS * MAX_EXPONENT;
+
+  /**
+   * The exclusive upper limit, in nanoseconds, of each bucket.
+   */
+  private static final long[] LIMITS = new long[BUCKETS];
+
+  static {
+    for (int i = 0; i < BUCKETS - 1; i++) {
+      long units;
+      if (i < SUB_BUCKETS) {
+        units = i + 1L;
+      } else {
+        int exponent = i / SUB_BUCKETS + SUB_BITS - 1;
+        int sub = i % SUB_BUCKETS;
+        units = (long) (SUB_BUCKETS + sub + 1) << (exponent - SUB_BITS);
+      }
+      LIMITS[i] = units << UNIT_SHIFT;
+    }
+    LIMITS[BUCKETS - 1] = Long.MAX_VALUE;
+  }
+
+  /**
+   * Gets the bucket of the given latency.
+   */
+  static int getBucket(long nanos) {
+    long units = Math.max(nanos, 0) >>> UNIT_SHIFT;
+    if (units < SUB_BUCKETS) {
+      return (int) units;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(units);
+    if (exponent > MAX_EXPONENT) {
+      return BUCKETS - 1;
+    }
+    int sub = (int) (units >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+    return SUB_BUCKETS * (exponent - SUB_BITS + 1) + sub;
+  }
+
+  /**
+   * Gets a copy of the exclusive upper limit, in nanoseconds, of each bucket.
+   * The last bucket has no limit and is {@link Long#MAX_VALUE}.
+   */
+  static long[] getLimits() {
+    return LIMITS.clone();
+  }
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+  /**
+   * Counts one latency.
+   */
+  void record(long nanos) {
+    counts.incrementAndGet(getBucket(nanos));
+  }
+
+  /**
+   * Gets a snapshot of the count in each bucket.  Counts recorded concurrently may or may not be included.
+   */
+  long[] getCounts() {
+    long[] snapshot = new long[BUCKETS];
+    for (int i = 0; i < BUCKETS; i++) {
+      snapshot[i] = counts.get(i);
+    }
+    return snapshot;
+  }
+
+  /**
+   * Gets the upper limit of the bucket containing the given percentile of the counts.
+   *
+   * @param  percentile  the percentile, from 0 to 100
+   *
+   * @return  the latency in nanoseconds or {@code 0} when nothing recorded
+   */
+  static long getPercentile(long[] counts, double percentile) {
+    long total = 0;
+    for (long count : counts) {
+      total += count;
+    }
+    if (total == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+    long seen = 0;
+    for (int i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return LIMITS[i];
+      }
+    }
+    return LIMITS[BUCKETS - 1];
+  }
+}
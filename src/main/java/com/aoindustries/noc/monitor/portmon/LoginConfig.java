@@ -0,0 +1,93 @@
+/*
+ * noc-monitor-portmon - Port monitoring implementations.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of noc-monitor-portmon.
+ *
+ * noc-monitor-portmon is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * noc-monitor-portmon is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with noc-monitor-portmon.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.noc.monitor.portmon;
+
+import com.aoapps.lang.Strings;
+import com.aoapps.net.URIParameters;
+
+/**
+ * The configuration of monitors that log in with a username and password, optionally after STARTTLS,
+ * such as {@link ImapPortMonitor} and {@link Pop3PortMonitor}.  Parsed and validated once from the
+ * monitoring parameters.
+ *
+ * <p>Set through monitoring parameters <code>username</code> and <code>password</code>, both required,
+ * and <code>starttls=false</code> to not use STARTTLS.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class LoginConfig {
+
+  private static String getRequired(URIParameters monitoringParameters, String name) throws IllegalArgumentException {
+    String value = Strings.nullIfEmpty(monitoringParameters.getParameter(name));
+    if (value == null) {
+      throw new IllegalArgumentException("monitoringParameters does not include the " + name);
+    }
+    return value;
+  }
+
+  /**
+   * Gets the configuration from monitoring parameters.
+   *
+   * @throws  IllegalArgumentException  when the username or password is missing
+   */
+  public static LoginConfig valueOf(URIParameters monitoringParameters) throws IllegalArgumentException {
+    return new LoginConfig(
+        getRequired(monitoringParameters, "username"),
+        getRequired(monitoringParameters, "password"),
+        // Use SSL unless explicitely disabled with starttls=false
+        !"false".equalsIgnoreCase(monitoringParameters.getParameter("starttls"))
+    );
+  }
+
+  private final String username;
+  private final String password;
+  private final boolean starttls;
+
+  private LoginConfig(String username, String password, boolean starttls) {
+    this.username = username;
+    this.password = password;
+    this.starttls = starttls;
+  }
+
+  /**
+   * Gets the username.
+   */
+  public String getUsername() {
+    return username;
+  }
+
+  /**
+   * Gets the password.
+   */
+  public String getPassword() {
+    return password;
+  }
+
+  /**
+   * Is STARTTLS used when not already over SSL?
+   */
+  public boolean isStarttls() {
+    return starttls;
+  }
+}
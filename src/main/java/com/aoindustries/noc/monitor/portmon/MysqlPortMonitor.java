@@ -1,6 +1,6 @@
 /*
  * noc-monitor-portmon - Port monitoring implementations.
- * Copyright (C) 2009-2013, 2016, 2017, 2018, 2019, 2020, 2021, 2022  AO Industries, Inc.
+ * Copyright (C) 2009-2013, 2016, 2017, 2018, 2019, 2020, 2021, 2022, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -52,6 +52,8 @@ public class MysqlPortMonitor extends JdbcPortMonitor {
       // Use SSL unless explicitely disabled with ssl=false
       ssl = !"false".equalsIgnoreCase(monitoringParameters.getParameter("ssl"));
     }
+    // Generate the JDBC URL once
+    getJdbcUrl();
   }
 
   @Override
@@ -75,18 +77,21 @@ public class MysqlPortMonitor extends JdbcPortMonitor {
     }
     jdbcUrl.append('/');
     URIEncoder.encodeURIComponent(database, jdbcUrl);
+    // Milliseconds
     jdbcUrl.append("?connectTimeout=");
-    URIEncoder.encodeURIComponent(Integer.toString(TIMEOUT), jdbcUrl);
+    URIEncoder.encodeURIComponent(Integer.toString(Math.min(timeouts.getConnect(), timeouts.getTotal())), jdbcUrl);
+    // Milliseconds
     jdbcUrl.append("&socketTimeout=");
-    URIEncoder.encodeURIComponent(Integer.toString(TIMEOUT), jdbcUrl);
+    URIEncoder.encodeURIComponent(Integer.toString(timeouts.getTotal()), jdbcUrl);
     jdbcUrl.append("&tcpKeepAlive=true");
     jdbcUrl.append("&useSSL=");
     URIEncoder.encodeURIComponent(Boolean.toString(ssl), jdbcUrl);
     if (ssl) {
       jdbcUrl.append("&requireSSL=true");
     }
+    // Seconds
     jdbcUrl.append("&netTimeoutForStreamingResults=");
-    URIEncoder.encodeURIComponent(Integer.toString(TIMEOUT), jdbcUrl);
+    URIEncoder.encodeURIComponent(Integer.toString(toSeconds(timeouts.getTotal())), jdbcUrl);
     return jdbcUrl.toString();
   }
 
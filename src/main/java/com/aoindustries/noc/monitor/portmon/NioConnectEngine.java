@@ -0,0 +1,349 @@
+/*
+ * noc-monitor-portmon - Port monitoring implementations.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of noc-monitor-portmon.
+ *
+ * noc-monitor-portmon is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * noc-monitor-portmon is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with noc-monitor-portmon.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.noc.monitor.portmon;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Performs connect-only TCP checks without blocking a thread per check.  Each
+ * selector thread multiplexes any number of outstanding non-blocking connects,
+ * so thousands of targets may be checked from a handful of threads.
+ *
+ * <p>Only monitors that are satisfied by a connection alone, as determined by
+ * {@link DefaultTcpPortMonitor#isConnectOnly()}, may be run by this engine.  The
+ * results are the same as calling {@link DefaultTcpPortMonitor#checkPort()}:
+ * the same success message, and the same {@link java.net.ConnectException} or
+ * {@link PhaseTimeoutException} on failure.  Sockets have the same keep-alive setting, but no
+ * SO_LINGER, which is undefined for non-blocking sockets and has no effect when closing a
+ * connection without sending anything.</p>
+ *
+ * <p>Futures are completed on the selector threads.  Any dependent stage that
+ * may block should be added with one of the <code>*Async</code> methods of
+ * {@link CompletableFuture}.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+public class NioConnectEngine implements Closeable {
+
+  private static final Logger logger = Logger.getLogger(NioConnectEngine.class.getName());
+
+  /**
+   * The default number of selector threads.
+   */
+  public static final int DEFAULT_SELECTOR_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+
+  private static final AtomicInteger engineCounter = new AtomicInteger();
+
+  /**
+   * A single outstanding connect.
+   */
+  private static final class Pending {
+
+    private final InetSocketAddress address;
+    private final TimeoutBudget budget;
+    private final long deadline;
+    private final String result;
+    private final CompletableFuture<String> future = new CompletableFuture<>();
+    private volatile SocketChannel channel;
+
+    private Pending(InetSocketAddress address, Timeouts timeouts, String result) throws PhaseTimeoutException {
+      this.address = address;
+      this.budget = new TimeoutBudget(timeouts);
+      this.deadline = System.nanoTime() + budget.begin(CheckPhase.CONNECT) * 1_000_000L;
+      this.result = result;
+    }
+
+    private void close() {
+      SocketChannel myChannel = channel;
+      if (myChannel != null) {
+        try {
+          myChannel.close();
+        } catch (IOException err) {
+          logger.log(Level.WARNING, null, err);
+        }
+      }
+    }
+
+    private void succeed() {
+      close();
+      future.complete(result);
+    }
+
+    private void fail(Throwable t) {
+      close();
+      future.completeExceptionally(t);
+    }
+  }
+
+  private final class Worker implements Runnable {
+
+    private final Selector selector;
+    private final Queue<Pending> registrations = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Outstanding connects ordered by deadline, only accessed by the selector thread.
+     * Completed entries are removed lazily once they reach the head.
+     */
+    private final PriorityQueue<Pending> deadlines = new PriorityQueue<>(
+        (p1, p2) -> Long.compare(p1.deadline - p2.deadline, 0)
+    );
+
+    private final Thread thread;
+
+    private Worker(int engineNum, int workerNum) throws IOException {
+      selector = Selector.open();
+      thread = new Thread(this, NioConnectEngine.class.getSimpleName() + engineNum + "-" + workerNum);
+      thread.setDaemon(true);
+    }
+
+    private void submit(Pending pending) {
+      registrations.add(pending);
+      if (closed) {
+        // Closed concurrently, the selector thread may have already drained its registrations
+        Pending p;
+        while ((p = registrations.poll()) != null) {
+          p.fail(new IOException("Engine closed"));
+        }
+      } else {
+        selector.wakeup();
+      }
+    }
+
+    private void register(Pending pending) {
+      if (pending.future.isDone()) {
+        return;
+      }
+      try {
+        SocketChannel channel = SocketChannel.open();
+        pending.channel = channel;
+        // Canceled while opening
+        if (pending.future.isDone()) {
+          pending.close();
+          return;
+        }
+        channel.configureBlocking(false);
+        // Keep-alive as DefaultTcpPortMonitor.connect().  SO_LINGER is not set: its behavior is undefined
+        // on non-blocking sockets and would only matter for unsent data, while nothing is sent before close.
+        channel.socket().setKeepAlive(true);
+        if (channel.connect(pending.address)) {
+          pending.succeed();
+        } else {
+          channel.register(selector, SelectionKey.OP_CONNECT, pending);
+          deadlines.add(pending);
+        }
+      } catch (IOException | RuntimeException e) {
+        // Includes ClosedChannelException when canceled concurrently, which is ignored by the completed future
+        pending.fail(e);
+      }
+    }
+
+    private void finishConnect(SelectionKey key) {
+      Pending pending = (Pending) key.attachment();
+      try {
+        if (((SocketChannel) key.channel()).finishConnect()) {
+          key.cancel();
+          pending.succeed();
+        }
+      } catch (IOException | RuntimeException e) {
+        key.cancel();
+        pending.fail(e);
+      }
+    }
+
+    @Override
+    public void run() {
+      try {
+        while (!closed) {
+          // Wait until the next deadline, or indefinitely when nothing outstanding
+          long timeout;
+          Pending next = deadlines.peek();
+          if (next == null) {
+            timeout = 0;
+          } else {
+            timeout = Math.max(1, (next.deadline - System.nanoTime() + 999_999) / 1_000_000);
+          }
+          selector.select(timeout);
+          // New connects
+          Pending pending;
+          while ((pending = registrations.poll()) != null) {
+            register(pending);
+          }
+          // Completed connects
+          Iterator<SelectionKey> iter = selector.selectedKeys().iterator();
+          while (iter.hasNext()) {
+            SelectionKey key = iter.next();
+            iter.remove();
+            if (key.isValid()) {
+              finishConnect(key);
+            }
+          }
+          // Timed-out or otherwise completed connects
+          long now = System.nanoTime();
+          while ((pending = deadlines.peek()) != null && (pending.future.isDone() || now - pending.deadline >= 0)) {
+            deadlines.remove();
+            if (!pending.future.isDone()) {
+              pending.fail(pending.budget.timedOut(new SocketTimeoutException("Connect timed out")));
+            }
+          }
+        }
+      } catch (ClosedSelectorException e) {
+        // Closed by close()
+      } catch (IOException | RuntimeException e) {
+        logger.log(Level.SEVERE, null, e);
+      } finally {
+        IOException closedException = new IOException("Engine closed");
+        Pending pending;
+        while ((pending = registrations.poll()) != null) {
+          pending.fail(closedException);
+        }
+        while ((pending = deadlines.poll()) != null) {
+          pending.fail(closedException);
+        }
+        try {
+          selector.close();
+        } catch (IOException err) {
+          logger.log(Level.WARNING, null, err);
+        }
+      }
+    }
+  }
+
+  private final Worker[] workers;
+  private final AtomicInteger nextWorker = new AtomicInteger();
+  private volatile boolean closed;
+
+  /**
+   * Creates a new engine.
+   *
+   * @param  selectorThreads  the number of selector threads
+   */
+  public NioConnectEngine(int selectorThreads) throws IOException {
+    if (selectorThreads < 1) {
+      throw new IllegalArgumentException("selectorThreads < 1: " + selectorThreads);
+    }
+    int engineNum = engineCounter.incrementAndGet();
+    workers = new Worker[selectorThreads];
+    boolean successful = false;
+    try {
+      for (int i = 0; i < selectorThreads; i++) {
+        workers[i] = new Worker(engineNum, i + 1);
+      }
+      successful = true;
+    } finally {
+      if (!successful) {
+        close();
+      }
+    }
+    for (Worker worker : workers) {
+      worker.thread.start();
+    }
+  }
+
+  /**
+   * Creates a new engine with the default number of threads.
+   */
+  public NioConnectEngine() throws IOException {
+    this(DEFAULT_SELECTOR_THREADS);
+  }
+
+  /**
+   * Checks the port of a connect-only monitor.
+   *
+   * <p>The connect is limited by the connect timeout of the monitor, or its total timeout if less.
+   * Calling {@link PortMonitor#cancel()} on the monitor or canceling the returned future
+   * will abandon the connect attempt.</p>
+   *
+   * @return  a future completed with the same message as {@link DefaultTcpPortMonitor#checkPort()}
+   *
+   * @throws  IllegalArgumentException  when the monitor requires protocol-specific I/O
+   *
+   * @see  DefaultTcpPortMonitor#isConnectOnly()
+   */
+  public CompletableFuture<String> checkPort(DefaultTcpPortMonitor monitor) throws IllegalArgumentException {
+    if (!monitor.isConnectOnly()) {
+      throw new IllegalArgumentException("monitor is not connect-only: " + monitor.getClass().getName());
+    }
+    long startNanos = monitor.checkStarted();
+    Pending pending;
+    try {
+      pending = new Pending(monitor.getSocketAddress(), monitor.timeouts, monitor.getConnectedResult());
+    } catch (PhaseTimeoutException e) {
+      monitor.checkCompleted(startNanos, e);
+      return CompletableFuture.failedFuture(e);
+    }
+    CompletableFuture<String> future = pending.future;
+    Worker worker = workers[Math.floorMod(nextWorker.getAndIncrement(), workers.length)];
+    future.whenComplete((result, t) -> {
+      monitor.checkCompleted(startNanos, t);
+      if (future.isCancelled()) {
+        // Closing the channel cancels its key, wake-up so the selector deregisters it promptly
+        pending.close();
+        worker.selector.wakeup();
+      }
+    });
+    monitor.engineFuture = future;
+    if (monitor.canceled) {
+      future.cancel(false);
+    } else {
+      worker.submit(pending);
+    }
+    return future;
+  }
+
+  /**
+   * Stops all selector threads, failing any outstanding checks.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    for (Worker worker : workers) {
+      if (worker != null) {
+        if (worker.thread.isAlive()) {
+          worker.selector.wakeup();
+        } else {
+          try {
+            worker.selector.close();
+          } catch (IOException err) {
+            logger.log(Level.WARNING, null, err);
+          }
+        }
+      }
+    }
+  }
+}
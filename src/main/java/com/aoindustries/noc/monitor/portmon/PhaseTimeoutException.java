@@ -0,0 +1,73 @@
+/*
+ * noc-monitor-portmon - Port monitoring implementations.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of noc-monitor-portmon.
+ *
+ * noc-monitor-portmon is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * noc-monitor-portmon is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with noc-monitor-portmon.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.noc.monitor.portmon;
+
+import java.net.SocketTimeoutException;
+
+/**
+ * Thrown when a check exceeds the timeout of a {@link CheckPhase} or the total timeout.
+ *
+ * @see  TimeoutBudget
+ *
+ * @author  AO Industries, Inc.
+ */
+public class PhaseTimeoutException extends SocketTimeoutException {
+
+  private static final long serialVersionUID = 1L;
+
+  private final CheckPhase phase;
+  private final long phaseNanos;
+  private final long totalNanos;
+
+  /**
+   * Creates a new phase timeout.
+   */
+  public PhaseTimeoutException(String message, CheckPhase phase, long phaseNanos, long totalNanos) {
+    super(message);
+    this.phase = phase;
+    this.phaseNanos = phaseNanos;
+    this.totalNanos = totalNanos;
+  }
+
+  /**
+   * Gets the phase that ran out of time.
+   */
+  public CheckPhase getPhase() {
+    return phase;
+  }
+
+  /**
+   * Gets the time spent in the phase that ran out of time.
+   */
+  public long getPhaseNanos() {
+    return phaseNanos;
+  }
+
+  /**
+   * Gets the total time spent in the check.
+   */
+  public long getTotalNanos() {
+    return totalNanos;
+  }
+}
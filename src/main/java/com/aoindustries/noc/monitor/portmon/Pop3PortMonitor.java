@@ -1,6 +1,6 @@
 /*
  * noc-monitor-portmon - Port monitoring implementations.
- * Copyright (C) 2001-2013, 2016, 2017, 2018, 2019, 2020, 2021, 2022  AO Industries, Inc.
+ * Copyright (C) 2001-2013, 2016, 2017, 2018, 2019, 2020, 2021, 2022, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -26,20 +26,14 @@ package com.aoindustries.noc.monitor.portmon;
 import com.aoapps.net.InetAddress;
 import com.aoapps.net.Port;
 import com.aoapps.net.URIParameters;
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.Reader;
-import java.io.Writer;
 import java.net.Socket;
-import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
-import javax.net.ssl.SSLSocketFactory;
+import java.util.ArrayList;
+import java.util.List;
+import javax.net.ssl.SSLSocket;
 
 /**
  * Monitors with POP3-specific protocol support.
@@ -48,135 +42,168 @@ import javax.net.ssl.SSLSocketFactory;
  */
 public class Pop3PortMonitor extends DefaultTcpPortMonitor {
 
-  private final URIParameters monitoringParameters;
+  private final LoginConfig config;
 
   /**
    * Creates a new POP3 monitor.
    */
   public Pop3PortMonitor(InetAddress ipAddress, Port port, boolean ssl, URIParameters monitoringParameters) {
-    super(ipAddress, port, ssl);
-    this.monitoringParameters = monitoringParameters;
+    super(ipAddress, port, ssl, monitoringParameters);
+    this.config = LoginConfig.valueOf(monitoringParameters);
   }
 
   /**
    * Creates a new POP3 monitor.
    */
   public Pop3PortMonitor(InetAddress ipAddress, Port port, URIParameters monitoringParameters) {
-    super(ipAddress, port, false);
-    this.monitoringParameters = monitoringParameters;
+    super(ipAddress, port, false, monitoringParameters);
+    this.config = LoginConfig.valueOf(monitoringParameters);
   }
 
-  private static void quit(Reader in, Writer out, StringBuilder buffer) throws IOException {
-    out.write("QUIT" + CRLF);
-    out.flush();
-    String line = readLine(in, buffer);
-    if (line == null) {
-      throw new EOFException("End of file reading QUIT response");
+  private static void quit(AsciiLineIO io) throws IOException {
+    io.writeLine("QUIT");
+    io.flush();
+    io.expect("+OK", "QUIT response");
+  }
+
+  /**
+   * Reads the response to CAPA.
+   *
+   * @return  the capability lines or {@code null} when CAPA is not supported
+   *
+   * @see  <a href="https://datatracker.ietf.org/doc/html/rfc2449">RFC 2449 - POP3 Extension Mechanism</a>
+   */
+  private static List<String> readCapa(AsciiLineIO io) throws IOException {
+    if (!io.readLine()) {
+      throw new EOFException("End of file reading CAPA response");
     }
-    if (!line.startsWith("+OK")) {
-      throw new IOException("Unexpected line reading QUIT response: " + line);
+    if (io.startsWith("-ERR")) {
+      return null;
+    }
+    if (!io.startsWith("+OK")) {
+      throw new IOException("Unexpected line reading CAPA response: " + io.getLine());
+    }
+    List<String> capa = new ArrayList<>();
+    while (true) {
+      if (!io.readLine()) {
+        throw new EOFException("End of file reading CAPA response");
+      }
+      if (io.lineEquals(".")) {
+        return capa;
+      }
+      // Remove any byte-stuffing
+      capa.add(io.substring(io.startsWith("..") ? 1 : 0));
+    }
+  }
+
+  /**
+   * Does the CAPA response include the given capability?
+   */
+  private static boolean hasCapability(List<String> capa, String capability) {
+    if (capa != null) {
+      for (String line : capa) {
+        int spacePos = line.indexOf(' ');
+        String keyword = spacePos == -1 ? line : line.substring(0, spacePos);
+        if (keyword.equalsIgnoreCase(capability)) {
+          return true;
+        }
+      }
     }
+    return false;
   }
 
   @Override
   public String checkPort(Socket socket, InputStream socketIn, OutputStream socketOut) throws Exception {
-    Socket sslSocket = null;
+    SSLSocket sslSocket = null;
     try {
-      // Get the configuration
-      String username = monitoringParameters.getParameter("username");
-      if (username == null || username.length() == 0) {
-        throw new IllegalArgumentException("monitoringParameters does not include the username");
-      }
-      String password = monitoringParameters.getParameter("password");
-      if (password == null || password.length() == 0) {
-        throw new IllegalArgumentException("monitoringParameters does not include the password");
-      }
-      boolean starttls =
-          // Will not try STARTTLS when is SSL
-          !ssl
-              // Use SSL unless explicitely disabled with starttls=false
-              && !"false".equalsIgnoreCase(monitoringParameters.getParameter("starttls"));
+      final String username = config.getUsername();
+      final String password = config.getPassword();
+      // Will not try STARTTLS when is SSL
+      final boolean starttls = !ssl && config.isStarttls();
 
-      final StringBuilder buffer = new StringBuilder();
-      Charset charset = StandardCharsets.US_ASCII;
-      Writer out = new OutputStreamWriter(socketOut, charset);
-      try {
-        Reader in = new InputStreamReader(socketIn, charset);
-        try {
-          // Buffer now when not using STARTTLS
-          if (!starttls) {
-            out = new BufferedWriter(out);
-            in = new BufferedReader(in);
-          }
-          // Status line
-          String line = readLine(in, buffer);
-          if (line == null) {
-            throw new EOFException("End of file reading status");
-          }
-          if (!line.startsWith("+OK ")) {
-            throw new IOException("Unexpected status line: " + line);
-          }
-          if (starttls) {
-            // See https://datatracker.ietf.org/doc/html/rfc2595
-            // TODO: CAPA command first (it would add one round-trip)? https://nmap.org/nsedoc/scripts/pop3-capabilities.html
-            // STLS
-            out.write("STLS" + CRLF);
-            out.flush();
-            line = readLine(in, buffer);
-            if (line == null) {
-              throw new EOFException("End of file reading STLS response");
-            }
-            if (!line.startsWith("+OK ")) {
-              // Quit
-              quit(in, out, buffer);
-              throw new IOException("Unexpected line reading STLS response: " + line);
-            }
-            // Wrap in SSL
-            SSLSocketFactory sslFact = (SSLSocketFactory) SSLSocketFactory.getDefault();
-            sslSocket = sslFact.createSocket(socket, ipAddress.toString(), port.getPort(), false);
-            out = new BufferedWriter(new OutputStreamWriter(sslSocket.getOutputStream(), charset));
-            in = new BufferedReader(new InputStreamReader(sslSocket.getInputStream(), charset));
-          }
-          // USER
-          out.write("USER ");
-          out.write(username);
-          out.write(CRLF);
-          out.flush();
-          line = readLine(in, buffer);
-          if (line == null) {
-            throw new EOFException("End of file reading USER response");
-          }
-          if (!line.startsWith("+OK ")) {
-            throw new IOException("Unexpected line reading USER response: " + line);
+      try (AsciiLineIO io = new AsciiLineIO(socketIn, socketOut)) {
+        // CAPA is sent without waiting for the greeting, saving a round-trip
+        io.writeLine("CAPA");
+        io.flush();
+        // Status line
+        if (!io.readLine()) {
+          throw new EOFException("End of file reading status");
+        }
+        if (!io.startsWith("+OK ")) {
+          throw new IOException("Unexpected status line: " + io.getLine());
+        }
+        List<String> capa = readCapa(io);
+        if (starttls) {
+          beginPhase(socket, CheckPhase.COMMAND);
+          // See https://datatracker.ietf.org/doc/html/rfc2595
+          if (capa != null && !hasCapability(capa, "STLS")) {
+            // Quit
+            quit(io);
+            throw new IOException("Host does not support STLS: " + capa);
           }
-          // PASS
-          out.write("PASS ");
-          out.write(password);
-          out.write(CRLF);
-          out.flush();
-          line = readLine(in, buffer);
-          if (line == null) {
-            throw new EOFException("End of file reading PASS response");
+          // STLS
+          io.writeLine("STLS");
+          io.flush();
+          if (!io.readLine()) {
+            throw new EOFException("End of file reading STLS response");
           }
-          String result;
-          if (line.startsWith("+OK ")) {
-            // Not locked
-            result = line.substring(4);
-          } else if ("-ERR [IN-USE] Unable to lock maildrop: Mailbox is locked by POP server".equals(line)) {
-            // Locked, but otherwise OK
-            result = line.substring(5);
-          } else {
-            throw new IOException("Unexpected line reading PASS response: " + line);
+          if (!io.startsWith("+OK ")) {
+            String line = io.getLine();
+            // Quit
+            quit(io);
+            throw new IOException("Unexpected line reading STLS response: " + line);
           }
-          // Quit
-          quit(in, out, buffer);
-          // Return OK result
-          return result;
-        } finally {
-          in.close();
+          // Wrap in SSL
+          sslSocket = startTls(socket, false);
+          io.upgrade(sslSocket);
+          // Capabilities must be discarded and requested again over TLS, see https://datatracker.ietf.org/doc/html/rfc2595#section-4
+          io.writeLine("CAPA");
+          io.flush();
+          capa = readCapa(io);
+        }
+        // See https://datatracker.ietf.org/doc/html/rfc2449#section-6.6
+        final boolean pipelining = hasCapability(capa, "PIPELINING");
+        // USER
+        beginPhase(socket, CheckPhase.AUTH);
+        io.write("USER ");
+        io.writeLine(username);
+        if (!pipelining) {
+          io.flush();
+          io.expect("+OK ", "USER response");
+        }
+        // PASS
+        io.write("PASS ");
+        io.writeLine(password);
+        if (pipelining) {
+          io.writeLine("QUIT");
+          io.flush();
+          // Replies to the pipelined commands, in order
+          io.expect("+OK ", "USER response");
+        } else {
+          io.flush();
+        }
+        if (!io.readLine()) {
+          throw new EOFException("End of file reading PASS response");
+        }
+        String result;
+        if (io.startsWith("+OK ")) {
+          // Not locked
+          result = io.substring(4);
+        } else if (io.lineEquals("-ERR [IN-USE] Unable to lock maildrop: Mailbox is locked by POP server")) {
+          // Locked, but otherwise OK
+          result = io.substring(5);
+        } else {
+          throw new IOException("Unexpected line reading PASS response: " + io.getLine());
+        }
+        // Quit
+        beginPhase(socket, CheckPhase.CLOSE);
+        if (pipelining) {
+          io.expect("+OK", "QUIT response");
+        } else {
+          quit(io);
         }
-      } finally {
-        out.close();
+        // Return OK result
+        return result;
       }
     } finally {
       if (sslSocket != null) {
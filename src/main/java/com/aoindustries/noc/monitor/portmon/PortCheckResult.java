@@ -0,0 +1,171 @@
+/*
+ * noc-monitor-portmon - Port monitoring implementations.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of noc-monitor-portmon.
+ *
+ * noc-monitor-portmon is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * noc-monitor-portmon is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with noc-monitor-portmon.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.noc.monitor.portmon;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The outcome of a successful check: the same message as {@link PortMonitor#checkPort()}, along
+ * with where the time was spent, the bytes transferred, and any TLS handshake.
+ *
+ * <p>Times are measured with {@link System#nanoTime()}.  Monitors that do not track phases only
+ * report the total time, and monitors that do not own their connection, such as JDBC, report
+ * bytes as {@code -1}.</p>
+ *
+ * @see  PortMonitor#checkPortResult()
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class PortCheckResult {
+
+  private static final CheckPhase[] PHASES = CheckPhase.values();
+
+  private final String message;
+  private final long totalNanos;
+  private final long[] phaseNanos;
+  private final long bytesSent;
+  private final long bytesReceived;
+  private final TlsHandshake tlsHandshake;
+
+  /**
+   * Creates a new result with the time spent in each phase of the given budget.
+   * The budget is {@linkplain TimeoutBudget#end() ended}.
+   *
+   * @param  bytesSent      the bytes sent or {@code -1} when unknown
+   * @param  bytesReceived  the bytes received or {@code -1} when unknown
+   * @param  tlsHandshake   the TLS handshake or {@code null} when none performed
+   */
+  public PortCheckResult(String message, TimeoutBudget budget, long bytesSent, long bytesReceived, TlsHandshake tlsHandshake) {
+    budget.end();
+    this.message = message;
+    this.totalNanos = budget.getTotalNanos();
+    this.phaseNanos = new long[PHASES.length];
+    for (CheckPhase phase : PHASES) {
+      phaseNanos[phase.ordinal()] = budget.getPhaseNanos(phase);
+    }
+    this.bytesSent = bytesSent;
+    this.bytesReceived = bytesReceived;
+    this.tlsHandshake = tlsHandshake;
+  }
+
+  /**
+   * Creates a new result with only the total time.
+   */
+  public PortCheckResult(String message, long totalNanos) {
+    this.message = message;
+    this.totalNanos = totalNanos;
+    this.phaseNanos = null;
+    this.bytesSent = -1;
+    this.bytesReceived = -1;
+    this.tlsHandshake = null;
+  }
+
+  /**
+   * Gets the message indicating success, the same as returned by {@link PortMonitor#checkPort()}.
+   */
+  public String getMessage() {
+    return message;
+  }
+
+  /**
+   * Gets the total time of the check.
+   */
+  public long getTotalNanos() {
+    return totalNanos;
+  }
+
+  /**
+   * Were the times of each phase measured?
+   */
+  public boolean hasPhaseNanos() {
+    return phaseNanos != null;
+  }
+
+  /**
+   * Gets the time spent in the given phase.
+   *
+   * @return  the time, zero when the phase was not entered, or {@code -1} when phases are not measured
+   */
+  public long getPhaseNanos(CheckPhase phase) {
+    return phaseNanos == null ? -1 : phaseNanos[phase.ordinal()];
+  }
+
+  /**
+   * Gets the bytes sent on the connection, including any TLS records, or {@code -1} when unknown.
+   */
+  public long getBytesSent() {
+    return bytesSent;
+  }
+
+  /**
+   * Gets the bytes received on the connection, including any TLS records, or {@code -1} when unknown.
+   */
+  public long getBytesReceived() {
+    return bytesReceived;
+  }
+
+  /**
+   * Gets the negotiated TLS parameters, or {@code null} when no handshake was performed.
+   */
+  public TlsHandshake getTlsHandshake() {
+    return tlsHandshake;
+  }
+
+  /**
+   * Gets the times of each phase entered, along with the bytes transferred, such as
+   * <code>CONNECT 1.2 ms, GREETING 30.5 ms, total 32.0 ms, 120 bytes sent, 460 bytes received</code>.
+   */
+  public String getTimings() {
+    StringBuilder sb = new StringBuilder();
+    if (phaseNanos != null) {
+      for (CheckPhase phase : PHASES) {
+        long nanos = phaseNanos[phase.ordinal()];
+        if (nanos != 0) {
+          appendMillis(sb.append(phase).append(' '), nanos).append(", ");
+        }
+      }
+    }
+    appendMillis(sb.append("total "), totalNanos);
+    if (bytesSent != -1) {
+      sb.append(", ").append(bytesSent).append(" bytes sent");
+    }
+    if (bytesReceived != -1) {
+      sb.append(", ").append(bytesReceived).append(" bytes received");
+    }
+    return sb.toString();
+  }
+
+  private static StringBuilder appendMillis(StringBuilder sb, long nanos) {
+    long tenths = (nanos + TimeUnit.MICROSECONDS.toNanos(50)) / TimeUnit.MICROSECONDS.toNanos(100);
+    return sb.append(tenths / 10).append('.').append(tenths % 10).append(" ms");
+  }
+
+  /**
+   * Gets the message.
+   */
+  @Override
+  public String toString() {
+    return message;
+  }
+}
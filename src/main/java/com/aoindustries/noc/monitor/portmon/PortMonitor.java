@@ -1,6 +1,6 @@
 /*
  * noc-monitor-portmon - Port monitoring implementations.
- * Copyright (C) 2001-2013, 2016, 2017, 2018, 2019, 2020, 2021, 2022, 2024  AO Industries, Inc.
+ * Copyright (C) 2001-2013, 2016, 2017, 2018, 2019, 2020, 2021, 2022, 2024, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -26,9 +26,15 @@ package com.aoindustries.noc.monitor.portmon;
 import com.aoapps.net.InetAddress;
 import com.aoapps.net.Port;
 import com.aoapps.net.URIParameters;
-import com.aoindustries.aoserv.client.net.AppProtocol;
 import java.io.IOException;
 import java.io.Reader;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * A <code>PortMonitor</code> connects to a service on a port and verifies it is
@@ -43,58 +49,29 @@ public abstract class PortMonitor {
   /**
    * Factory method to get the best port monitor for the provided port
    * details.  If can't find any monitor, will through IllegalArgumentException.
+   *
+   * <p>TCP ports with a <code>script</code> monitoring parameter are monitored by {@link ScriptPortMonitor}.
+   * Otherwise, the monitor is created by the factory in {@link PortMonitorRegistry}, with a default
+   * monitor for TCP and UDP ports of any other application protocol.</p>
    */
   public static PortMonitor getPortMonitor(InetAddress ipAddress, Port port, String appProtocol, URIParameters monitoringParameters) throws IllegalArgumentException {
     com.aoapps.net.Protocol netProtocol = port.getProtocol();
+    if (netProtocol == com.aoapps.net.Protocol.TCP && monitoringParameters.getParameter("script") != null) {
+      return new ScriptPortMonitor(ipAddress, port, monitoringParameters);
+    }
+    PortMonitorFactory factory = PortMonitorRegistry.getFactory(netProtocol, appProtocol);
+    if (factory != null) {
+      PortMonitor monitor = factory.newPortMonitor(ipAddress, port, appProtocol, monitoringParameters);
+      if (monitor != null) {
+        return monitor;
+      }
+    }
     switch (netProtocol) {
       case UDP:
         // UDP
-        return new DefaultUdpPortMonitor(ipAddress, port);
+        return new DefaultUdpPortMonitor(ipAddress, port, monitoringParameters);
       case TCP:
         // TCP
-        // TODO: HTTP(S) protocol support, with application-defined criteria
-        if (
-            AppProtocol.AOSERV_DAEMON_SSL.equals(appProtocol)
-                || AppProtocol.AOSERV_MASTER_SSL.equals(appProtocol)
-                || AppProtocol.HTTPS.equals(appProtocol)
-        ) {
-          return new DefaultSslPortMonitor(ipAddress, port, monitoringParameters);
-        }
-        if (AppProtocol.FTP.equals(appProtocol)) {
-          return new FtpPortMonitor(ipAddress, port, monitoringParameters);
-        }
-        if (AppProtocol.IMAP2.equals(appProtocol)) {
-          return new ImapPortMonitor(ipAddress, port, monitoringParameters);
-        }
-        if (AppProtocol.SIMAP.equals(appProtocol)) {
-          return new SimapPortMonitor(ipAddress, port, monitoringParameters);
-        }
-        if (AppProtocol.MYSQL.equals(appProtocol)) {
-          return new MysqlPortMonitor(ipAddress, port, monitoringParameters);
-        }
-        if (AppProtocol.POP3.equals(appProtocol)) {
-          return new Pop3PortMonitor(ipAddress, port, monitoringParameters);
-        }
-        if (AppProtocol.SPOP3.equals(appProtocol)) {
-          return new Spop3PortMonitor(ipAddress, port, monitoringParameters);
-        }
-        if (
-            AppProtocol.POSTGRESQL.equals(appProtocol)
-                // PostgreSQL performs IDENT-based authentication on loopback,
-                // ncan't monitor with arbitrary usernames/passwords
-                && !ipAddress.isLoopback()
-        ) {
-          return new PostgresqlPortMonitor(ipAddress, port, monitoringParameters);
-        }
-        if (AppProtocol.SMTP.equals(appProtocol) || AppProtocol.SUBMISSION.equals(appProtocol)) {
-          return new SmtpPortMonitor(ipAddress, port, monitoringParameters);
-        }
-        if (AppProtocol.SMTPS.equals(appProtocol)) {
-          return new SmtpsPortMonitor(ipAddress, port, monitoringParameters);
-        }
-        if (AppProtocol.SSH.equals(appProtocol)) {
-          return new SshPortMonitor(ipAddress, port);
-        }
         return new DefaultTcpPortMonitor(ipAddress, port, monitoringParameters);
       default:
         throw new IllegalArgumentException("Unable to find port monitor: ipAddress=\"" + ipAddress + "\", port=" + port + ", appProtocol=\"" + appProtocol + "\"");
@@ -103,7 +80,10 @@ public abstract class PortMonitor {
 
   /**
    * Reads a line into the given buffer.
+   *
+   * @deprecated  Please use {@link AsciiLineIO}, which reads lines directly from the bytes.
    */
+  @Deprecated
   protected static String readLine(Reader in, StringBuilder buffer) throws IOException {
     buffer.setLength(0);
     while (true) {
@@ -131,6 +111,7 @@ public abstract class PortMonitor {
   protected final InetAddress ipAddress;
   protected final Port port;
   protected volatile boolean canceled;
+  private final PortMonitorStatistics statistics;
 
   /**
    * Creates a new port monitor.
@@ -138,6 +119,61 @@ public abstract class PortMonitor {
   protected PortMonitor(InetAddress ipAddress, Port port) {
     this.ipAddress = ipAddress;
     this.port = port;
+    this.statistics = PortMonitorStatistics.getInstance(getClass());
+  }
+
+  /**
+   * Converts an IP address to a {@link java.net.InetAddress}.  Since the address is always
+   * an IP address literal, no name service lookup is performed.
+   */
+  static java.net.InetAddress toInetAddress(InetAddress ipAddress) {
+    try {
+      return java.net.InetAddress.getByName(ipAddress.toString());
+    } catch (UnknownHostException e) {
+      throw new IllegalArgumentException("Unable to convert IP address: " + ipAddress, e);
+    }
+  }
+
+  /**
+   * Gets the IP address being monitored.
+   */
+  public InetAddress getIpAddress() {
+    return ipAddress;
+  }
+
+  /**
+   * Gets the port being monitored.
+   */
+  public Port getPort() {
+    return port;
+  }
+
+  /**
+   * Gets the statistics shared by all monitors of the same class.
+   */
+  public PortMonitorStatistics getStatistics() {
+    return statistics;
+  }
+
+  /**
+   * Records the start of a check in the {@linkplain #getStatistics() statistics} of this monitor class.
+   * Every call must be followed by exactly one call to {@link #checkCompleted(long, java.lang.Throwable)}.
+   * The monitors in this package record each check, whether run by {@link #checkPort()} or
+   * {@link #checkPortAsync(java.util.concurrent.Executor, java.time.Duration)}.
+   *
+   * @return  the start time, from {@link System#nanoTime()}
+   */
+  protected final long checkStarted() {
+    return statistics.started();
+  }
+
+  /**
+   * Records the end of a check started by {@link #checkStarted()}.
+   *
+   * @param  failure  the failure or {@code null} on success
+   */
+  protected final void checkCompleted(long startNanos, Throwable failure) {
+    statistics.completed(startNanos, failure, canceled);
   }
 
   /**
@@ -164,4 +200,71 @@ public abstract class PortMonitor {
    * @return  the message indicating success
    */
   public abstract String checkPort() throws Exception;
+
+  /**
+   * Checks the port, returning the message of {@link #checkPort()} along with where the time was spent,
+   * the bytes transferred, and any TLS handshake.
+   *
+   * <p>This default implementation only measures the total time of {@link #checkPort()}.  Monitors that
+   * track their phases override this method.</p>
+   *
+   * @see  #checkPort()
+   */
+  public PortCheckResult checkPortResult() throws Exception {
+    long startNanos = System.nanoTime();
+    String message = checkPort();
+    return new PortCheckResult(message, System.nanoTime() - startNanos);
+  }
+
+  /**
+   * Checks the port asynchronously.  The future is completed with the result of {@link #checkPort()},
+   * or with a {@link TimeoutException} once the timeout passes.  On timeout, or when the future is
+   * canceled, {@link #cancel()} is called.
+   *
+   * <p>This default implementation runs {@link #checkPort()} on the given executor.  Monitors that
+   * are able to check without blocking a thread may override this method.</p>
+   *
+   * @param  executor  the executor that runs {@link #checkPort()}
+   * @param  timeout  the timeout, measured from when this method is called
+   *
+   * @see  #checkPort()
+   * @see  #cancel()
+   */
+  public CompletableFuture<String> checkPortAsync(Executor executor, Duration timeout) {
+    if (timeout.isNegative() || timeout.isZero()) {
+      throw new IllegalArgumentException("timeout must be positive: " + timeout);
+    }
+    CompletableFuture<String> future = new CompletableFuture<>();
+    HashedTimingWheel.Timeout deadline = Deadlines.schedule(
+        () -> {
+          if (future.completeExceptionally(new TimeoutException(
+              "Check timed out after " + timeout.toMillis() + " ms: " + ipAddress + ":" + port
+          ))) {
+            Deadlines.cancel(this);
+          }
+        },
+        timeout.toNanos(),
+        TimeUnit.NANOSECONDS
+    );
+    future.whenComplete((result, t) -> {
+      deadline.cancel();
+      if (future.isCancelled()) {
+        cancel();
+      }
+    });
+    try {
+      executor.execute(() -> {
+        if (!future.isDone()) {
+          try {
+            future.complete(checkPort());
+          } catch (Throwable t) {
+            future.completeExceptionally(t);
+          }
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
 }
@@ -0,0 +1,633 @@
+/*
+ * noc-monitor-portmon - Port monitoring implementations.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of noc-monitor-portmon.
+ *
+ * noc-monitor-portmon is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * noc-monitor-portmon is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with noc-monitor-portmon.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.noc.monitor.portmon;
+
+import com.aoapps.net.InetAddress;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs {@link PortMonitor#checkPort()} in the background, enforcing a deadline
+ * per check by calling {@link PortMonitor#cancel()} once the deadline passes.
+ *
+ * <p>Checks are run on virtual threads when available (Java 21+), otherwise on a fixed
+ * pool of platform threads.  Since most checks spend nearly all their time blocked on
+ * the network, virtual threads allow any number of concurrent checks without a
+ * parked platform thread for each.</p>
+ *
+ * <p>At most <code>maxPerHost</code> checks of the same IP address are run at a time, so servers
+ * with many monitored ports are not sent a burst of connections.  Further checks of the host wait,
+ * in order, without holding a thread.  Since each host has at most <code>maxPerHost</code> checks
+ * queued for a thread, hosts with many checks take turns with all other hosts.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+public class PortMonitorExecutor implements AutoCloseable {
+
+  private static final Logger logger = Logger.getLogger(PortMonitorExecutor.class.getName());
+
+  /**
+   * The default deadline for each check, matching the default total timeout.
+   */
+  public static final Duration DEFAULT_TIMEOUT = Duration.ofMillis(Timeouts.DEFAULT_TOTAL);
+
+  /**
+   * The default number of platform threads used when virtual threads are not available.
+   */
+  public static final int DEFAULT_PLATFORM_THREADS = 256;
+
+  /**
+   * The default maximum number of checks run at a time per IP address.
+   */
+  public static final int DEFAULT_MAX_PER_HOST = 8;
+
+  /**
+   * The number of independently locked stripes of hosts.
+   */
+  private static final int HOST_STRIPES = 64;
+
+  private static final AtomicInteger executorCounter = new AtomicInteger();
+
+  /**
+   * Creates a virtual thread per task executor by reflection, since the minimum Java version is 11.
+   *
+   * @return  the executor or {@code null} when virtual threads are not supported
+   */
+  private static ExecutorService newVirtualThreadPerTaskExecutor() {
+    try {
+      Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService) method.invoke(null);
+    } catch (NoSuchMethodException e) {
+      // Java < 19
+      return null;
+    } catch (InvocationTargetException e) {
+      // Java 19 and 20 without --enable-preview
+      logger.log(Level.FINE, "Virtual threads not available", e.getCause());
+      return null;
+    } catch (IllegalAccessException e) {
+      throw new AssertionError("Public method should be accessible", e);
+    }
+  }
+
+  private static ExecutorService newPlatformThreadExecutor(int platformThreads) {
+    int executorNum = executorCounter.incrementAndGet();
+    AtomicInteger threadCounter = new AtomicInteger();
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(
+        platformThreads,
+        platformThreads,
+        60,
+        TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(),
+        r -> {
+          Thread thread = new Thread(r, PortMonitorExecutor.class.getSimpleName() + executorNum + "-" + threadCounter.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        }
+    );
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  /**
+   * The checks of one host, guarded by the lock of its stripe.
+   */
+  private static final class Host {
+    private int running;
+    private final Queue<Check> waiting = new ArrayDeque<>();
+  }
+
+  /**
+   * A stripe of hosts, locked on itself.
+   */
+  private static final class HostStripe {
+    private final Map<InetAddress, Host> hosts = new HashMap<>();
+  }
+
+  private final Duration defaultTimeout;
+  private final ExecutorService executor;
+  private final boolean virtual;
+  private final int maxPerHost;
+  private final HostStripe[] hostStripes;
+
+  /**
+   * Checks that have been submitted and not yet completed.
+   */
+  private final Set<Check> outstanding = ConcurrentHashMap.newKeySet();
+
+  private final LongAdder submitted = new LongAdder();
+  private final LongAdder started = new LongAdder();
+  private final LongAdder succeeded = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+  private final LongAdder timedOut = new LongAdder();
+  private final LongAdder canceled = new LongAdder();
+  private final LongAdder hostWaits = new LongAdder();
+  private final LongAdder hostWaitNanos = new LongAdder();
+  private final LongAccumulator maxHostWaitNanos = new LongAccumulator(Math::max, 0);
+  private final LongAdder queueWaitNanos = new LongAdder();
+  private final LongAccumulator maxQueueWaitNanos = new LongAccumulator(Math::max, 0);
+  private final LongAdder runNanos = new LongAdder();
+  private final LongAccumulator maxRunNanos = new LongAccumulator(Math::max, 0);
+
+  /**
+   * Creates a new executor.
+   *
+   * @param  defaultTimeout  the deadline for checks submitted without their own timeout
+   * @param  platformThreads  the number of platform threads used when virtual threads are not available
+   * @param  preferVirtual  when {@code false}, always uses platform threads
+   * @param  maxPerHost  the maximum number of checks run at a time per IP address
+   */
+  public PortMonitorExecutor(Duration defaultTimeout, int platformThreads, boolean preferVirtual, int maxPerHost) {
+    if (defaultTimeout.isNegative() || defaultTimeout.isZero()) {
+      throw new IllegalArgumentException("defaultTimeout must be positive: " + defaultTimeout);
+    }
+    if (platformThreads < 1) {
+      throw new IllegalArgumentException("platformThreads < 1: " + platformThreads);
+    }
+    if (maxPerHost < 1) {
+      throw new IllegalArgumentException("maxPerHost < 1: " + maxPerHost);
+    }
+    this.defaultTimeout = defaultTimeout;
+    this.maxPerHost = maxPerHost;
+    hostStripes = new HostStripe[HOST_STRIPES];
+    for (int i = 0; i < HOST_STRIPES; i++) {
+      hostStripes[i] = new HostStripe();
+    }
+    ExecutorService virtualExecutor = preferVirtual ? newVirtualThreadPerTaskExecutor() : null;
+    if (virtualExecutor != null) {
+      executor = virtualExecutor;
+      virtual = true;
+    } else {
+      executor = newPlatformThreadExecutor(platformThreads);
+      virtual = false;
+    }
+  }
+
+  /**
+   * Creates a new executor with the default maximum checks per host.
+   *
+   * @see  #PortMonitorExecutor(java.time.Duration, int, boolean, int)
+   */
+  public PortMonitorExecutor(Duration defaultTimeout, int platformThreads, boolean preferVirtual) {
+    this(defaultTimeout, platformThreads, preferVirtual, DEFAULT_MAX_PER_HOST);
+  }
+
+  /**
+   * Creates a new executor, preferring virtual threads.
+   */
+  public PortMonitorExecutor(Duration defaultTimeout) {
+    this(defaultTimeout, DEFAULT_PLATFORM_THREADS, true);
+  }
+
+  /**
+   * Creates a new executor, preferring virtual threads, with the default timeout.
+   */
+  public PortMonitorExecutor() {
+    this(DEFAULT_TIMEOUT);
+  }
+
+  /**
+   * Are checks being run on virtual threads?
+   */
+  public boolean isVirtual() {
+    return virtual;
+  }
+
+  /**
+   * Gets the maximum number of checks run at a time per IP address.
+   */
+  public int getMaxPerHost() {
+    return maxPerHost;
+  }
+
+  /**
+   * A single submitted check.
+   */
+  private final class Check implements Runnable {
+
+    private final PortMonitor monitor;
+    private final long timeoutNanos;
+    private final long submittedNanos = System.nanoTime();
+    /**
+     * When given to the executor, after any wait for the host.
+     */
+    private long dispatchedNanos;
+    private final CompletableFuture<String> future = new CompletableFuture<>();
+    private volatile HashedTimingWheel.Timeout deadline;
+
+    private Check(PortMonitor monitor, long timeoutNanos) {
+      this.monitor = monitor;
+      this.timeoutNanos = timeoutNanos;
+    }
+
+    @Override
+    public void run() {
+      try {
+        if (future.isDone()) {
+          // Canceled while queued
+          return;
+        }
+        long startNanos = System.nanoTime();
+        long queueWait = startNanos - dispatchedNanos;
+        queueWaitNanos.add(queueWait);
+        maxQueueWaitNanos.accumulate(queueWait);
+        started.increment();
+        deadline = Deadlines.schedule(this::timeout, timeoutNanos, TimeUnit.NANOSECONDS);
+        try {
+          String result = monitor.checkPort();
+          if (future.complete(result)) {
+            succeeded.increment();
+          }
+        } catch (Throwable t) {
+          if (future.completeExceptionally(t)) {
+            failed.increment();
+          }
+        } finally {
+          long run = System.nanoTime() - startNanos;
+          runNanos.add(run);
+          maxRunNanos.accumulate(run);
+        }
+      } finally {
+        // Only released once checkPort() has returned, even after a deadline
+        releaseHost(this);
+      }
+    }
+
+    private void timeout() {
+      if (future.completeExceptionally(new TimeoutException(
+          "Check timed out after " + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + " ms: " + monitor.ipAddress + ":" + monitor.port
+      ))) {
+        timedOut.increment();
+        Deadlines.cancel(monitor);
+      }
+    }
+
+    /**
+     * Called once the future is completed by any means.
+     */
+    private void done() {
+      outstanding.remove(this);
+      HashedTimingWheel.Timeout myDeadline = deadline;
+      if (myDeadline != null) {
+        myDeadline.cancel();
+      }
+      if (future.isCancelled()) {
+        canceled.increment();
+        monitor.cancel();
+      }
+    }
+  }
+
+  private HostStripe getHostStripe(InetAddress host) {
+    int hash = host.hashCode();
+    return hostStripes[(hash ^ (hash >>> 16)) & (HOST_STRIPES - 1)];
+  }
+
+  /**
+   * Dispatches the check when its host is below the limit, otherwise queues it for the host.
+   */
+  private void acquireHost(Check check) {
+    InetAddress host = check.monitor.ipAddress;
+    HostStripe stripe = getHostStripe(host);
+    synchronized (stripe) {
+      Host h = stripe.hosts.computeIfAbsent(host, k -> new Host());
+      if (h.running >= maxPerHost) {
+        h.waiting.add(check);
+        hostWaits.increment();
+        return;
+      }
+      h.running++;
+    }
+    dispatch(check);
+  }
+
+  /**
+   * Passes the host permit of a finished check to the next check waiting for the host.
+   */
+  private void releaseHost(Check check) {
+    InetAddress host = check.monitor.ipAddress;
+    HostStripe stripe = getHostStripe(host);
+    Check next;
+    synchronized (stripe) {
+      Host h = stripe.hosts.get(host);
+      do {
+        next = h.waiting.poll();
+        // Skip checks canceled while waiting
+      } while (next != null && next.future.isDone());
+      if (next == null && --h.running == 0) {
+        stripe.hosts.remove(host);
+      }
+    }
+    if (next != null) {
+      dispatch(next);
+    }
+  }
+
+  private void dispatch(Check check) {
+    long now = System.nanoTime();
+    check.dispatchedNanos = now;
+    long hostWait = now - check.submittedNanos;
+    hostWaitNanos.add(hostWait);
+    maxHostWaitNanos.accumulate(hostWait);
+    try {
+      executor.execute(check);
+    } catch (RejectedExecutionException e) {
+      check.future.completeExceptionally(e);
+      releaseHost(check);
+    }
+  }
+
+  /**
+   * Submits a check with the given deadline.
+   *
+   * <p>When the deadline passes, the returned future is completed with a {@link TimeoutException}
+   * and {@link PortMonitor#cancel()} is called.  Canceling the returned future also cancels the monitor.</p>
+   *
+   * <p>When the host of the monitor already has <code>maxPerHost</code> checks running, the check
+   * waits for one of them to finish before being queued for a thread.</p>
+   *
+   * @param  timeout  the deadline, measured from when the check starts running
+   */
+  public CompletableFuture<String> submit(PortMonitor monitor, Duration timeout) {
+    if (timeout.isNegative() || timeout.isZero()) {
+      throw new IllegalArgumentException("timeout must be positive: " + timeout);
+    }
+    Check check = new Check(monitor, timeout.toNanos());
+    submitted.increment();
+    outstanding.add(check);
+    check.future.whenComplete((result, t) -> check.done());
+    acquireHost(check);
+    return check.future;
+  }
+
+  /**
+   * Submits a check with the default deadline.
+   *
+   * @see  #submit(PortMonitor, Duration)
+   */
+  public CompletableFuture<String> submit(PortMonitor monitor) {
+    return submit(monitor, defaultTimeout);
+  }
+
+  /**
+   * Submits a batch of checks with the default deadline.
+   *
+   * @return  the futures in the iteration order of the monitors
+   */
+  public List<CompletableFuture<String>> submitAll(Collection<? extends PortMonitor> monitors) {
+    List<CompletableFuture<String>> futures = new ArrayList<>(monitors.size());
+    for (PortMonitor monitor : monitors) {
+      futures.add(submit(monitor));
+    }
+    return futures;
+  }
+
+  /**
+   * A point-in-time snapshot of the executor statistics.
+   */
+  public static final class Statistics {
+
+    private final boolean virtual;
+    private final long submitted;
+    private final long started;
+    private final long succeeded;
+    private final long failed;
+    private final long timedOut;
+    private final long canceled;
+    private final int outstanding;
+    private final long hostWaits;
+    private final long hostWaitNanos;
+    private final long maxHostWaitNanos;
+    private final long queueWaitNanos;
+    private final long maxQueueWaitNanos;
+    private final long runNanos;
+    private final long maxRunNanos;
+
+    private Statistics(PortMonitorExecutor executor) {
+      virtual = executor.virtual;
+      submitted = executor.submitted.sum();
+      started = executor.started.sum();
+      succeeded = executor.succeeded.sum();
+      failed = executor.failed.sum();
+      timedOut = executor.timedOut.sum();
+      canceled = executor.canceled.sum();
+      outstanding = executor.outstanding.size();
+      hostWaits = executor.hostWaits.sum();
+      hostWaitNanos = executor.hostWaitNanos.sum();
+      maxHostWaitNanos = executor.maxHostWaitNanos.get();
+      queueWaitNanos = executor.queueWaitNanos.sum();
+      maxQueueWaitNanos = executor.maxQueueWaitNanos.get();
+      runNanos = executor.runNanos.sum();
+      maxRunNanos = executor.maxRunNanos.get();
+    }
+
+    @Override
+    public String toString() {
+      return Statistics.class.getName()
+          + "(virtual=" + virtual
+          + ", submitted=" + submitted
+          + ", started=" + started
+          + ", succeeded=" + succeeded
+          + ", failed=" + failed
+          + ", timedOut=" + timedOut
+          + ", canceled=" + canceled
+          + ", outstanding=" + outstanding
+          + ", hostWaits=" + hostWaits
+          + ", averageHostWait=" + TimeUnit.NANOSECONDS.toMillis(getAverageHostWaitNanos()) + " ms"
+          + ", maxHostWait=" + TimeUnit.NANOSECONDS.toMillis(maxHostWaitNanos) + " ms"
+          + ", averageQueueWait=" + TimeUnit.NANOSECONDS.toMillis(getAverageQueueWaitNanos()) + " ms"
+          + ", maxQueueWait=" + TimeUnit.NANOSECONDS.toMillis(maxQueueWaitNanos) + " ms"
+          + ", averageRun=" + TimeUnit.NANOSECONDS.toMillis(getAverageRunNanos()) + " ms"
+          + ", maxRun=" + TimeUnit.NANOSECONDS.toMillis(maxRunNanos) + " ms"
+          + ')';
+    }
+
+    /**
+     * Were checks run on virtual threads?
+     */
+    public boolean isVirtual() {
+      return virtual;
+    }
+
+    /**
+     * The total number of checks submitted.
+     */
+    public long getSubmitted() {
+      return submitted;
+    }
+
+    /**
+     * The number of checks that started running.
+     */
+    public long getStarted() {
+      return started;
+    }
+
+    /**
+     * The number of checks that returned a result before their deadline.
+     */
+    public long getSucceeded() {
+      return succeeded;
+    }
+
+    /**
+     * The number of checks that threw an exception before their deadline.
+     */
+    public long getFailed() {
+      return failed;
+    }
+
+    /**
+     * The number of checks that did not complete before their deadline.
+     */
+    public long getTimedOut() {
+      return timedOut;
+    }
+
+    /**
+     * The number of checks canceled through their future.
+     */
+    public long getCanceled() {
+      return canceled;
+    }
+
+    /**
+     * The number of checks submitted and not yet completed.
+     */
+    public int getOutstanding() {
+      return outstanding;
+    }
+
+    /**
+     * The number of checks that waited for other checks of the same host to finish.
+     */
+    public long getHostWaits() {
+      return hostWaits;
+    }
+
+    /**
+     * The total time checks spent waiting for other checks of the same host to finish.
+     */
+    public long getHostWaitNanos() {
+      return hostWaitNanos;
+    }
+
+    /**
+     * The average time checks spent waiting for other checks of the same host to finish.
+     */
+    public long getAverageHostWaitNanos() {
+      return started == 0 ? 0 : (hostWaitNanos / started);
+    }
+
+    /**
+     * The longest time any check spent waiting for other checks of the same host to finish.
+     */
+    public long getMaxHostWaitNanos() {
+      return maxHostWaitNanos;
+    }
+
+    /**
+     * The total time checks spent waiting for a thread.
+     */
+    public long getQueueWaitNanos() {
+      return queueWaitNanos;
+    }
+
+    /**
+     * The average time checks spent waiting for a thread.
+     */
+    public long getAverageQueueWaitNanos() {
+      return started == 0 ? 0 : (queueWaitNanos / started);
+    }
+
+    /**
+     * The longest time any check spent waiting for a thread.
+     */
+    public long getMaxQueueWaitNanos() {
+      return maxQueueWaitNanos;
+    }
+
+    /**
+     * The total time spent in {@link PortMonitor#checkPort()}, including the time after a
+     * deadline until the monitor noticed its cancellation.
+     */
+    public long getRunNanos() {
+      return runNanos;
+    }
+
+    /**
+     * The average time spent in {@link PortMonitor#checkPort()}.
+     */
+    public long getAverageRunNanos() {
+      return started == 0 ? 0 : (runNanos / started);
+    }
+
+    /**
+     * The longest time any check spent in {@link PortMonitor#checkPort()}.
+     */
+    public long getMaxRunNanos() {
+      return maxRunNanos;
+    }
+  }
+
+  /**
+   * Gets a snapshot of the current statistics.
+   */
+  public Statistics getStatistics() {
+    return new Statistics(this);
+  }
+
+  /**
+   * Stops accepting new checks and cancels all outstanding checks.
+   */
+  @Override
+  public void close() {
+    executor.shutdown();
+    for (Check check : outstanding) {
+      check.future.cancel(false);
+    }
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * noc-monitor-portmon - Port monitoring implementations.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of noc-monitor-portmon.
+ *
+ * noc-monitor-portmon is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * noc-monitor-portmon is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with noc-monitor-portmon.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.noc.monitor.portmon;
+
+import com.aoapps.net.InetAddress;
+import com.aoapps.net.Port;
+import com.aoapps.net.Protocol;
+import com.aoapps.net.URIParameters;
+import java.util.Collection;
+
+/**
+ * Creates the monitors for one or more application protocols.  Factories are found in
+ * {@link PortMonitorRegistry}, and additional factories may be provided through
+ * {@link java.util.ServiceLoader}.
+ *
+ * @author  AO Industries, Inc.
+ */
+public interface PortMonitorFactory {
+
+  /**
+   * Gets the network protocol of the ports monitored.
+   */
+  Protocol getProtocol();
+
+  /**
+   * Gets the application protocols monitored, matching {@link com.aoindustries.aoserv.client.net.AppProtocol}.
+   */
+  Collection<String> getAppProtocols();
+
+  /**
+   * Creates a new monitor.
+   *
+   * @return  the monitor or {@code null} to use the default monitor of the network protocol
+   *
+   * @throws  IllegalArgumentException  when the monitoring parameters are invalid
+   */
+  PortMonitor newPortMonitor(InetAddress ipAddress, Port port, String appProtocol, URIParameters monitoringParameters) throws IllegalArgumentException;
+}
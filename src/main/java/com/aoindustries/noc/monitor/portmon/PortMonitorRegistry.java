@@ -0,0 +1,193 @@
+/*
+ * noc-monitor-portmon - Port monitoring implementations.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of noc-monitor-portmon.
+ *
+ * noc-monitor-portmon is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * noc-monitor-portmon is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with noc-monitor-portmon.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.noc.monitor.portmon;
+
+import com.aoapps.net.InetAddress;
+import com.aoapps.net.Port;
+import com.aoapps.net.Protocol;
+import com.aoapps.net.URIParameters;
+import com.aoindustries.aoserv.client.net.AppProtocol;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The factories used by {@link PortMonitor#getPortMonitor(com.aoapps.net.InetAddress, com.aoapps.net.Port, java.lang.String, com.aoapps.net.URIParameters)},
+ * found by network protocol and application protocol with a hash lookup.
+ *
+ * <p>The built-in factories are registered first, followed by any {@link PortMonitorFactory}
+ * provided through {@link ServiceLoader}.  A later factory for the same protocols replaces
+ * the earlier one, so providers may also replace built-in monitors.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class PortMonitorRegistry {
+
+  /** Make no instances. */
+  private PortMonitorRegistry() {
+    throw new AssertionError();
+  }
+
+  private static final Logger logger = Logger.getLogger(PortMonitorRegistry.class.getName());
+
+  @FunctionalInterface
+  private interface Constructor {
+    PortMonitor newPortMonitor(InetAddress ipAddress, Port port, URIParameters monitoringParameters);
+  }
+
+  /**
+   * A built-in factory.
+   */
+  private static final class BuiltIn implements PortMonitorFactory {
+
+    private final Protocol protocol;
+    private final Collection<String> appProtocols;
+    private final Constructor constructor;
+
+    private BuiltIn(Protocol protocol, Constructor constructor, String ... appProtocols) {
+      this.protocol = protocol;
+      this.appProtocols = Collections.unmodifiableList(Arrays.asList(appProtocols));
+      this.constructor = constructor;
+    }
+
+    @Override
+    public Protocol getProtocol() {
+      return protocol;
+    }
+
+    @Override
+    public Collection<String> getAppProtocols() {
+      return appProtocols;
+    }
+
+    @Override
+    public PortMonitor newPortMonitor(InetAddress ipAddress, Port port, String appProtocol, URIParameters monitoringParameters) {
+      return constructor.newPortMonitor(ipAddress, port, monitoringParameters);
+    }
+  }
+
+  /**
+   * The factories by network protocol then application protocol, replaced as a whole on registration.
+   */
+  private static volatile Map<Protocol, Map<String, PortMonitorFactory>> factories = new EnumMap<>(Protocol.class);
+
+  static {
+    register(new BuiltIn(
+        Protocol.TCP,
+        DefaultSslPortMonitor::new,
+        AppProtocol.AOSERV_DAEMON_SSL,
+        AppProtocol.AOSERV_MASTER_SSL
+    ));
+    register(new BuiltIn(Protocol.TCP, FtpPortMonitor::new, AppProtocol.FTP));
+    register(new BuiltIn(
+        Protocol.TCP,
+        (ipAddress, port, monitoringParameters) -> {
+          // Only checked at the HTTP level when requested, otherwise the default TCP monitor only connects
+          return HttpConfig.isRequested(monitoringParameters) ? new HttpPortMonitor(ipAddress, port, false, monitoringParameters) : null;
+        },
+        AppProtocol.HTTP
+    ));
+    register(new BuiltIn(
+        Protocol.TCP,
+        (ipAddress, port, monitoringParameters) -> {
+          if (!HttpConfig.isRequested(monitoringParameters)) {
+            // Only the TLS handshake unless checked at the HTTP level
+            return new DefaultSslPortMonitor(ipAddress, port, monitoringParameters);
+          }
+          // Use SSL unless explicitely disabled with ssl=false, matching DefaultSslPortMonitor
+          boolean ssl = !"false".equalsIgnoreCase(monitoringParameters.getParameter("ssl"));
+          return new HttpPortMonitor(ipAddress, port, ssl, monitoringParameters);
+        },
+        AppProtocol.HTTPS
+    ));
+    register(new BuiltIn(Protocol.TCP, ImapPortMonitor::new, AppProtocol.IMAP2));
+    register(new BuiltIn(Protocol.TCP, SimapPortMonitor::new, AppProtocol.SIMAP));
+    register(new BuiltIn(Protocol.TCP, MysqlPortMonitor::new, AppProtocol.MYSQL));
+    register(new BuiltIn(Protocol.TCP, Pop3PortMonitor::new, AppProtocol.POP3));
+    register(new BuiltIn(Protocol.TCP, Spop3PortMonitor::new, AppProtocol.SPOP3));
+    register(new BuiltIn(
+        Protocol.TCP,
+        (ipAddress, port, monitoringParameters) -> {
+          // PostgreSQL performs IDENT-based authentication on loopback,
+          // can't monitor with arbitrary usernames/passwords
+          return ipAddress.isLoopback() ? null : new PostgresqlPortMonitor(ipAddress, port, monitoringParameters);
+        },
+        AppProtocol.POSTGRESQL
+    ));
+    register(new BuiltIn(Protocol.TCP, SmtpPortMonitor::new, AppProtocol.SMTP, AppProtocol.SUBMISSION));
+    register(new BuiltIn(Protocol.TCP, SmtpsPortMonitor::new, AppProtocol.SMTPS));
+    register(new BuiltIn(Protocol.TCP, (ipAddress, port, monitoringParameters) -> new SshPortMonitor(ipAddress, port), AppProtocol.SSH));
+    // Only checked at the DNS level when requested, otherwise the default monitor of the network protocol
+    Constructor dns = (ipAddress, port, monitoringParameters) ->
+        DnsConfig.isRequested(monitoringParameters) ? new DnsPortMonitor(ipAddress, port, monitoringParameters) : null;
+    register(new BuiltIn(Protocol.UDP, dns, AppProtocol.DNS));
+    register(new BuiltIn(Protocol.TCP, dns, AppProtocol.DNS));
+    // Providers
+    Iterator<PortMonitorFactory> providers = ServiceLoader.load(PortMonitorFactory.class).iterator();
+    while (true) {
+      try {
+        if (!providers.hasNext()) {
+          break;
+        }
+        register(providers.next());
+      } catch (ServiceConfigurationError e) {
+        logger.log(Level.WARNING, null, e);
+      }
+    }
+  }
+
+  /**
+   * Registers a factory for all of its application protocols, replacing any factory
+   * previously registered for the same protocols.
+   */
+  public static synchronized void register(PortMonitorFactory factory) {
+    Protocol protocol = factory.getProtocol();
+    Map<Protocol, Map<String, PortMonitorFactory>> newFactories = new EnumMap<>(factories);
+    Map<String, PortMonitorFactory> byAppProtocol = newFactories.get(protocol);
+    byAppProtocol = byAppProtocol == null ? new HashMap<>() : new HashMap<>(byAppProtocol);
+    for (String appProtocol : factory.getAppProtocols()) {
+      byAppProtocol.put(appProtocol, factory);
+    }
+    newFactories.put(protocol, byAppProtocol);
+    factories = newFactories;
+  }
+
+  /**
+   * Gets the factory for the given protocols.
+   *
+   * @return  the factory or {@code null} when none registered
+   */
+  public static PortMonitorFactory getFactory(Protocol protocol, String appProtocol) {
+    Map<String, PortMonitorFactory> byAppProtocol = factories.get(protocol);
+    return byAppProtocol == null ? null : byAppProtocol.get(appProtocol);
+  }
+}
@@ -0,0 +1,452 @@
+/*
+ * noc-monitor-portmon - Port monitoring implementations.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of noc-monitor-portmon.
+ *
+ * noc-monitor-portmon is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * noc-monitor-portmon is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with noc-monitor-portmon.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.noc.monitor.portmon;
+
+import com.aoapps.net.InetAddress;
+import com.aoapps.net.Port;
+import com.aoapps.net.URIParameters;
+import java.time.Duration;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs the checks of many targets repeatedly, each on its own interval.
+ *
+ * <p>The first check of each target is offset within its interval, so the checks of any number
+ * of targets are spread evenly instead of all starting together.  Each target then keeps its
+ * phase, with the next check scheduled one interval after the start of the previous.</p>
+ *
+ * <p>Intervals adapt to the results of the checks:</p>
+ * <ul>
+ *   <li>After {@link #STABLE_SUCCESSES} consecutive successes, the interval doubles, up to the maximum interval.</li>
+ *   <li>A failure drops to the minimum interval, until {@link #FAILURE_RETRIES} consecutive failures,
+ *       after which a target still failing is checked on its base interval.</li>
+ *   <li>A successful check taking longer than the slow threshold resets to the base interval.</li>
+ * </ul>
+ *
+ * <p>At most <code>maxInFlight</code> checks are run at a time.  When this limit is reached, due checks
+ * wait their turn in order, which bounds the number of sockets open at once.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+public class PortMonitorScheduler implements AutoCloseable {
+
+  private static final Logger logger = Logger.getLogger(PortMonitorScheduler.class.getName());
+
+  /**
+   * The default maximum number of checks run at a time.
+   */
+  public static final int DEFAULT_MAX_IN_FLIGHT = 1000;
+
+  /**
+   * The number of consecutive successes before the interval of a target is doubled.
+   */
+  public static final int STABLE_SUCCESSES = 3;
+
+  /**
+   * The number of consecutive failures checked on the minimum interval.
+   */
+  public static final int FAILURE_RETRIES = 3;
+
+  /**
+   * The default minimum and maximum intervals are this fraction and multiple of the base interval.
+   */
+  private static final int INTERVAL_FACTOR = 4;
+
+  /**
+   * Spreads the first checks evenly within the interval, no matter how many targets are added.
+   */
+  private static final double GOLDEN_RATIO_CONJUGATE = 0.6180339887498949;
+
+  /**
+   * Receives the result of each check.  Called on the thread that completed the check,
+   * and must not block.
+   */
+  @FunctionalInterface
+  public interface Listener {
+    /**
+     * Called once per check.
+     *
+     * @param  result  the result when successful, otherwise {@code null}
+     * @param  error   the error when failed, otherwise {@code null}
+     */
+    void checked(Target target, String result, Throwable error);
+  }
+
+  /**
+   * A target that is checked repeatedly.
+   */
+  public final class Target {
+
+    private final Supplier<? extends PortMonitor> monitors;
+    private final long minIntervalNanos;
+    private final long baseIntervalNanos;
+    private final long maxIntervalNanos;
+    private final Listener listener;
+
+    // All guarded by lock
+    private long nextStartNanos;
+    private boolean removed;
+
+    private volatile long intervalNanos;
+    private volatile int consecutiveSuccesses;
+    private volatile int consecutiveFailures;
+    private volatile long lastRunNanos;
+
+    private Target(
+        Supplier<? extends PortMonitor> monitors,
+        long minIntervalNanos,
+        long baseIntervalNanos,
+        long maxIntervalNanos,
+        Listener listener
+    ) {
+      this.monitors = monitors;
+      this.minIntervalNanos = minIntervalNanos;
+      this.baseIntervalNanos = baseIntervalNanos;
+      this.maxIntervalNanos = maxIntervalNanos;
+      this.listener = listener;
+      this.intervalNanos = baseIntervalNanos;
+    }
+
+    /**
+     * Gets the interval until the next check.
+     */
+    public Duration getInterval() {
+      return Duration.ofNanos(intervalNanos);
+    }
+
+    /**
+     * Gets the base interval, used until the target is stable.
+     */
+    public Duration getBaseInterval() {
+      return Duration.ofNanos(baseIntervalNanos);
+    }
+
+    /**
+     * Gets the number of consecutive successful checks.
+     */
+    public int getConsecutiveSuccesses() {
+      return consecutiveSuccesses;
+    }
+
+    /**
+     * Gets the number of consecutive failed checks.
+     */
+    public int getConsecutiveFailures() {
+      return consecutiveFailures;
+    }
+
+    /**
+     * Gets the time taken by the most recent check, or {@link Duration#ZERO} before the first check.
+     */
+    public Duration getLastRun() {
+      return Duration.ofNanos(lastRunNanos);
+    }
+
+    /**
+     * Stops checking this target.  A check already running is allowed to complete,
+     * but its result is not reported.
+     */
+    public void remove() {
+      synchronized (lock) {
+        if (!removed) {
+          removed = true;
+          queue.remove(this);
+          targetCount--;
+        }
+      }
+    }
+
+    /**
+     * Updates the interval for the result of a check.
+     */
+    private void adapt(boolean successful, long runNanos) {
+      lastRunNanos = runNanos;
+      if (successful) {
+        consecutiveFailures = 0;
+        int successes = consecutiveSuccesses + 1;
+        if (runNanos > slowNanos) {
+          // Slow: not stable
+          successes = 0;
+          intervalNanos = baseIntervalNanos;
+        } else if (intervalNanos < baseIntervalNanos) {
+          // Recovered
+          intervalNanos = baseIntervalNanos;
+        } else if (successes >= STABLE_SUCCESSES) {
+          successes = 0;
+          intervalNanos = Math.min(intervalNanos * 2, maxIntervalNanos);
+        }
+        consecutiveSuccesses = successes;
+      } else {
+        consecutiveSuccesses = 0;
+        int failures = consecutiveFailures + 1;
+        intervalNanos = failures <= FAILURE_RETRIES ? minIntervalNanos : baseIntervalNanos;
+        consecutiveFailures = failures;
+      }
+    }
+  }
+
+  private final PortMonitorExecutor executor;
+  private final boolean ownsExecutor;
+  private final Duration timeout;
+  private final long slowNanos;
+  private final int maxInFlight;
+  private final Semaphore inFlight;
+
+  private final Object lock = new Object();
+  // All guarded by lock
+  private final PriorityQueue<Target> queue = new PriorityQueue<>(
+      (t1, t2) -> Long.signum(t1.nextStartNanos - t2.nextStartNanos)
+  );
+  private long added;
+  private int targetCount;
+  private boolean closed;
+
+  private final Thread dispatcher;
+
+  private PortMonitorScheduler(PortMonitorExecutor executor, boolean ownsExecutor, Duration timeout, Duration slow, int maxInFlight) {
+    if (timeout.isNegative() || timeout.isZero()) {
+      throw new IllegalArgumentException("timeout must be positive: " + timeout);
+    }
+    if (slow.isNegative() || slow.isZero()) {
+      throw new IllegalArgumentException("slow must be positive: " + slow);
+    }
+    if (maxInFlight < 1) {
+      throw new IllegalArgumentException("maxInFlight < 1: " + maxInFlight);
+    }
+    this.executor = executor;
+    this.ownsExecutor = ownsExecutor;
+    this.timeout = timeout;
+    this.slowNanos = slow.toNanos();
+    this.maxInFlight = maxInFlight;
+    this.inFlight = new Semaphore(maxInFlight);
+    dispatcher = new Thread(this::dispatch, PortMonitorScheduler.class.getName());
+    dispatcher.setDaemon(true);
+    dispatcher.start();
+  }
+
+  /**
+   * Creates a new scheduler running its checks on the given executor, which is not closed
+   * by {@link #close()}.
+   *
+   * @param  timeout  the deadline of each check
+   * @param  slow     successful checks taking longer than this are not considered stable
+   */
+  public PortMonitorScheduler(PortMonitorExecutor executor, Duration timeout, Duration slow, int maxInFlight) {
+    this(executor, false, timeout, slow, maxInFlight);
+  }
+
+  /**
+   * Creates a new scheduler with its own executor, the default deadline, and the default
+   * maximum number of checks at a time.  Checks taking over a quarter of the deadline are
+   * considered slow.
+   */
+  public PortMonitorScheduler() {
+    this(
+        new PortMonitorExecutor(),
+        true,
+        PortMonitorExecutor.DEFAULT_TIMEOUT,
+        PortMonitorExecutor.DEFAULT_TIMEOUT.dividedBy(INTERVAL_FACTOR),
+        DEFAULT_MAX_IN_FLIGHT
+    );
+  }
+
+  /**
+   * Adds a target.  The first check is spread within the base interval.
+   *
+   * @param  monitors     creates the monitor for each check, such as a {@link TieredTarget}
+   * @param  minInterval  the interval after a new failure
+   * @param  interval     the base interval
+   * @param  maxInterval  the longest interval of a stable target
+   */
+  public Target add(
+      Supplier<? extends PortMonitor> monitors,
+      Duration minInterval,
+      Duration interval,
+      Duration maxInterval,
+      Listener listener
+  ) {
+    if (minInterval.isNegative() || minInterval.isZero()) {
+      throw new IllegalArgumentException("minInterval must be positive: " + minInterval);
+    }
+    if (interval.compareTo(minInterval) < 0) {
+      throw new IllegalArgumentException("interval < minInterval: " + interval + " < " + minInterval);
+    }
+    if (maxInterval.compareTo(interval) < 0) {
+      throw new IllegalArgumentException("maxInterval < interval: " + maxInterval + " < " + interval);
+    }
+    Target target = new Target(monitors, minInterval.toNanos(), interval.toNanos(), maxInterval.toNanos(), listener);
+    synchronized (lock) {
+      if (closed) {
+        throw new IllegalStateException("Scheduler closed");
+      }
+      double fraction = (added++ * GOLDEN_RATIO_CONJUGATE) % 1;
+      target.nextStartNanos = System.nanoTime() + (long) (fraction * target.baseIntervalNanos);
+      queue.add(target);
+      targetCount++;
+      lock.notify();
+    }
+    return target;
+  }
+
+  /**
+   * Adds a target with a minimum interval of a quarter of the base interval and a maximum
+   * interval of four times the base interval.
+   *
+   * @see  #add(java.util.function.Supplier, java.time.Duration, java.time.Duration, java.time.Duration, com.aoindustries.noc.monitor.portmon.PortMonitorScheduler.Listener)
+   */
+  public Target add(Supplier<? extends PortMonitor> monitors, Duration interval, Listener listener) {
+    return add(
+        monitors,
+        interval.dividedBy(INTERVAL_FACTOR),
+        interval,
+        interval.multipliedBy(INTERVAL_FACTOR),
+        listener
+    );
+  }
+
+  /**
+   * Adds a target checked by new monitors from {@link PortMonitor#getPortMonitor(com.aoapps.net.InetAddress, com.aoapps.net.Port, java.lang.String, com.aoapps.net.URIParameters)}.
+   *
+   * @see  #add(java.util.function.Supplier, java.time.Duration, com.aoindustries.noc.monitor.portmon.PortMonitorScheduler.Listener)
+   */
+  public Target add(InetAddress ipAddress, Port port, String appProtocol, URIParameters monitoringParameters, Duration interval, Listener listener) {
+    // Fail on add for unsupported protocols
+    PortMonitor.getPortMonitor(ipAddress, port, appProtocol, monitoringParameters);
+    return add(
+        () -> PortMonitor.getPortMonitor(ipAddress, port, appProtocol, monitoringParameters),
+        interval,
+        listener
+    );
+  }
+
+  /**
+   * Gets the number of targets.
+   */
+  public int getTargetCount() {
+    synchronized (lock) {
+      return targetCount;
+    }
+  }
+
+  /**
+   * Gets the number of checks currently running.
+   */
+  public int getInFlight() {
+    return maxInFlight - inFlight.availablePermits();
+  }
+
+  /**
+   * Waits for each target to become due, then starts its check once under the in-flight limit.
+   */
+  private void dispatch() {
+    try {
+      while (true) {
+        Target target;
+        synchronized (lock) {
+          while (true) {
+            if (closed) {
+              return;
+            }
+            Target head = queue.peek();
+            if (head == null) {
+              lock.wait();
+            } else {
+              long delay = head.nextStartNanos - System.nanoTime();
+              if (delay <= 0) {
+                target = queue.poll();
+                break;
+              }
+              TimeUnit.NANOSECONDS.timedWait(lock, delay);
+            }
+          }
+        }
+        inFlight.acquire();
+        start(target);
+      }
+    } catch (InterruptedException e) {
+      // Closed
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void start(Target target) {
+    long startNanos = System.nanoTime();
+    CompletableFuture<String> future;
+    try {
+      future = executor.submit(target.monitors.get(), timeout);
+    } catch (RuntimeException e) {
+      future = new CompletableFuture<>();
+      future.completeExceptionally(e);
+    }
+    future.whenComplete((result, error) -> {
+      inFlight.release();
+      completed(target, startNanos, result, error);
+    });
+  }
+
+  private void completed(Target target, long startNanos, String result, Throwable error) {
+    long now = System.nanoTime();
+    synchronized (lock) {
+      if (target.removed || closed) {
+        return;
+      }
+      target.adapt(error == null, now - startNanos);
+      // Keep phase, unless the check ran past its next start
+      long next = target.nextStartNanos + target.intervalNanos;
+      target.nextStartNanos = next - now < 0 ? now : next;
+      queue.add(target);
+      lock.notify();
+    }
+    if (target.listener != null) {
+      try {
+        target.listener.checked(target, result, error);
+      } catch (Throwable t) {
+        logger.log(Level.WARNING, null, t);
+      }
+    }
+  }
+
+  /**
+   * Stops checking all targets.  When the executor was created by this scheduler, it is
+   * also closed, canceling any running checks.
+   */
+  @Override
+  public void close() {
+    synchronized (lock) {
+      closed = true;
+      queue.clear();
+      lock.notify();
+    }
+    dispatcher.interrupt();
+    if (ownsExecutor) {
+      executor.close();
+    }
+  }
+}
@@ -0,0 +1,339 @@
+/*
+ * noc-monitor-portmon - Port monitoring implementations.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of noc-monitor-portmon.
+ *
+ * noc-monitor-portmon is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * noc-monitor-portmon is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with noc-monitor-portmon.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.noc.monitor.portmon;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.PortUnreachableException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.net.ssl.SSLException;
+
+/**
+ * Counts the checks of one monitor class and the latencies of the checks completed.
+ * Each monitor class is registered with the platform MBean server on first use, named
+ * <code>com.aoindustries.noc.monitor.portmon:type=PortMonitorStatistics,name=<i>monitor class</i></code>.
+ *
+ * <p>Counters are {@link LongAdder} and the latencies a fixed-size histogram, so recording is
+ * cheap enough for every check, even with many concurrent checks.</p>
+ *
+ * <p>Latencies are recorded for successful and failed checks.  Checks that fail after
+ * {@link PortMonitor#cancel()}, such as after a deadline of {@link PortMonitorExecutor}, are
+ * only counted as cancellations.</p>
+ *
+ * @see  PortMonitor#getStatistics()
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class PortMonitorStatistics implements PortMonitorStatisticsMBean {
+
+  private static final Logger logger = Logger.getLogger(PortMonitorStatistics.class.getName());
+
+  /**
+   * The domain of the registered MBeans.
+   */
+  public static final String JMX_DOMAIN = "com.aoindustries.noc.monitor.portmon";
+
+  /**
+   * The causes of failed checks.
+   */
+  public enum FailureCause {
+
+    /**
+     * Timed out in any phase, or by the deadline of an asynchronous check.
+     */
+    TIMEOUT,
+
+    /**
+     * Failed to connect, usually refused by the host.
+     */
+    REFUSED,
+
+    /**
+     * The host or port is unreachable, including an ICMP port unreachable for UDP.
+     */
+    UNREACHABLE,
+
+    /**
+     * Failed in the TLS handshake or over TLS.
+     */
+    TLS,
+
+    /**
+     * Any other I/O or database failure, such as an unexpected response or a closed connection.
+     */
+    PROTOCOL,
+
+    /**
+     * Any other failure.
+     */
+    OTHER;
+
+    /**
+     * The maximum number of causes followed.
+     */
+    private static final int MAX_CAUSES = 8;
+
+    /**
+     * Gets the cause of the given failure, following its causes.
+     */
+    public static FailureCause valueOf(Throwable failure) {
+      Throwable t = failure;
+      for (int i = 0; t != null && i < MAX_CAUSES; i++) {
+        if (
+            t instanceof SocketTimeoutException
+                || t instanceof TimeoutException
+                || t instanceof SQLTimeoutException
+        ) {
+          return TIMEOUT;
+        }
+        if (t instanceof ConnectException) {
+          return REFUSED;
+        }
+        if (
+            t instanceof NoRouteToHostException
+                || t instanceof PortUnreachableException
+                || t instanceof UnknownHostException
+        ) {
+          return UNREACHABLE;
+        }
+        if (t instanceof SSLException) {
+          return TLS;
+        }
+        t = t.getCause();
+      }
+      t = failure;
+      for (int i = 0; t != null && i < MAX_CAUSES; i++) {
+        if (t instanceof IOException || t instanceof SQLException) {
+          return PROTOCOL;
+        }
+        t = t.getCause();
+      }
+      return OTHER;
+    }
+  }
+
+  private static final FailureCause[] CAUSES = FailureCause.values();
+
+  private static final ClassValue<PortMonitorStatistics> instances = new ClassValue<PortMonitorStatistics>() {
+    @Override
+    protected PortMonitorStatistics computeValue(Class<?> type) {
+      PortMonitorStatistics statistics = new PortMonitorStatistics(type.getName());
+      try {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(
+            statistics,
+            new ObjectName(JMX_DOMAIN + ":type=" + PortMonitorStatistics.class.getSimpleName() + ",name=" + type.getName())
+        );
+      } catch (JMException | SecurityException e) {
+        // Still counted, only not visible through JMX, such as when loaded by more than one class loader
+        logger.log(Level.WARNING, null, e);
+      }
+      return statistics;
+    }
+  };
+
+  /**
+   * Gets the statistics of the given monitor class, registering its MBean on first use.
+   */
+  public static PortMonitorStatistics getInstance(Class<? extends PortMonitor> monitorClass) {
+    return instances.get(monitorClass);
+  }
+
+  private final String monitorClass;
+  private final LongAdder attempts = new LongAdder();
+  private final LongAdder successes = new LongAdder();
+  private final LongAdder[] failures = new LongAdder[CAUSES.length];
+  private final LongAdder cancellations = new LongAdder();
+  private final LongAdder inFlight = new LongAdder();
+  private final LongAccumulator maxLatencyNanos = new LongAccumulator(Math::max, 0);
+  private final LatencyHistogram latencies = new LatencyHistogram();
+
+  private PortMonitorStatistics(String monitorClass) {
+    this.monitorClass = monitorClass;
+    for (int i = 0; i < failures.length; i++) {
+      failures[i] = new LongAdder();
+    }
+  }
+
+  /**
+   * Records the start of a check.
+   *
+   * @return  the start time, from {@link System#nanoTime()}
+   */
+  long started() {
+    attempts.increment();
+    inFlight.increment();
+    return System.nanoTime();
+  }
+
+  /**
+   * Records the end of a check.
+   *
+   * @param  failure  the failure or {@code null} on success
+   */
+  void completed(long startNanos, Throwable failure, boolean canceled) {
+    long latency = System.nanoTime() - startNanos;
+    inFlight.decrement();
+    if (failure == null) {
+      successes.increment();
+    } else if (canceled || failure instanceof CancellationException) {
+      cancellations.increment();
+      return;
+    } else {
+      failures[FailureCause.valueOf(failure).ordinal()].increment();
+    }
+    maxLatencyNanos.accumulate(latency);
+    latencies.record(latency);
+  }
+
+  @Override
+  public String getMonitorClass() {
+    return monitorClass;
+  }
+
+  @Override
+  public long getAttempts() {
+    return attempts.sum();
+  }
+
+  @Override
+  public long getSuccesses() {
+    return successes.sum();
+  }
+
+  @Override
+  public long getFailures() {
+    long sum = 0;
+    for (LongAdder failure : failures) {
+      sum += failure.sum();
+    }
+    return sum;
+  }
+
+  /**
+   * Gets the number of checks that failed for the given cause.
+   */
+  public long getFailures(FailureCause cause) {
+    return failures[cause.ordinal()].sum();
+  }
+
+  @Override
+  public long getTimeoutFailures() {
+    return getFailures(FailureCause.TIMEOUT);
+  }
+
+  @Override
+  public long getRefusedFailures() {
+    return getFailures(FailureCause.REFUSED);
+  }
+
+  @Override
+  public long getUnreachableFailures() {
+    return getFailures(FailureCause.UNREACHABLE);
+  }
+
+  @Override
+  public long getTlsFailures() {
+    return getFailures(FailureCause.TLS);
+  }
+
+  @Override
+  public long getProtocolFailures() {
+    return getFailures(FailureCause.PROTOCOL);
+  }
+
+  @Override
+  public long getOtherFailures() {
+    return getFailures(FailureCause.OTHER);
+  }
+
+  @Override
+  public long getCancellations() {
+    return cancellations.sum();
+  }
+
+  @Override
+  public long getInFlight() {
+    return inFlight.sum();
+  }
+
+  @Override
+  public long getMaxLatencyNanos() {
+    return maxLatencyNanos.get();
+  }
+
+  /**
+   * Gets the upper limit of the bucket containing the given percentile, limited by the longest latency.
+   */
+  private long getPercentile(double percentile) {
+    return Math.min(LatencyHistogram.getPercentile(latencies.getCounts(), percentile), maxLatencyNanos.get());
+  }
+
+  @Override
+  public long getLatency50thPercentileNanos() {
+    return getPercentile(50);
+  }
+
+  @Override
+  public long getLatency90thPercentileNanos() {
+    return getPercentile(90);
+  }
+
+  @Override
+  public long getLatency99thPercentileNanos() {
+    return getPercentile(99);
+  }
+
+  @Override
+  public long[] getLatencyHistogram() {
+    return latencies.getCounts();
+  }
+
+  @Override
+  public long[] getLatencyBucketLimitsNanos() {
+    return LatencyHistogram.getLimits();
+  }
+
+  @Override
+  public String toString() {
+    return monitorClass
+        + ": attempts=" + getAttempts()
+        + ", successes=" + getSuccesses()
+        + ", failures=" + getFailures()
+        + ", cancellations=" + getCancellations()
+        + ", inFlight=" + getInFlight();
+  }
+}
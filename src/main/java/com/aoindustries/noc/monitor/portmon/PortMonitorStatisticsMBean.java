@@ -0,0 +1,122 @@
+/*
+ * noc-monitor-portmon - Port monitoring implementations.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of noc-monitor-portmon.
+ *
+ * noc-monitor-portmon is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * noc-monitor-portmon is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with noc-monitor-portmon.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.noc.monitor.portmon;
+
+/**
+ * The JMX management interface of {@link PortMonitorStatistics}.
+ *
+ * @author  AO Industries, Inc.
+ */
+public interface PortMonitorStatisticsMBean {
+
+  /**
+   * The name of the monitor class.
+   */
+  String getMonitorClass();
+
+  /**
+   * The number of checks started.
+   */
+  long getAttempts();
+
+  /**
+   * The number of checks that succeeded.
+   */
+  long getSuccesses();
+
+  /**
+   * The number of checks that failed, for any cause.
+   */
+  long getFailures();
+
+  /**
+   * The number of checks that timed out.
+   */
+  long getTimeoutFailures();
+
+  /**
+   * The number of checks that failed to connect.
+   */
+  long getRefusedFailures();
+
+  /**
+   * The number of checks that found the host or port unreachable.
+   */
+  long getUnreachableFailures();
+
+  /**
+   * The number of checks that failed in TLS.
+   */
+  long getTlsFailures();
+
+  /**
+   * The number of checks that failed on an unexpected response.
+   */
+  long getProtocolFailures();
+
+  /**
+   * The number of checks that failed for any other cause.
+   */
+  long getOtherFailures();
+
+  /**
+   * The number of checks canceled.
+   */
+  long getCancellations();
+
+  /**
+   * The number of checks currently running.
+   */
+  long getInFlight();
+
+  /**
+   * The longest latency of any completed check, in nanoseconds.
+   */
+  long getMaxLatencyNanos();
+
+  /**
+   * The median latency of completed checks, in nanoseconds.
+   */
+  long getLatency50thPercentileNanos();
+
+  /**
+   * The 90th percentile latency of completed checks, in nanoseconds.
+   */
+  long getLatency90thPercentileNanos();
+
+  /**
+   * The 99th percentile latency of completed checks, in nanoseconds.
+   */
+  long getLatency99thPercentileNanos();
+
+  /**
+   * The number of completed checks in each latency bucket.
+   */
+  long[] getLatencyHistogram();
+
+  /**
+   * The exclusive upper limit, in nanoseconds, of each latency bucket.
+   */
+  long[] getLatencyBucketLimitsNanos();
+}
@@ -1,6 +1,6 @@
 /*
  * noc-monitor-portmon - Port monitoring implementations.
- * Copyright (C) 2009-2013, 2016, 2017, 2018, 2019, 2020, 2021, 2022, 2024  AO Industries, Inc.
+ * Copyright (C) 2009-2013, 2016, 2017, 2018, 2019, 2020, 2021, 2022, 2024, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -85,6 +85,8 @@ public class PostgresqlPortMonitor extends JdbcPortMonitor {
       sslmode = null;
       this.sslfactory = null;
     }
+    // Generate the JDBC URL once
+    getJdbcUrl();
   }
 
   @Override
@@ -106,12 +108,15 @@ public class PostgresqlPortMonitor extends JdbcPortMonitor {
     }
     jdbcUrl.append('/');
     URIEncoder.encodeURIComponent(database, jdbcUrl);
+    // Seconds
     jdbcUrl.append("?loginTimeout=");
-    URIEncoder.encodeURIComponent(Integer.toString(TIMEOUT), jdbcUrl);
+    URIEncoder.encodeURIComponent(Integer.toString(toSeconds(Math.min(timeouts.getAuth(), timeouts.getTotal()))), jdbcUrl);
+    // Seconds
     jdbcUrl.append("&connectTimeout=");
-    URIEncoder.encodeURIComponent(Integer.toString(TIMEOUT), jdbcUrl);
+    URIEncoder.encodeURIComponent(Integer.toString(toSeconds(Math.min(timeouts.getConnect(), timeouts.getTotal()))), jdbcUrl);
+    // Seconds
     jdbcUrl.append("&socketTimeout=");
-    URIEncoder.encodeURIComponent(Integer.toString(TIMEOUT), jdbcUrl);
+    URIEncoder.encodeURIComponent(Integer.toString(toSeconds(timeouts.getTotal())), jdbcUrl);
     jdbcUrl.append("&tcpKeepAlive=true");
     jdbcUrl.append("&ApplicationName=");
     URIEncoder.encodeURIComponent(APPLICATION_NAME, jdbcUrl);
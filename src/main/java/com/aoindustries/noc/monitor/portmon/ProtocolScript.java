@@ -0,0 +1,549 @@
+/*
+ * noc-monitor-portmon - Port monitoring implementations.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of noc-monitor-portmon.
+ *
+ * noc-monitor-portmon is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * noc-monitor-portmon is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with noc-monitor-portmon.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.noc.monitor.portmon;
+
+import com.aoapps.net.URIParameters;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import javax.net.ssl.SSLSocket;
+
+/**
+ * A conversation with a line-based text protocol, as a sequence of steps that send
+ * commands, expect reply prefixes, capture the result, and optionally upgrade with
+ * STARTTLS.  A script is compiled once, with its commands encoded to bytes, and may
+ * then be run any number of times concurrently.
+ *
+ * <p>Sent commands are buffered and only written when a following step needs to read,
+ * so consecutive sends are written together.</p>
+ *
+ * <p>Commands may include parameters as <code>${name}</code>, which are substituted
+ * from the monitoring parameters when {@linkplain #bind(com.aoapps.net.URIParameters) bound}, once per
+ * monitor, leaving only bytes to write on each run.</p>
+ *
+ * <p>The result is the text following the prefix of the last capture step, or the
+ * last line read by an expect step when the script has no capture step.  Every script
+ * has at least one expect or capture step.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class ProtocolScript {
+
+  /**
+   * The state of a single run.
+   */
+  private static final class Run {
+
+    private final DefaultTcpPortMonitor monitor;
+    private final Socket socket;
+    private final AsciiLineIO io;
+    private SSLSocket sslSocket;
+    private String result;
+    private boolean captured;
+
+    private Run(DefaultTcpPortMonitor monitor, Socket socket, AsciiLineIO io) {
+      this.monitor = monitor;
+      this.socket = socket;
+      this.io = io;
+    }
+  }
+
+  private abstract static class Step {
+
+    /**
+     * Does this step read from the connection?  Buffered output is flushed first.
+     */
+    abstract boolean reads();
+
+    /**
+     * Gets this step with any monitoring parameters substituted.
+     *
+     * @return  this step by default, which uses no parameters
+     */
+    Step bind(URIParameters parameters) throws IllegalArgumentException {
+      return this;
+    }
+
+    abstract void run(Run run) throws IOException;
+  }
+
+  /**
+   * Finds the first of the prefixes that the current line starts with.
+   *
+   * @return  the matching prefix or {@code null} when none match
+   */
+  private static String match(AsciiLineIO io, String[] prefixes) {
+    for (String prefix : prefixes) {
+      if (io.startsWith(prefix)) {
+        return prefix;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Writes bytes, either a command without parameters or a bound {@link Send}.
+   */
+  private static final class Write extends Step {
+
+    private final byte[] bytes;
+
+    private Write(byte[] bytes) {
+      this.bytes = bytes;
+    }
+
+    @Override
+    boolean reads() {
+      return false;
+    }
+
+    @Override
+    void run(Run run) {
+      run.io.write(bytes);
+    }
+  }
+
+  /**
+   * Sends a command with parameters, which must be bound before run.
+   */
+  private static final class Send extends Step {
+
+    /**
+     * Alternating literal bytes and parameter names, starting and ending with literal bytes.
+     */
+    private final Object[] parts;
+
+    private Send(String command) {
+      List<Object> list = new ArrayList<>();
+      int pos = 0;
+      while (true) {
+        int start = command.indexOf("${", pos);
+        int end = start == -1 ? -1 : command.indexOf('}', start + 2);
+        if (end == -1) {
+          list.add((command.substring(pos) + PortMonitor.CRLF).getBytes(StandardCharsets.US_ASCII));
+          break;
+        }
+        list.add(command.substring(pos, start).getBytes(StandardCharsets.US_ASCII));
+        list.add(command.substring(start + 2, end));
+        pos = end + 1;
+      }
+      parts = list.toArray();
+    }
+
+    @Override
+    boolean reads() {
+      return false;
+    }
+
+    private static String getValue(URIParameters parameters, String name) throws IllegalArgumentException {
+      String value = parameters.getParameter(name);
+      if (value == null || value.isEmpty()) {
+        throw new IllegalArgumentException("monitoringParameters does not include the " + name);
+      }
+      if (value.indexOf('\r') != -1 || value.indexOf('\n') != -1) {
+        throw new IllegalArgumentException("monitoringParameters contains illegal line break in " + name);
+      }
+      return value;
+    }
+
+    @Override
+    Step bind(URIParameters parameters) throws IllegalArgumentException {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      for (int i = 0; i < parts.length; i++) {
+        // Characters outside of ASCII are encoded as '?', matching AsciiLineIO
+        byte[] part = (i & 1) == 0
+            ? (byte[]) parts[i]
+            : getValue(parameters, (String) parts[i]).getBytes(StandardCharsets.US_ASCII);
+        bytes.write(part, 0, part.length);
+      }
+      return new Write(bytes.toByteArray());
+    }
+
+    @Override
+    void run(Run run) {
+      throw new IllegalStateException("Script not bound");
+    }
+  }
+
+  private static class Expect extends Step {
+
+    private final String what;
+    private final String[] prefixes;
+
+    private Expect(String what, String[] prefixes) {
+      if (prefixes.length == 0) {
+        throw new IllegalArgumentException("No prefixes");
+      }
+      this.what = what;
+      this.prefixes = prefixes;
+    }
+
+    @Override
+    final boolean reads() {
+      return true;
+    }
+
+    @Override
+    void run(Run run) throws IOException {
+      AsciiLineIO io = run.io;
+      if (!io.readLine()) {
+        throw new EOFException("End of file reading " + what);
+      }
+      String prefix = match(io, prefixes);
+      if (prefix == null) {
+        throw new IOException("Unexpected line reading " + what + ": " + io.getLine());
+      }
+      matched(run, prefix);
+    }
+
+    void matched(Run run, String prefix) {
+      if (!run.captured) {
+        run.result = run.io.getLine();
+      }
+    }
+  }
+
+  private static final class Capture extends Expect {
+
+    private Capture(String what, String[] prefixes) {
+      super(what, prefixes);
+    }
+
+    @Override
+    void matched(Run run, String prefix) {
+      run.captured = true;
+      run.result = run.io.substring(prefix.length());
+    }
+  }
+
+  private static final class Drain extends Step {
+
+    private final String what;
+    private final String[] prefixes;
+
+    private Drain(String what, String[] prefixes) {
+      if (prefixes.length == 0) {
+        throw new IllegalArgumentException("No prefixes");
+      }
+      this.what = what;
+      this.prefixes = prefixes;
+    }
+
+    @Override
+    boolean reads() {
+      return true;
+    }
+
+    @Override
+    void run(Run run) throws IOException {
+      AsciiLineIO io = run.io;
+      while (io.readLine()) {
+        if (match(io, prefixes) == null) {
+          throw new IOException("Unexpected line reading " + what + ": " + io.getLine());
+        }
+      }
+    }
+  }
+
+  private static final class StartTls extends Step {
+
+    @Override
+    boolean reads() {
+      return true;
+    }
+
+    @Override
+    void run(Run run) throws IOException {
+      run.sslSocket = run.monitor.startTls(run.socket, false);
+      run.io.upgrade(run.sslSocket);
+    }
+  }
+
+  private static final class Phase extends Step {
+
+    private final CheckPhase phase;
+
+    private Phase(CheckPhase phase) {
+      this.phase = phase;
+    }
+
+    @Override
+    boolean reads() {
+      return false;
+    }
+
+    @Override
+    void run(Run run) throws IOException {
+      run.monitor.beginPhase(run.socket, phase);
+    }
+  }
+
+  /**
+   * Builds a new script.
+   */
+  public static final class Builder {
+
+    private final List<Step> steps = new ArrayList<>();
+
+    private Builder() {
+      // Created by builder()
+    }
+
+    /**
+     * Sends a command, followed by CRLF.
+     */
+    public Builder send(String command) {
+      Send send = new Send(command);
+      steps.add(send.parts.length == 1 ? new Write((byte[]) send.parts[0]) : send);
+      return this;
+    }
+
+    /**
+     * Reads a line that must start with one of the given prefixes.
+     *
+     * @param  what  describes the response in exception messages, such as <code>"QUIT response"</code>
+     */
+    public Builder expect(String what, String ... prefixes) {
+      steps.add(new Expect(what, prefixes.clone()));
+      return this;
+    }
+
+    /**
+     * Reads a line that must start with one of the given prefixes, capturing the remainder
+     * of the line as the result.
+     *
+     * @param  what  describes the response in exception messages, such as <code>"QUIT response"</code>
+     */
+    public Builder capture(String what, String ... prefixes) {
+      steps.add(new Capture(what, prefixes.clone()));
+      return this;
+    }
+
+    /**
+     * Reads lines until end of file, each of which must start with one of the given prefixes.
+     *
+     * @param  what  describes the response in exception messages, such as <code>"QUIT response"</code>
+     */
+    public Builder drain(String what, String ... prefixes) {
+      steps.add(new Drain(what, prefixes.clone()));
+      return this;
+    }
+
+    /**
+     * Layers TLS over the connection, after the server has accepted a STARTTLS command.
+     */
+    public Builder starttls() {
+      steps.add(new StartTls());
+      return this;
+    }
+
+    /**
+     * Begins a new phase of the check.
+     *
+     * @see  DefaultTcpPortMonitor#beginPhase(java.net.Socket, com.aoindustries.noc.monitor.portmon.CheckPhase)
+     */
+    public Builder phase(CheckPhase phase) {
+      steps.add(new Phase(phase));
+      return this;
+    }
+
+    /**
+     * Compiles the script.
+     *
+     * @throws  IllegalArgumentException  when the script has no expect or capture step, which
+     *                                    provides the result
+     */
+    public ProtocolScript build() throws IllegalArgumentException {
+      boolean hasResult = false;
+      for (Step step : steps) {
+        // Including Capture
+        if (step instanceof Expect) {
+          hasResult = true;
+          break;
+        }
+      }
+      if (!hasResult) {
+        throw new IllegalArgumentException("Script has no expect or capture step");
+      }
+      return new ProtocolScript(steps);
+    }
+  }
+
+  /**
+   * Starts building a new script.
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Compiles a script given as one step per line or per value, in the form
+   * <code>command[ argument]</code>, where the argument is the remainder of the
+   * line after a single space:
+   *
+   * <ul>
+   *   <li><code>send <i>command</i></code> - sends a command</li>
+   *   <li><code>expect <i>prefix</i>[|<i>prefix</i>...]</code> - reads a line starting with any of the prefixes</li>
+   *   <li><code>capture <i>prefix</i>[|<i>prefix</i>...]</code> - reads a line and captures the remainder as the result</li>
+   *   <li><code>drain <i>prefix</i>[|<i>prefix</i>...]</code> - reads lines until end of file</li>
+   *   <li><code>starttls</code> - layers TLS over the connection</li>
+   *   <li><code>phase <i>phase</i></code> - begins a {@link CheckPhase}</li>
+   * </ul>
+   *
+   * <p>Blank lines are ignored.</p>
+   *
+   * @throws  IllegalArgumentException  when the script is invalid
+   */
+  public static ProtocolScript parse(Iterable<String> values) throws IllegalArgumentException {
+    Builder builder = builder();
+    int stepNum = 0;
+    for (String value : values) {
+      for (String line : value.split("\r?\n")) {
+        if (line.trim().isEmpty()) {
+          continue;
+        }
+        stepNum++;
+        int spacePos = line.indexOf(' ');
+        String command = spacePos == -1 ? line : line.substring(0, spacePos);
+        String argument = spacePos == -1 ? null : line.substring(spacePos + 1);
+        String what = "script step " + stepNum;
+        switch (command.toLowerCase(Locale.ROOT)) {
+          case "send":
+            builder.send(argument == null ? "" : argument);
+            break;
+          case "expect":
+            builder.expect(what, prefixes(argument, line));
+            break;
+          case "capture":
+            builder.capture(what, prefixes(argument, line));
+            break;
+          case "drain":
+            builder.drain(what, prefixes(argument, line));
+            break;
+          case "starttls":
+            builder.starttls();
+            break;
+          case "phase":
+            try {
+              builder.phase(CheckPhase.valueOf(argument == null ? "" : argument.trim().toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+              throw new IllegalArgumentException("Invalid phase in script: " + line, e);
+            }
+            break;
+          default:
+            throw new IllegalArgumentException("Unexpected script step: " + line);
+        }
+      }
+    }
+    if (stepNum == 0) {
+      throw new IllegalArgumentException("Empty script");
+    }
+    return builder.build();
+  }
+
+  private static String[] prefixes(String argument, String line) {
+    if (argument == null || argument.isEmpty()) {
+      throw new IllegalArgumentException("Prefix required in script: " + line);
+    }
+    return argument.split("\\|", -1);
+  }
+
+  /**
+   * A script with all <code>${name}</code> substituted from monitoring parameters, ready to run.
+   */
+  public static final class Bound {
+
+    private final Step[] steps;
+
+    private Bound(Step[] steps) {
+      this.steps = steps;
+    }
+
+    /**
+     * Runs this script over a connection.  Any TLS layered by a STARTTLS step is closed
+     * before returning, but the connection itself is left open.
+     *
+     * @return  the captured result
+     */
+    public String run(DefaultTcpPortMonitor monitor, Socket socket, AsciiLineIO io) throws IOException {
+      Run run = new Run(monitor, socket, io);
+      try {
+        for (Step step : steps) {
+          if (step.reads()) {
+            io.flush();
+          }
+          step.run(run);
+        }
+        io.flush();
+        return run.result;
+      } finally {
+        if (run.sslSocket != null) {
+          run.sslSocket.close();
+        }
+      }
+    }
+  }
+
+  private final Step[] steps;
+
+  /**
+   * The bound script when no step has parameters, shared by all monitors.
+   */
+  private final Bound bound;
+
+  private ProtocolScript(List<Step> steps) {
+    this.steps = steps.toArray(new Step[steps.size()]);
+    boolean hasParameters = false;
+    for (Step step : this.steps) {
+      if (step instanceof Send) {
+        hasParameters = true;
+        break;
+      }
+    }
+    this.bound = hasParameters ? null : new Bound(this.steps);
+  }
+
+  /**
+   * Binds this script to monitoring parameters, substituting a valid value for every
+   * <code>${name}</code> in sent commands and encoding the commands to bytes.
+   * Called once per monitor, so parameters are checked before running and not read again.
+   *
+   * @throws  IllegalArgumentException  when any parameter is missing or invalid
+   */
+  public Bound bind(URIParameters parameters) throws IllegalArgumentException {
+    if (bound != null) {
+      return bound;
+    }
+    Step[] boundSteps = new Step[steps.length];
+    for (int i = 0; i < boundSteps.length; i++) {
+      boundSteps[i] = steps[i].bind(parameters);
+    }
+    return new Bound(boundSteps);
+  }
+}
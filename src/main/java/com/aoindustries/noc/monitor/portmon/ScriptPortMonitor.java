@@ -0,0 +1,99 @@
+/*
+ * noc-monitor-portmon - Port monitoring implementations.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of noc-monitor-portmon.
+ *
+ * noc-monitor-portmon is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * noc-monitor-portmon is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with noc-monitor-portmon.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.noc.monitor.portmon;
+
+import com.aoapps.net.InetAddress;
+import com.aoapps.net.Port;
+import com.aoapps.net.URIParameters;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Monitors any line-based text protocol with a {@link ProtocolScript} given in the
+ * <code>script</code> monitoring parameter, either one step per value or
+ * one step per line.  For example, a banner check:
+ *
+ * <pre>script=expect+220+&amp;script=send+QUIT&amp;script=expect+221+</pre>
+ *
+ * @see  ProtocolScript#parse(java.lang.Iterable)
+ *
+ * @author  AO Industries, Inc.
+ */
+public class ScriptPortMonitor extends DefaultTcpPortMonitor {
+
+  /**
+   * Compiled scripts are shared by all monitors with the same script, up to this many scripts.
+   */
+  private static final int MAX_CACHED_SCRIPTS = 1000;
+
+  private static final ConcurrentMap<List<String>, ProtocolScript> scripts = new ConcurrentHashMap<>();
+
+  private static ProtocolScript getScript(List<String> values) throws IllegalArgumentException {
+    ProtocolScript script = scripts.get(values);
+    if (script == null) {
+      script = ProtocolScript.parse(values);
+      if (scripts.size() < MAX_CACHED_SCRIPTS) {
+        ProtocolScript existing = scripts.putIfAbsent(new ArrayList<>(values), script);
+        if (existing != null) {
+          script = existing;
+        }
+      }
+    }
+    return script;
+  }
+
+  private final ProtocolScript.Bound script;
+
+  /**
+   * Creates a new script monitor.
+   *
+   * @throws  IllegalArgumentException  when the script is missing or invalid
+   */
+  public ScriptPortMonitor(InetAddress ipAddress, Port port, URIParameters monitoringParameters) throws IllegalArgumentException {
+    super(
+        ipAddress,
+        port,
+        // Do not use SSL unless explicitely enabled with ssl=true
+        Boolean.parseBoolean(monitoringParameters.getParameter("ssl")),
+        monitoringParameters
+    );
+    List<String> values = monitoringParameters.getParameterValues("script");
+    if (values == null || values.isEmpty()) {
+      throw new IllegalArgumentException("monitoringParameters does not include the script parameter");
+    }
+    script = getScript(values).bind(monitoringParameters);
+  }
+
+  @Override
+  protected String checkPort(Socket socket, InputStream socketIn, OutputStream socketOut) throws Exception {
+    try (AsciiLineIO io = new AsciiLineIO(socketIn, socketOut)) {
+      return script.run(this, socket, io);
+    }
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ * noc-monitor-portmon - Port monitoring implementations.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of noc-monitor-portmon.
+ *
+ * noc-monitor-portmon is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * noc-monitor-portmon is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with noc-monitor-portmon.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.noc.monitor.portmon;
+
+import com.aoapps.lang.Strings;
+import com.aoapps.net.URIParameters;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * The configuration of {@link SmtpPortMonitor}, parsed and validated once from the monitoring parameters.
+ *
+ * <p>Set through monitoring parameters <code>from</code> and <code>recipient</code>, both required,
+ * optional <code>username</code> and <code>password</code> for authenticated SMTP, <code>starttls=false</code>
+ * to not use STARTTLS, and <code>ehlo</code> for the name sent with EHLO.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class SmtpConfig {
+
+  private static String getRequired(URIParameters monitoringParameters, String name) throws IllegalArgumentException {
+    String value = Strings.nullIfEmpty(monitoringParameters.getParameter(name));
+    if (value == null) {
+      throw new IllegalArgumentException("monitoringParameters does not include the " + name + " parameter");
+    }
+    if (value.indexOf('\r') != -1 || value.indexOf('\n') != -1) {
+      throw new IllegalArgumentException("monitoringParameters contains illegal line break in " + name);
+    }
+    return value;
+  }
+
+  /**
+   * Gets the configuration from monitoring parameters.
+   *
+   * @throws  IllegalArgumentException  when any parameter is missing or invalid
+   */
+  public static SmtpConfig valueOf(URIParameters monitoringParameters) throws IllegalArgumentException {
+    String from = getRequired(monitoringParameters, "from");
+    String recipient = getRequired(monitoringParameters, "recipient");
+    // Use SSL unless explicitely disabled with starttls=false
+    boolean starttls = !"false".equalsIgnoreCase(monitoringParameters.getParameter("starttls"));
+    // Optional for authenticated SMTP
+    String username = Strings.nullIfEmpty(monitoringParameters.getParameter("username"));
+    String password = Strings.nullIfEmpty(monitoringParameters.getParameter("password"));
+    if ((username == null) != (password == null)) {
+      throw new IllegalArgumentException("monitoringParameters must include either both username and password or neither");
+    }
+    // Null character used in AUTH PLAIN protocol, make sure not in the username/password directly
+    if (username != null && username.indexOf('\0') != -1) {
+      throw new IllegalArgumentException("monitoringParameters contains illegal null in username");
+    }
+    if (password != null && password.indexOf('\0') != -1) {
+      throw new IllegalArgumentException("monitoringParameters contains illegal null in password");
+    }
+    String ehlo = Strings.nullIfEmpty(monitoringParameters.getParameter("ehlo"));
+    if (ehlo != null) {
+      for (int i = 0, len = ehlo.length(); i < len; i++) {
+        char ch = ehlo.charAt(i);
+        if (ch <= ' ' || ch > '~') {
+          throw new IllegalArgumentException("monitoringParameters contains illegal character in ehlo: " + ehlo);
+        }
+      }
+    }
+    return new SmtpConfig(from, recipient, starttls, username, password, ehlo);
+  }
+
+  private final String from;
+  private final String recipient;
+  private final boolean starttls;
+  private final String username;
+  private final String password;
+  private final String authPlain;
+  private final String ehlo;
+
+  private SmtpConfig(String from, String recipient, boolean starttls, String username, String password, String ehlo) {
+    this.from = from;
+    this.recipient = recipient;
+    this.starttls = starttls;
+    this.username = username;
+    this.password = password;
+    if (username == null) {
+      authPlain = null;
+    } else {
+      // See http://www.fehcom.de/qmail/smtpauth.html
+      String authMessage = "\0" + username + "\0" + password;
+      authPlain = Base64.getEncoder().encodeToString(authMessage.getBytes(StandardCharsets.US_ASCII));
+    }
+    this.ehlo = ehlo;
+  }
+
+  /**
+   * Gets the sender address.
+   */
+  public String getFrom() {
+    return from;
+  }
+
+  /**
+   * Gets the recipient address.
+   */
+  public String getRecipient() {
+    return recipient;
+  }
+
+  /**
+   * Is STARTTLS used when not already over SSL?
+   */
+  public boolean isStarttls() {
+    return starttls;
+  }
+
+  /**
+   * Gets the username, or {@code null} when not authenticated.
+   */
+  public String getUsername() {
+    return username;
+  }
+
+  /**
+   * Gets the password, or {@code null} when not authenticated.
+   */
+  public String getPassword() {
+    return password;
+  }
+
+  /**
+   * Gets the encoded initial response for AUTH PLAIN, or {@code null} when not authenticated.
+   */
+  String getAuthPlain() {
+    return authPlain;
+  }
+
+  /**
+   * Gets the name sent with EHLO, or {@code null} to use the canonical host name of the local host.
+   */
+  public String getEhlo() {
+    return ehlo;
+  }
+}
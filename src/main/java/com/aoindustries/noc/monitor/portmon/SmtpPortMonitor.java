@@ -23,27 +23,18 @@
 
 package com.aoindustries.noc.monitor.portmon;
 
-import com.aoapps.lang.Strings;
 import com.aoapps.net.InetAddress;
 import com.aoapps.net.Port;
 import com.aoapps.net.URIParameters;
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.Reader;
-import java.io.Writer;
 import java.net.Socket;
-import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
+import java.net.UnknownHostException;
 import java.util.ArrayList;
-import java.util.Base64;
 import java.util.List;
-import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.SSLSocket;
 
 /**
  * Monitors with SMTP-specific protocol support.
@@ -52,216 +43,186 @@ import javax.net.ssl.SSLSocketFactory;
  */
 public class SmtpPortMonitor extends DefaultTcpPortMonitor {
 
-  private final URIParameters monitoringParameters;
+  /**
+   * The canonical host name of the local host, looked-up on first use.
+   */
+  private static volatile String localHostname;
+
+  /**
+   * Gets the canonical host name of the local host, only looking it up once per process.
+   */
+  private static String getLocalHostname() throws UnknownHostException {
+    String hostname = localHostname;
+    if (hostname == null) {
+      hostname = java.net.InetAddress.getLocalHost().getCanonicalHostName();
+      localHostname = hostname;
+    }
+    return hostname;
+  }
+
+  private final SmtpConfig config;
 
   /**
    * Creates a new SMTP monitor.
    */
   public SmtpPortMonitor(InetAddress ipAddress, Port port, boolean ssl, URIParameters monitoringParameters) {
-    super(ipAddress, port, ssl);
-    this.monitoringParameters = monitoringParameters;
+    super(ipAddress, port, ssl, monitoringParameters);
+    this.config = SmtpConfig.valueOf(monitoringParameters);
   }
 
   /**
    * Creates a new SMTP monitor.
    */
   public SmtpPortMonitor(InetAddress ipAddress, Port port, URIParameters monitoringParameters) {
-    super(ipAddress, port, false);
-    this.monitoringParameters = monitoringParameters;
+    super(ipAddress, port, false, monitoringParameters);
+    this.config = SmtpConfig.valueOf(monitoringParameters);
   }
 
-  private static void quit(Reader in, Writer out, StringBuilder buffer) throws IOException {
-    out.write("QUIT" + CRLF);
-    out.flush();
-    String line = readLine(in, buffer);
-    if (line == null) {
-      throw new EOFException("End of file reading QUIT response");
-    }
-    if (!line.startsWith("221 2.0.0 ")) {
-      throw new IOException("Unexpected line reading QUIT response: " + line);
+  private static void quit(AsciiLineIO io) throws IOException {
+    io.writeLine("QUIT");
+    io.flush();
+    io.expect("221 2.0.0 ", "QUIT response");
+  }
+
+  /**
+   * Sends EHLO and reads the response.
+   *
+   * @return  the keyword and parameters of each line of the response
+   */
+  private static List<String> ehlo(AsciiLineIO io, String hostname) throws IOException {
+    io.write("EHLO ");
+    io.writeLine(hostname);
+    io.flush();
+    List<String> ehloResponse = new ArrayList<>();
+    while (true) {
+      if (!io.readLine()) {
+        throw new EOFException("End of file reading EHLO response");
+      }
+      if (io.startsWith("250-")) {
+        // With continuation
+        ehloResponse.add(io.substring(4));
+      } else if (io.startsWith("250 ")) {
+        // End of response
+        ehloResponse.add(io.substring(4));
+        return ehloResponse;
+      } else {
+        throw new IOException("Unexpected line reading EHLO response: " + io.getLine());
+      }
     }
   }
 
   @Override
   public String checkPort(Socket socket, InputStream socketIn, OutputStream socketOut) throws Exception {
-    Socket sslSocket = null;
+    SSLSocket sslSocket = null;
     try {
-      // Get the configuration
-      final String from = Strings.nullIfEmpty(monitoringParameters.getParameter("from"));
-      if (from == null) {
-        throw new IllegalArgumentException("monitoringParameters does not include the from parameter");
-      }
-      final String recipient = Strings.nullIfEmpty(monitoringParameters.getParameter("recipient"));
-      if (recipient == null) {
-        throw new IllegalArgumentException("monitoringParameters does not include the recipient parameter");
-      }
-      final boolean starttls =
-          // Will not try STARTTLS when is SSL
-          !ssl
-              // Use SSL unless explicitely disabled with starttls=false
-              && !"false".equalsIgnoreCase(monitoringParameters.getParameter("starttls"));
+      final String from = config.getFrom();
+      final String recipient = config.getRecipient();
+      // Will not try STARTTLS when is SSL
+      final boolean starttls = !ssl && config.isStarttls();
       // Optional for authenticated SMTP
-      final String username = Strings.nullIfEmpty(monitoringParameters.getParameter("username"));
-      final String password = Strings.nullIfEmpty(monitoringParameters.getParameter("password"));
-      if ((username == null) != (password == null)) {
-        throw new IllegalArgumentException("monitoringParameters must include either both username and password or neither");
-      }
-      // Null character used in AUTH PLAIN protocol below, make sure not in the username/password directly
-      if (username != null && username.indexOf('\0') != -1) {
-        throw new IllegalArgumentException("monitoringParameters contains illegal null in username");
-      }
-      if (password != null && password.indexOf('\0') != -1) {
-        throw new IllegalArgumentException("monitoringParameters contains illegal null in password");
-      }
+      final String authPlain = config.getAuthPlain();
 
-      final StringBuilder buffer = new StringBuilder();
-      Charset charset = StandardCharsets.US_ASCII;
-      Writer out = new OutputStreamWriter(socketOut, charset);
-      try {
-        Reader in = new InputStreamReader(socketIn, charset);
-        try {
-          // Buffer now when not using STARTTLS
-          if (!starttls) {
-            in = new BufferedReader(in);
-            out = new BufferedWriter(out);
-          }
-          // Status line
-          String line = readLine(in, buffer);
-          if (line == null) {
-            throw new EOFException("End of file reading status");
-          }
-          if (!line.startsWith("220 ")) {
-            throw new IOException("Unexpected status line: " + line);
-          }
-          // NOTE: We are assuming ESMTP here
-          // EHLO
-          out.write("EHLO ");
-          out.write(java.net.InetAddress.getLocalHost().getCanonicalHostName());
-          out.write(CRLF);
-          out.flush();
-          List<String> ehloResponse = new ArrayList<>();
-          while (true) {
-            line = readLine(in, buffer);
-            if (line == null) {
-              throw new EOFException("End of file reading EHLO response");
-            }
-            if (line.startsWith("250-")) {
-              // With continuation
-              ehloResponse.add(line.substring(4));
-            } else if (line.startsWith("250 ")) {
-              // End of response
-              ehloResponse.add(line.substring(4));
-              break;
-            } else {
-              throw new IOException("Unexpected line reading EHLO response: " + line);
-            }
-          }
-          if (starttls) {
-            if (!ehloResponse.contains("STARTTLS")) {
-              // Quit
-              quit(in, out, buffer);
-              throw new IOException("Host does not support STARTTLS: " + ehloResponse);
-            }
-            // STARTTLS
-            out.write("STARTTLS" + CRLF);
-            out.flush();
-            line = readLine(in, buffer);
-            if (line == null) {
-              throw new EOFException("End of file reading STARTTLS response");
-            }
-            if (!line.startsWith("220 2.0.0 ")) {
-              throw new IOException("Unexpected line reading STARTTLS response: " + line);
-            }
-            // Wrap in SSL
-            SSLSocketFactory sslFact = (SSLSocketFactory) SSLSocketFactory.getDefault();
-            sslSocket = sslFact.createSocket(socket, ipAddress.toString(), port.getPort(), false);
-            out = new BufferedWriter(new OutputStreamWriter(sslSocket.getOutputStream(), charset));
-            in = new BufferedReader(new InputStreamReader(sslSocket.getInputStream(), charset));
-          }
-          if (username != null) {
-            // NOTE: We are assuming AUTH PLAIN here
-            // AUTH PLAIN
-            out.write("AUTH PLAIN ");
-            // See http://www.fehcom.de/qmail/smtpauth.html
-            String authMessage = "\0" + username + "\0" + password;
-            // out.println(Base64Coder.encode(authMessage.getBytes(charset)));
-            out.write(Base64.getEncoder().encodeToString(authMessage.getBytes(charset)));
-            out.write(CRLF);
-            out.flush();
-            line = readLine(in, buffer);
-            if (line == null) {
-              throw new EOFException("End of file reading AUTH PLAIN response");
-            }
-            if (
-                !line.startsWith("235 2.0.0 ")
-                    && !line.startsWith("235 2.7.0 ")
-            ) {
-              throw new IOException("Unexpected line reading AUTH PLAIN response: " + line);
-            }
-          }
-          // MAIL From
-          out.write("MAIL From:");
-          out.write(from);
-          out.write(CRLF);
-          out.flush();
-          line = readLine(in, buffer);
-          if (line == null) {
-            throw new EOFException("End of file reading MAIL From response");
-          }
-          if (!line.startsWith("250 2.1.0 ")) {
-            throw new IOException("Unexpected line reading MAIL From response: " + line);
-          }
-          // RCPT To
-          out.write("RCPT To:");
-          out.write(recipient);
-          out.write(CRLF);
-          out.flush();
-          line = readLine(in, buffer);
-          if (line == null) {
-            throw new EOFException("End of file reading RCPT To response");
-          }
-          if (!line.startsWith("250 2.1.5 ")) {
-            throw new IOException("Unexpected line reading RCPT To response: " + line);
-          }
-          // DATA
-          out.write("DATA" + CRLF);
-          out.flush();
-          line = readLine(in, buffer);
-          if (line == null) {
-            throw new EOFException("End of file reading DATA response");
-          }
-          if (!line.startsWith("354 ")) {
-            throw new IOException("Unexpected line reading DATA response: " + line);
+      try (AsciiLineIO io = new AsciiLineIO(socketIn, socketOut)) {
+        // Status line
+        if (!io.readLine()) {
+          throw new EOFException("End of file reading status");
+        }
+        if (!io.startsWith("220 ")) {
+          throw new IOException("Unexpected status line: " + io.getLine());
+        }
+        beginPhase(socket, CheckPhase.COMMAND);
+        // NOTE: We are assuming ESMTP here
+        // EHLO
+        final String ehlo = config.getEhlo();
+        final String hostname = ehlo != null ? ehlo : getLocalHostname();
+        List<String> ehloResponse = ehlo(io, hostname);
+        if (starttls) {
+          if (!ehloResponse.contains("STARTTLS")) {
+            // Quit
+            quit(io);
+            throw new IOException("Host does not support STARTTLS: " + ehloResponse);
           }
-          // Message headers and body
-          out.write("To: ");
-          out.write(recipient);
-          out.write(CRLF);
-          out.write("From: ");
-          out.write(from);
-          out.write(CRLF);
-          out.write("Subject: SMTP monitoring message" + CRLF);
-          out.write(CRLF);
-          out.write("This message is generated for SMTP port monitoring." + CRLF);
-          out.write("." + CRLF);
-          out.flush();
-          line = readLine(in, buffer);
-          if (line == null) {
-            throw new EOFException("End of file reading DATA response");
+          // STARTTLS
+          io.writeLine("STARTTLS");
+          io.flush();
+          io.expect("220 2.0.0 ", "STARTTLS response");
+          // Wrap in SSL
+          sslSocket = startTls(socket, false);
+          io.upgrade(sslSocket);
+          // Capabilities must be discarded and requested again over TLS, see https://datatracker.ietf.org/doc/html/rfc3207#section-4.2
+          ehloResponse = ehlo(io, hostname);
+        }
+        // See https://datatracker.ietf.org/doc/html/rfc2920
+        final boolean pipelining = ehloResponse.contains("PIPELINING");
+        if (authPlain != null) {
+          beginPhase(socket, CheckPhase.AUTH);
+          // NOTE: We are assuming AUTH PLAIN here
+          // AUTH PLAIN
+          io.write("AUTH PLAIN ");
+          io.writeLine(authPlain);
+          io.flush();
+          if (!io.readLine()) {
+            throw new EOFException("End of file reading AUTH PLAIN response");
           }
-          if (!line.startsWith("250 2.0.0 ")) {
-            throw new IOException("Unexpected line reading DATA response: " + line);
+          if (
+              !io.startsWith("235 2.0.0 ")
+                  && !io.startsWith("235 2.7.0 ")
+          ) {
+            throw new IOException("Unexpected line reading AUTH PLAIN response: " + io.getLine());
           }
-          String result = line.substring(10);
+        }
+        beginPhase(socket, CheckPhase.COMMAND);
+        // MAIL From
+        io.write("MAIL From:");
+        io.writeLine(from);
+        if (!pipelining) {
+          io.flush();
+          io.expect("250 2.1.0 ", "MAIL From response");
+        }
+        // RCPT To
+        io.write("RCPT To:");
+        io.writeLine(recipient);
+        if (!pipelining) {
+          io.flush();
+          io.expect("250 2.1.5 ", "RCPT To response");
+        }
+        // DATA, which must be last in a pipelined group
+        io.writeLine("DATA");
+        io.flush();
+        if (pipelining) {
+          // Replies to the pipelined group, in order
+          io.expect("250 2.1.0 ", "MAIL From response");
+          io.expect("250 2.1.5 ", "RCPT To response");
+        }
+        io.expect("354 ", "DATA response");
+        // Message headers and body
+        io.write("To: ");
+        io.writeLine(recipient);
+        io.write("From: ");
+        io.writeLine(from);
+        io.writeLine("Subject: SMTP monitoring message");
+        io.writeLine("");
+        io.writeLine("This message is generated for SMTP port monitoring.");
+        io.writeLine(".");
+        String result;
+        if (pipelining) {
+          // QUIT is last in the group that begins with the message
+          io.writeLine("QUIT");
+          io.flush();
+          io.expect("250 2.0.0 ", "DATA response");
+          result = io.substring(10);
+          beginPhase(socket, CheckPhase.CLOSE);
+          io.expect("221 2.0.0 ", "QUIT response");
+        } else {
+          io.flush();
+          io.expect("250 2.0.0 ", "DATA response");
+          result = io.substring(10);
           // Quit
-          quit(in, out, buffer);
-          // Return OK result
-          return result;
-        } finally {
-          in.close();
+          beginPhase(socket, CheckPhase.CLOSE);
+          quit(io);
         }
-      } finally {
-        out.close();
+        // Return OK result
+        return result;
       }
     } finally {
       if (sslSocket != null) {
@@ -1,6 +1,6 @@
 /*
  * noc-monitor-portmon - Port monitoring implementations.
- * Copyright (C) 2001-2013, 2016, 2017, 2018, 2020, 2021, 2022  AO Industries, Inc.
+ * Copyright (C) 2001-2013, 2016, 2017, 2018, 2020, 2021, 2022, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -25,15 +25,11 @@ package com.aoindustries.noc.monitor.portmon;
 
 import com.aoapps.net.InetAddress;
 import com.aoapps.net.Port;
-import java.io.BufferedReader;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.net.Socket;
-import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
 
 /**
  * Monitors with SSH-specific protocol support.
@@ -51,18 +47,16 @@ public class SshPortMonitor extends DefaultTcpPortMonitor {
 
   @Override
   public String checkPort(Socket socket, InputStream socketIn, OutputStream socketOut) throws Exception {
-    Charset charset = StandardCharsets.US_ASCII;
-    try (BufferedReader in = new BufferedReader(new InputStreamReader(socketIn, charset))) {
+    try (AsciiLineIO io = new AsciiLineIO(socketIn, socketOut)) {
       // Status line
-      String line = in.readLine();
-      if (line == null) {
+      if (!io.readLine()) {
         throw new EOFException("End of file reading status");
       }
-      if (!line.startsWith("SSH-")) {
-        throw new IOException("Unexpected status line: " + line);
+      if (!io.startsWith("SSH-")) {
+        throw new IOException("Unexpected status line: " + io.getLine());
       }
       // Return OK result
-      return line;
+      return io.getLine();
     }
   }
 }
@@ -0,0 +1,112 @@
+/*
+ * noc-monitor-portmon - Port monitoring implementations.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of noc-monitor-portmon.
+ *
+ * noc-monitor-portmon is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * noc-monitor-portmon is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with noc-monitor-portmon.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.noc.monitor.portmon;
+
+import com.aoapps.lang.exception.WrappedException;
+import com.aoapps.net.InetAddress;
+import java.io.IOException;
+import java.net.Socket;
+import java.security.GeneralSecurityException;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * The TLS context shared by all monitors, so that repeated checks of the same
+ * endpoint resume their previous session instead of performing a full handshake.
+ *
+ * <p>The client session cache is keyed by the peer host and port given when the
+ * socket is created.  Sockets are always created with the IP address of the monitor
+ * as the host, thus sessions are cached per target ip:port.  Monitors connecting
+ * with implicit TLS and those negotiating STARTTLS on the same ip:port share a
+ * cache entry.</p>
+ *
+ * <p>A dedicated context is used instead of {@link SSLContext#getDefault()} so the
+ * cache is sized for the number of monitored endpoints and is not shared with any
+ * other TLS use in the JVM.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class SslSessions {
+
+  /** Make no instances. */
+  private SslSessions() {
+    throw new AssertionError();
+  }
+
+  /**
+   * The maximum number of cached client sessions.
+   */
+  public static final int SESSION_CACHE_SIZE = 20_000;
+
+  /**
+   * The number of seconds a cached session may be resumed.  Servers commonly expire
+   * their sessions and tickets well before this, in which case a full handshake is
+   * performed and the new session cached.
+   */
+  public static final int SESSION_TIMEOUT = 60 * 60;
+
+  private static class ContextHolder {
+
+    private static final SSLContext context;
+
+    static {
+      try {
+        context = SSLContext.getInstance("TLS");
+        context.init(null, null, null);
+      } catch (GeneralSecurityException e) {
+        throw new WrappedException(e);
+      }
+      SSLSessionContext sessionContext = context.getClientSessionContext();
+      sessionContext.setSessionCacheSize(SESSION_CACHE_SIZE);
+      sessionContext.setSessionTimeout(SESSION_TIMEOUT);
+    }
+  }
+
+  /**
+   * Gets the shared context.
+   */
+  public static SSLContext getContext() {
+    return ContextHolder.context;
+  }
+
+  /**
+   * Gets the socket factory of the shared context.
+   */
+  public static SSLSocketFactory getSocketFactory() {
+    return ContextHolder.context.getSocketFactory();
+  }
+
+  /**
+   * Layers TLS over an already connected socket.  The handshake is not started.
+   *
+   * @param  ipAddress  the address connected to, which is used as the session cache key
+   * @param  port       the port connected to, which is used as the session cache key
+   * @param  autoClose  close the underlying socket when the returned socket is closed
+   */
+  public static SSLSocket createSocket(Socket socket, InetAddress ipAddress, int port, boolean autoClose) throws IOException {
+    return (SSLSocket) getSocketFactory().createSocket(socket, ipAddress.toString(), port, autoClose);
+  }
+}
@@ -0,0 +1,233 @@
+/*
+ * noc-monitor-portmon - Port monitoring implementations.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of noc-monitor-portmon.
+ *
+ * noc-monitor-portmon is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * noc-monitor-portmon is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with noc-monitor-portmon.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.noc.monitor.portmon;
+
+import com.aoapps.net.InetAddress;
+import com.aoapps.net.Port;
+import com.aoapps.net.URIParameters;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * A monitored target that alternates between a cheap check, run every time, and the full
+ * protocol-specific check from {@link PortMonitor#getPortMonitor(com.aoapps.net.InetAddress, com.aoapps.net.Port, java.lang.String, com.aoapps.net.URIParameters)},
+ * run once per full interval.  When the cheap check fails, the full check is run immediately,
+ * and the full check continues to be run until it succeeds.
+ *
+ * <p>The cheap check reads the greeting of SMTP, FTP, POP3, and IMAP servers, and connects
+ * to database servers.  Monitors that are already cheap, such as the default TCP, SSL, and UDP
+ * monitors, always run in full.</p>
+ *
+ * <p>Since each {@link PortMonitor} is only used once, a new monitor is created by
+ * {@link #get()} for each check.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+public class TieredTarget implements Supplier<PortMonitor> {
+
+  /**
+   * The default interval between full checks.
+   */
+  public static final Duration DEFAULT_FULL_INTERVAL = Duration.ofMinutes(15);
+
+  private static final ProtocolScript SMTP_FTP_BANNER = ProtocolScript.builder()
+      .expect("status", "220 ")
+      .send("QUIT")
+      .build();
+
+  private static final ProtocolScript POP3_BANNER = ProtocolScript.builder()
+      .expect("status", "+OK")
+      .send("QUIT")
+      .build();
+
+  private static final ProtocolScript IMAP_BANNER = ProtocolScript.builder()
+      .expect("capabilities", "* OK")
+      .send("A LOGOUT")
+      .build();
+
+  /**
+   * Reads only the greeting of a server, saying goodbye without waiting for a reply.
+   */
+  private static final class BannerPortMonitor extends DefaultTcpPortMonitor {
+
+    private final ProtocolScript.Bound script;
+
+    private BannerPortMonitor(DefaultTcpPortMonitor full, ProtocolScript.Bound script) {
+      super(full.ipAddress, full.port, full.ssl, full.timeouts);
+      this.script = script;
+    }
+
+    @Override
+    protected String checkPort(Socket socket, InputStream socketIn, OutputStream socketOut) throws Exception {
+      try (AsciiLineIO io = new AsciiLineIO(socketIn, socketOut)) {
+        return script.run(this, socket, io);
+      }
+    }
+  }
+
+  /**
+   * A single check of this target.
+   */
+  private final class Check extends PortMonitor {
+
+    private volatile PortMonitor current;
+
+    private Check() {
+      super(TieredTarget.this.ipAddress, TieredTarget.this.port);
+    }
+
+    private void setCurrent(PortMonitor monitor) {
+      current = monitor;
+      if (canceled) {
+        monitor.cancel();
+      }
+    }
+
+    @Override
+    public void cancel() {
+      super.cancel();
+      PortMonitor myCurrent = current;
+      if (myCurrent != null) {
+        myCurrent.cancel();
+      }
+    }
+
+    @Override
+    public String checkPort() throws Exception {
+      PortMonitor full = getPortMonitor(ipAddress, port, appProtocol, monitoringParameters);
+      Exception cheapFailure = null;
+      if (!isFullDue()) {
+        PortMonitor cheap = newCheapMonitor(full);
+        if (cheap != null) {
+          setCurrent(cheap);
+          try {
+            return cheap.checkPort();
+          } catch (Exception e) {
+            if (canceled) {
+              throw e;
+            }
+            cheapFailure = e;
+          }
+        }
+      }
+      setCurrent(full);
+      long startNanos = System.nanoTime();
+      boolean successful = false;
+      try {
+        String result = full.checkPort();
+        successful = true;
+        return result;
+      } catch (Exception e) {
+        if (cheapFailure != null) {
+          e.addSuppressed(cheapFailure);
+        }
+        throw e;
+      } finally {
+        fullCompleted(startNanos, successful);
+      }
+    }
+  }
+
+  protected final InetAddress ipAddress;
+  protected final Port port;
+  protected final String appProtocol;
+  protected final URIParameters monitoringParameters;
+  private final long fullIntervalNanos;
+
+  private final Object lock = new Object();
+  private boolean fullDue = true;
+  private long lastFullStartNanos;
+
+  /**
+   * Creates a new tiered target.
+   *
+   * @param  fullInterval  the time between the starts of full checks
+   */
+  public TieredTarget(InetAddress ipAddress, Port port, String appProtocol, URIParameters monitoringParameters, Duration fullInterval) {
+    if (fullInterval.isNegative() || fullInterval.isZero()) {
+      throw new IllegalArgumentException("fullInterval must be positive: " + fullInterval);
+    }
+    this.ipAddress = ipAddress;
+    this.port = port;
+    this.appProtocol = appProtocol;
+    this.monitoringParameters = monitoringParameters;
+    this.fullIntervalNanos = fullInterval.toNanos();
+  }
+
+  /**
+   * Creates a new tiered target with the default full interval.
+   */
+  public TieredTarget(InetAddress ipAddress, Port port, String appProtocol, URIParameters monitoringParameters) {
+    this(ipAddress, port, appProtocol, monitoringParameters, DEFAULT_FULL_INTERVAL);
+  }
+
+  /**
+   * Is the next check a full check?  A full check is due on the first check, once the full interval
+   * has passed, and after any failed full check.
+   */
+  public boolean isFullDue() {
+    synchronized (lock) {
+      return fullDue || System.nanoTime() - lastFullStartNanos >= fullIntervalNanos;
+    }
+  }
+
+  private void fullCompleted(long startNanos, boolean successful) {
+    synchronized (lock) {
+      lastFullStartNanos = startNanos;
+      fullDue = !successful;
+    }
+  }
+
+  /**
+   * Creates the cheap monitor used in place of the given full monitor.
+   *
+   * @return  the cheap monitor or {@code null} when the full monitor is cheap enough to always run
+   */
+  protected PortMonitor newCheapMonitor(PortMonitor full) {
+    if (full instanceof SmtpPortMonitor || full instanceof FtpPortMonitor) {
+      return new BannerPortMonitor((DefaultTcpPortMonitor) full, SMTP_FTP_BANNER.bind(monitoringParameters));
+    }
+    if (full instanceof Pop3PortMonitor) {
+      return new BannerPortMonitor((DefaultTcpPortMonitor) full, POP3_BANNER.bind(monitoringParameters));
+    }
+    if (full instanceof ImapPortMonitor) {
+      return new BannerPortMonitor((DefaultTcpPortMonitor) full, IMAP_BANNER.bind(monitoringParameters));
+    }
+    if (full instanceof JdbcPortMonitor) {
+      return new DefaultTcpPortMonitor(ipAddress, port, false, ((JdbcPortMonitor) full).timeouts);
+    }
+    return null;
+  }
+
+  /**
+   * Creates the monitor for the next check.
+   */
+  @Override
+  public PortMonitor get() {
+    return new Check();
+  }
+}
@@ -0,0 +1,192 @@
+/*
+ * noc-monitor-portmon - Port monitoring implementations.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of noc-monitor-portmon.
+ *
+ * noc-monitor-portmon is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * noc-monitor-portmon is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with noc-monitor-portmon.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.noc.monitor.portmon;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks the time remaining for a single check as it moves through each {@link CheckPhase}.
+ * The total timeout starts when the budget is created, and whatever remains is carried across
+ * each step of the protocol.
+ *
+ * <p>The time spent in each phase is also totaled, for {@link PortCheckResult}.</p>
+ *
+ * <p>Phases are begun by the thread performing the check.  The current phase may be read by
+ * any thread.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class TimeoutBudget {
+
+  private static final int PHASE_COUNT = CheckPhase.values().length;
+
+  private final Timeouts timeouts;
+  private final long startNanos;
+  private volatile CheckPhase phase;
+  private long phaseStartNanos;
+  private int phaseTimeout;
+  private boolean limitedByTotal;
+  private final long[] phaseNanos = new long[PHASE_COUNT];
+  private long endNanos;
+  private boolean ended;
+
+  /**
+   * Starts a new budget.
+   */
+  public TimeoutBudget(Timeouts timeouts) {
+    this.timeouts = timeouts;
+    this.startNanos = System.nanoTime();
+  }
+
+  /**
+   * Gets the timeouts this budget is enforcing.
+   */
+  public Timeouts getTimeouts() {
+    return timeouts;
+  }
+
+  /**
+   * Gets the time since the budget was created.
+   */
+  public long getElapsedNanos() {
+    return System.nanoTime() - startNanos;
+  }
+
+  /**
+   * Gets the milliseconds remaining in the total timeout, which may be zero or negative
+   * once exceeded.
+   */
+  public long getRemaining() {
+    return timeouts.getTotal() - TimeUnit.NANOSECONDS.toMillis(getElapsedNanos());
+  }
+
+  /**
+   * Gets the current phase or {@code null} when no phase begun.
+   */
+  public CheckPhase getPhase() {
+    return phase;
+  }
+
+  /**
+   * Moves to a new phase for timing only, without limiting its time, such as closing.
+   * The time of the current phase is added to its total.
+   */
+  void enter(CheckPhase phase) {
+    long now = System.nanoTime();
+    CheckPhase previous = this.phase;
+    if (previous != null && !ended) {
+      phaseNanos[previous.ordinal()] += now - phaseStartNanos;
+    }
+    ended = false;
+    this.phase = phase;
+    phaseStartNanos = now;
+  }
+
+  /**
+   * Ends the timing of the check, adding the time of the current phase to its total.
+   */
+  public void end() {
+    if (!ended) {
+      endNanos = System.nanoTime();
+      CheckPhase myPhase = phase;
+      if (myPhase != null) {
+        phaseNanos[myPhase.ordinal()] += endNanos - phaseStartNanos;
+      }
+      ended = true;
+    }
+  }
+
+  /**
+   * Gets the total time spent in the given phase, including the current phase when not yet ended.
+   * A phase begun more than once, such as {@link CheckPhase#COMMAND}, includes all of its time.
+   */
+  public long getPhaseNanos(CheckPhase phase) {
+    long nanos = phaseNanos[phase.ordinal()];
+    if (!ended && phase == this.phase) {
+      nanos += System.nanoTime() - phaseStartNanos;
+    }
+    return nanos;
+  }
+
+  /**
+   * Gets the time from creation until {@link #end()}, or until now when not yet ended.
+   */
+  public long getTotalNanos() {
+    return (ended ? endNanos : System.nanoTime()) - startNanos;
+  }
+
+  /**
+   * Begins a new phase.
+   *
+   * @return  the timeout for the phase, in milliseconds, suitable for
+   *          {@link java.net.Socket#setSoTimeout(int)} or {@link java.net.Socket#connect(java.net.SocketAddress, int)}.
+   *          This is the lesser of the phase timeout and the remaining total.
+   *
+   * @throws  PhaseTimeoutException  when the total timeout has already been exceeded
+   */
+  public int begin(CheckPhase phase) throws PhaseTimeoutException {
+    enter(phase);
+    long remaining = getRemaining();
+    int timeout = timeouts.getTimeout(phase);
+    if (remaining < timeout) {
+      limitedByTotal = true;
+      phaseTimeout = (int) Math.max(0, remaining);
+    } else {
+      limitedByTotal = false;
+      phaseTimeout = timeout;
+    }
+    if (phaseTimeout == 0) {
+      throw timedOut(null);
+    }
+    return phaseTimeout;
+  }
+
+  /**
+   * Creates the exception for a timeout in the current phase.
+   *
+   * @param  cause  the underlying timeout, if any
+   */
+  public PhaseTimeoutException timedOut(Throwable cause) {
+    long now = System.nanoTime();
+    CheckPhase myPhase = phase;
+    StringBuilder message = new StringBuilder();
+    message.append(myPhase).append(" timed out after ")
+        .append(TimeUnit.NANOSECONDS.toMillis(now - phaseStartNanos)).append(" ms");
+    if (limitedByTotal) {
+      message.append(", total timeout of ").append(timeouts.getTotal()).append(" ms reached");
+    } else {
+      message.append(", limit ").append(phaseTimeout).append(" ms");
+    }
+    PhaseTimeoutException e = new PhaseTimeoutException(
+        message.toString(),
+        myPhase,
+        now - phaseStartNanos,
+        now - startNanos
+    );
+    if (cause != null) {
+      e.initCause(cause);
+    }
+    return e;
+  }
+}
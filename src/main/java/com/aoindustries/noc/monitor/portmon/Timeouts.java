@@ -0,0 +1,231 @@
+/*
+ * noc-monitor-portmon - Port monitoring implementations.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of noc-monitor-portmon.
+ *
+ * noc-monitor-portmon is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * noc-monitor-portmon is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with noc-monitor-portmon.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.noc.monitor.portmon;
+
+import com.aoapps.net.URIParameters;
+
+/**
+ * The timeouts, in milliseconds, for each {@link CheckPhase} along with a total for the entire check.
+ * Each phase is limited by both its own timeout and the time remaining in the total.
+ *
+ * <p>Set through monitoring parameters
+ * <code>connectTimeout</code>, <code>handshakeTimeout</code>, <code>greetingTimeout</code>,
+ * <code>authTimeout</code>, and <code>totalTimeout</code>.  {@link CheckPhase#COMMAND} is only limited
+ * by the total.</p>
+ *
+ * @see  TimeoutBudget
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class Timeouts {
+
+  /**
+   * The default connect timeout, short so that a dead host fails quickly.
+   */
+  public static final int DEFAULT_CONNECT = 2_000;
+
+  /**
+   * The default TLS handshake timeout.
+   */
+  public static final int DEFAULT_HANDSHAKE = 10_000;
+
+  /**
+   * The default greeting timeout.
+   */
+  public static final int DEFAULT_GREETING = 15_000;
+
+  /**
+   * The default authentication timeout, allowing for servers that delay failed logins.
+   */
+  public static final int DEFAULT_AUTH = 30_000;
+
+  /**
+   * The default total timeout, matching the previous single timeout.
+   */
+  public static final int DEFAULT_TOTAL = 60_000;
+
+  /**
+   * The default timeouts.
+   */
+  public static final Timeouts DEFAULT = new Timeouts(DEFAULT_CONNECT, DEFAULT_HANDSHAKE, DEFAULT_GREETING, DEFAULT_AUTH, DEFAULT_TOTAL);
+
+  private static int getParameter(URIParameters monitoringParameters, String name, int defaultValue) throws IllegalArgumentException {
+    String value = monitoringParameters.getParameter(name);
+    if (value == null || value.isEmpty()) {
+      return defaultValue;
+    }
+    int timeout;
+    try {
+      timeout = Integer.parseInt(value);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("monitoringParameters contains invalid " + name + ": " + value, e);
+    }
+    if (timeout <= 0) {
+      throw new IllegalArgumentException("monitoringParameters contains non-positive " + name + ": " + value);
+    }
+    return timeout;
+  }
+
+  /**
+   * Gets the timeouts from monitoring parameters, using the defaults for any not provided.
+   *
+   * @return  {@link #DEFAULT} when no timeouts provided
+   *
+   * @throws  IllegalArgumentException  when any timeout is not a positive integer
+   */
+  public static Timeouts valueOf(URIParameters monitoringParameters) throws IllegalArgumentException {
+    int connect = getParameter(monitoringParameters, "connectTimeout", DEFAULT_CONNECT);
+    int handshake = getParameter(monitoringParameters, "handshakeTimeout", DEFAULT_HANDSHAKE);
+    int greeting = getParameter(monitoringParameters, "greetingTimeout", DEFAULT_GREETING);
+    int auth = getParameter(monitoringParameters, "authTimeout", DEFAULT_AUTH);
+    int total = getParameter(monitoringParameters, "totalTimeout", DEFAULT_TOTAL);
+    if (
+        connect == DEFAULT_CONNECT
+            && handshake == DEFAULT_HANDSHAKE
+            && greeting == DEFAULT_GREETING
+            && auth == DEFAULT_AUTH
+            && total == DEFAULT_TOTAL
+    ) {
+      return DEFAULT;
+    }
+    return new Timeouts(connect, handshake, greeting, auth, total);
+  }
+
+  private final int connect;
+  private final int handshake;
+  private final int greeting;
+  private final int auth;
+  private final int total;
+
+  /**
+   * Creates new timeouts, all in milliseconds.
+   */
+  public Timeouts(int connect, int handshake, int greeting, int auth, int total) {
+    if (connect <= 0) {
+      throw new IllegalArgumentException("connect <= 0: " + connect);
+    }
+    if (handshake <= 0) {
+      throw new IllegalArgumentException("handshake <= 0: " + handshake);
+    }
+    if (greeting <= 0) {
+      throw new IllegalArgumentException("greeting <= 0: " + greeting);
+    }
+    if (auth <= 0) {
+      throw new IllegalArgumentException("auth <= 0: " + auth);
+    }
+    if (total <= 0) {
+      throw new IllegalArgumentException("total <= 0: " + total);
+    }
+    this.connect = connect;
+    this.handshake = handshake;
+    this.greeting = greeting;
+    this.auth = auth;
+    this.total = total;
+  }
+
+  @Override
+  public String toString() {
+    return "connect=" + connect + ", handshake=" + handshake + ", greeting=" + greeting + ", auth=" + auth + ", total=" + total;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (!(obj instanceof Timeouts)) {
+      return false;
+    }
+    Timeouts other = (Timeouts) obj;
+    return
+        connect == other.connect
+            && handshake == other.handshake
+            && greeting == other.greeting
+            && auth == other.auth
+            && total == other.total;
+  }
+
+  @Override
+  public int hashCode() {
+    int hash = connect;
+    hash = hash * 31 + handshake;
+    hash = hash * 31 + greeting;
+    hash = hash * 31 + auth;
+    hash = hash * 31 + total;
+    return hash;
+  }
+
+  /**
+   * The connect timeout in milliseconds.
+   */
+  public int getConnect() {
+    return connect;
+  }
+
+  /**
+   * The TLS handshake timeout in milliseconds.
+   */
+  public int getHandshake() {
+    return handshake;
+  }
+
+  /**
+   * The greeting timeout in milliseconds.
+   */
+  public int getGreeting() {
+    return greeting;
+  }
+
+  /**
+   * The authentication timeout in milliseconds.
+   */
+  public int getAuth() {
+    return auth;
+  }
+
+  /**
+   * The total timeout in milliseconds.
+   */
+  public int getTotal() {
+    return total;
+  }
+
+  /**
+   * Gets the timeout for the given phase, not considering the total.
+   */
+  public int getTimeout(CheckPhase phase) {
+    switch (phase) {
+      case CONNECT:
+        return connect;
+      case TLS_HANDSHAKE:
+        return handshake;
+      case GREETING:
+        return greeting;
+      case AUTH:
+        return auth;
+      case COMMAND:
+      case CLOSE:
+        return total;
+      default:
+        throw new AssertionError("Unexpected phase: " + phase);
+    }
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * noc-monitor-portmon - Port monitoring implementations.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of noc-monitor-portmon.
+ *
+ * noc-monitor-portmon is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * noc-monitor-portmon is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with noc-monitor-portmon.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.noc.monitor.portmon;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+
+/**
+ * The outcome of a completed TLS handshake.
+ *
+ * @author  AO Industries, Inc.
+ */
+public final class TlsHandshake {
+
+  /**
+   * Starts the handshake and waits for it to complete.
+   */
+  static TlsHandshake perform(SSLSocket socket) throws IOException {
+    long startMillis = System.currentTimeMillis();
+    long startNanos = System.nanoTime();
+    socket.startHandshake();
+    long nanos = System.nanoTime() - startNanos;
+    SSLSession session = socket.getSession();
+    return new TlsHandshake(
+        session.getProtocol(),
+        session.getCipherSuite(),
+        nanos,
+        // A session created before this handshake began was resumed from the cache
+        session.getCreationTime() < startMillis
+    );
+  }
+
+  private final String protocol;
+  private final String cipherSuite;
+  private final long nanos;
+  private final boolean resumed;
+
+  private TlsHandshake(String protocol, String cipherSuite, long nanos, boolean resumed) {
+    this.protocol = protocol;
+    this.cipherSuite = cipherSuite;
+    this.nanos = nanos;
+    this.resumed = resumed;
+  }
+
+  /**
+   * Gets the negotiated protocol, such as <code>TLSv1.3</code>.
+   */
+  public String getProtocol() {
+    return protocol;
+  }
+
+  /**
+   * Gets the negotiated cipher suite.
+   */
+  public String getCipherSuite() {
+    return cipherSuite;
+  }
+
+  /**
+   * Gets the time taken by the handshake.
+   */
+  public long getNanos() {
+    return nanos;
+  }
+
+  /**
+   * Was a previous session resumed instead of performing a full handshake?
+   *
+   * @see  SslSessions
+   */
+  public boolean isResumed() {
+    return resumed;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append(protocol).append(", ").append(cipherSuite).append(", ")
+        .append(TimeUnit.NANOSECONDS.toMillis(nanos)).append(" ms");
+    if (resumed) {
+      sb.append(", resumed");
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,591 @@
+/*
+ * noc-monitor-portmon - Port monitoring implementations.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of noc-monitor-portmon.
+ *
+ * noc-monitor-portmon is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * noc-monitor-portmon is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with noc-monitor-portmon.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.noc.monitor.portmon;
+
+import com.aoapps.lang.Strings;
+import com.aoapps.net.Port;
+import com.aoapps.net.URIParameters;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * The request sent and the reply expected by a {@link UdpProbeEngine}.
+ *
+ * <p>Each request carries a transaction ID chosen by the engine, such as the DNS message ID or
+ * SNMP request-id.  Replies that do not match the transaction ID are ignored, so late replies to
+ * earlier requests are never mistaken for the current one.</p>
+ *
+ * <p>Probes are immutable and may be shared by any number of checks.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+public abstract class UdpProbe {
+
+  /**
+   * The well-known DNS port.
+   */
+  public static final int DNS_PORT = 53;
+
+  /**
+   * The well-known NTP port.
+   */
+  public static final int NTP_PORT = 123;
+
+  /**
+   * The well-known SNMP port.
+   */
+  public static final int SNMP_PORT = 161;
+
+  /**
+   * The result when no reply is received by {@link #silent()}.
+   */
+  public static final String NO_REPLY = "No reply, port open or filtered";
+
+  /**
+   * The longest {@link #silent()} waits for an ICMP port unreachable or any reply, in milliseconds.
+   */
+  public static final int SILENT_TIMEOUT = 2000;
+
+  /**
+   * Writes the request.
+   */
+  protected abstract void writeRequest(ByteBuffer buffer, int transactionId);
+
+  /**
+   * Checks a reply.
+   *
+   * @return  the result or {@code null} when the reply is not for this request and should be ignored
+   *
+   * @throws  IOException  when the reply is for this request, but indicates failure
+   */
+  protected abstract String checkReply(ByteBuffer reply, int transactionId) throws IOException;
+
+  /**
+   * Gets the result when no reply is received before the timeout.
+   *
+   * @return  the result or {@code null} when no reply is a failure, which is the default
+   */
+  protected String noReply() {
+    return null;
+  }
+
+  /**
+   * Gets the longest time to wait for a reply, in milliseconds, further limited by the greeting and
+   * total timeouts.
+   *
+   * @return  the timeout or {@link Integer#MAX_VALUE} when only limited by the timeouts, which is the default
+   */
+  protected int getReplyTimeout() {
+    return Integer.MAX_VALUE;
+  }
+
+  // <editor-fold desc="Silent">
+  private static final class Silent extends UdpProbe {
+
+    private static final Silent INSTANCE = new Silent();
+
+    @Override
+    protected void writeRequest(ByteBuffer buffer, int transactionId) {
+      // A single NUL, since NIO does not send empty datagrams
+      buffer.put((byte) 0);
+    }
+
+    @Override
+    protected String checkReply(ByteBuffer reply, int transactionId) {
+      return "Reply: " + reply.remaining() + " bytes";
+    }
+
+    @Override
+    protected String noReply() {
+      return NO_REPLY;
+    }
+
+    @Override
+    protected int getReplyTimeout() {
+      return SILENT_TIMEOUT;
+    }
+  }
+
+  /**
+   * Sends a single NUL byte.  Only an ICMP port unreachable fails, since services are not
+   * expected to reply.  Waits at most {@link #SILENT_TIMEOUT}, long enough for an ICMP port
+   * unreachable, since waiting longer only delays the same result.
+   */
+  public static UdpProbe silent() {
+    return Silent.INSTANCE;
+  }
+  // </editor-fold>
+
+  // <editor-fold desc="Hex">
+  private static final class Payload extends UdpProbe {
+
+    private final byte[] payload;
+
+    private Payload(byte[] payload) {
+      this.payload = payload;
+    }
+
+    @Override
+    protected void writeRequest(ByteBuffer buffer, int transactionId) {
+      buffer.put(payload);
+    }
+
+    @Override
+    protected String checkReply(ByteBuffer reply, int transactionId) {
+      return "Reply: " + reply.remaining() + " bytes";
+    }
+  }
+
+  /**
+   * Sends a fixed payload, succeeding on any reply.
+   */
+  public static UdpProbe payload(byte[] payload) {
+    return new Payload(payload.clone());
+  }
+
+  /**
+   * Sends a fixed payload given in hexadecimal, succeeding on any reply.
+   *
+   * @throws  IllegalArgumentException  when not an even number of hexadecimal digits
+   */
+  public static UdpProbe hex(String hex) throws IllegalArgumentException {
+    int len = hex.length();
+    if ((len & 1) != 0) {
+      throw new IllegalArgumentException("Odd number of hexadecimal digits: " + hex);
+    }
+    byte[] payload = new byte[len / 2];
+    for (int i = 0; i < len; i += 2) {
+      int high = Character.digit(hex.charAt(i), 16);
+      int low = Character.digit(hex.charAt(i + 1), 16);
+      if (high == -1 || low == -1) {
+        throw new IllegalArgumentException("Invalid hexadecimal: " + hex);
+      }
+      payload[i / 2] = (byte) ((high << 4) | low);
+    }
+    return new Payload(payload);
+  }
+  // </editor-fold>
+
+  // <editor-fold desc="DNS">
+  /**
+   * The DNS record type NS.
+   */
+  public static final int DNS_TYPE_NS = 2;
+
+  private static final String[] DNS_RCODES = {
+      "NOERROR", "FORMERR", "SERVFAIL", "NXDOMAIN", "NOTIMP", "REFUSED"
+  };
+
+  /**
+   * Gets the name of a DNS response code.
+   */
+  static String getRcodeName(int rcode) {
+    return rcode < DNS_RCODES.length ? DNS_RCODES[rcode] : ("RCODE" + rcode);
+  }
+
+  /**
+   * Encodes a domain name as DNS labels.
+   *
+   * @throws  IllegalArgumentException  when any label is empty or too long
+   */
+  static byte[] encodeName(String name) throws IllegalArgumentException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    if (!name.isEmpty() && !".".equals(name)) {
+      String trimmed = name.endsWith(".") ? name.substring(0, name.length() - 1) : name;
+      for (String label : trimmed.split("\\.", -1)) {
+        byte[] bytes = label.getBytes(StandardCharsets.US_ASCII);
+        if (bytes.length == 0 || bytes.length > 63) {
+          throw new IllegalArgumentException("Invalid label in DNS name: " + name);
+        }
+        out.write(bytes.length);
+        out.write(bytes, 0, bytes.length);
+      }
+    }
+    out.write(0);
+    if (out.size() > 255) {
+      throw new IllegalArgumentException("DNS name too long: " + name);
+    }
+    return out.toByteArray();
+  }
+
+  private static final class Dns extends UdpProbe {
+
+    private final byte[] question;
+
+    private Dns(String name, int type) {
+      byte[] encoded = encodeName(name);
+      question = new byte[encoded.length + 4];
+      System.arraycopy(encoded, 0, question, 0, encoded.length);
+      question[encoded.length] = (byte) (type >> 8);
+      question[encoded.length + 1] = (byte) type;
+      // Class IN
+      question[encoded.length + 2] = 0;
+      question[encoded.length + 3] = 1;
+    }
+
+    @Override
+    protected void writeRequest(ByteBuffer buffer, int transactionId) {
+      buffer
+          .putShort((short) transactionId)
+          // Recursion desired
+          .putShort((short) 0x0100)
+          // One question
+          .putShort((short) 1)
+          .putShort((short) 0)
+          .putShort((short) 0)
+          .putShort((short) 0)
+          .put(question);
+    }
+
+    @Override
+    protected String checkReply(ByteBuffer reply, int transactionId) throws IOException {
+      if (reply.remaining() < 12 || reply.getShort(0) != (short) transactionId) {
+        return null;
+      }
+      int flags = reply.getShort(2) & 0xFFFF;
+      if ((flags & 0x8000) == 0) {
+        // Not a response
+        return null;
+      }
+      int rcode = flags & 0xF;
+      if (rcode == 2) {
+        throw new IOException("DNS server failure: " + getRcodeName(rcode));
+      }
+      return "DNS " + getRcodeName(rcode) + ", " + (reply.getShort(6) & 0xFFFF) + " answers";
+    }
+  }
+
+  /**
+   * Sends a DNS query, succeeding on any reply other than a server failure.  Servers that refuse
+   * recursion still reply, so a query for the root name servers checks both recursive and
+   * authoritative servers.
+   *
+   * @param  name  the name queried, such as <code>"."</code>
+   * @param  type  the record type, such as {@link #DNS_TYPE_NS}
+   *
+   * @throws  IllegalArgumentException  when the name is invalid
+   */
+  public static UdpProbe dns(String name, int type) throws IllegalArgumentException {
+    if (type < 1 || type > 0xFFFF) {
+      throw new IllegalArgumentException("Invalid DNS type: " + type);
+    }
+    return new Dns(name, type);
+  }
+  // </editor-fold>
+
+  // <editor-fold desc="NTP">
+  private static final class Ntp extends UdpProbe {
+
+    private static final Ntp INSTANCE = new Ntp();
+
+    @Override
+    protected void writeRequest(ByteBuffer buffer, int transactionId) {
+      // LI 0, version 4, mode 3 (client)
+      buffer.put((byte) 0x23);
+      for (int i = 1; i < 40; i++) {
+        buffer.put((byte) 0);
+      }
+      // The transmit timestamp is only used to match the reply, which returns it as the originate timestamp
+      buffer.putInt(transactionId).putInt(~transactionId);
+    }
+
+    @Override
+    protected String checkReply(ByteBuffer reply, int transactionId) throws IOException {
+      if (
+          reply.remaining() < 48
+              // Mode 4 (server)
+              || (reply.get(0) & 0x7) != 4
+              || reply.getInt(24) != transactionId
+              || reply.getInt(28) != ~transactionId
+      ) {
+        return null;
+      }
+      int stratum = reply.get(1) & 0xFF;
+      if (stratum == 0) {
+        byte[] code = new byte[4];
+        for (int i = 0; i < 4; i++) {
+          code[i] = reply.get(12 + i);
+        }
+        throw new IOException("NTP Kiss-o'-Death: " + new String(code, StandardCharsets.US_ASCII).trim());
+      }
+      if ((reply.get(0) & 0xC0) == 0xC0) {
+        throw new IOException("NTP server not synchronized");
+      }
+      return "NTP stratum " + stratum;
+    }
+  }
+
+  /**
+   * Sends an NTP client request, succeeding when a synchronized server replies.
+   */
+  public static UdpProbe ntp() {
+    return Ntp.INSTANCE;
+  }
+  // </editor-fold>
+
+  // <editor-fold desc="SNMP">
+  private static final int BER_INTEGER = 0x02;
+  private static final int BER_OCTET_STRING = 0x04;
+  private static final int BER_NULL = 0x05;
+  private static final int BER_OID = 0x06;
+  private static final int BER_SEQUENCE = 0x30;
+  private static final int SNMP_TIMETICKS = 0x43;
+  private static final int SNMP_GET_REQUEST = 0xA0;
+  private static final int SNMP_RESPONSE = 0xA2;
+
+  /**
+   * The OID of sysUpTime.0: 1.3.6.1.2.1.1.3.0.
+   */
+  private static final byte[] SYS_UP_TIME = {BER_OID, 0x08, 0x2B, 0x06, 0x01, 0x02, 0x01, 0x01, 0x03, 0x00};
+
+  private static void writeLength(ByteArrayOutputStream out, int length) {
+    if (length < 0x80) {
+      out.write(length);
+    } else if (length <= 0xFF) {
+      out.write(0x81);
+      out.write(length);
+    } else {
+      out.write(0x82);
+      out.write(length >> 8);
+      out.write(length);
+    }
+  }
+
+  private static byte[] tlv(int tag, byte[] ... values) {
+    int length = 0;
+    for (byte[] value : values) {
+      length += value.length;
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream(length + 4);
+    out.write(tag);
+    writeLength(out, length);
+    for (byte[] value : values) {
+      out.write(value, 0, value.length);
+    }
+    return out.toByteArray();
+  }
+
+  /**
+   * Encodes a non-negative integer in the fewest bytes, keeping the sign bit clear.
+   */
+  private static byte[] encodeInteger(int value) {
+    int len = 1;
+    while (len < 4 && (value >> (len * 8 - 1)) != 0) {
+      len++;
+    }
+    byte[] bytes = new byte[len];
+    for (int i = 0; i < len; i++) {
+      bytes[i] = (byte) (value >> ((len - 1 - i) * 8));
+    }
+    return bytes;
+  }
+
+  private static int readLength(ByteBuffer buffer) throws IOException {
+    int length = buffer.get() & 0xFF;
+    if (length < 0x80) {
+      return length;
+    }
+    int count = length & 0x7F;
+    if (count == 0 || count > 3) {
+      throw new IOException("Unsupported BER length");
+    }
+    length = 0;
+    for (int i = 0; i < count; i++) {
+      length = (length << 8) | (buffer.get() & 0xFF);
+    }
+    return length;
+  }
+
+  /**
+   * Reads the tag and length of the next value.
+   *
+   * @return  the length
+   */
+  private static int readHeader(ByteBuffer buffer, int tag) throws IOException {
+    int actual = buffer.get() & 0xFF;
+    if (actual != tag) {
+      throw new IOException("Unexpected BER tag: expected 0x" + Integer.toHexString(tag) + ", got 0x" + Integer.toHexString(actual));
+    }
+    return readLength(buffer);
+  }
+
+  /**
+   * Skips the next value.
+   */
+  private static void skip(ByteBuffer buffer, int tag) throws IOException {
+    int length = readHeader(buffer, tag);
+    buffer.position(buffer.position() + length);
+  }
+
+  private static long readUnsigned(ByteBuffer buffer, int length) throws IOException {
+    if (length < 1 || length > 8) {
+      throw new IOException("Unsupported BER integer length: " + length);
+    }
+    long value = 0;
+    for (int i = 0; i < length; i++) {
+      value = (value << 8) | (buffer.get() & 0xFF);
+    }
+    return value;
+  }
+
+  private static final class Snmp extends UdpProbe {
+
+    /**
+     * The version and community, the same for every request.
+     */
+    private final byte[] header;
+
+    private Snmp(String community) {
+      byte[] version = tlv(BER_INTEGER, new byte[] {1});
+      byte[] communityTlv = tlv(BER_OCTET_STRING, community.getBytes(StandardCharsets.UTF_8));
+      header = new byte[version.length + communityTlv.length];
+      System.arraycopy(version, 0, header, 0, version.length);
+      System.arraycopy(communityTlv, 0, header, version.length, communityTlv.length);
+    }
+
+    @Override
+    protected void writeRequest(ByteBuffer buffer, int transactionId) {
+      // Positive request-id
+      int requestId = transactionId & 0x7FFFFFFF;
+      byte[] pdu = tlv(
+          SNMP_GET_REQUEST,
+          tlv(BER_INTEGER, encodeInteger(requestId)),
+          tlv(BER_INTEGER, new byte[] {0}),
+          tlv(BER_INTEGER, new byte[] {0}),
+          tlv(BER_SEQUENCE, tlv(BER_SEQUENCE, SYS_UP_TIME, new byte[] {BER_NULL, 0}))
+      );
+      buffer.put(tlv(BER_SEQUENCE, header, pdu));
+    }
+
+    @Override
+    protected String checkReply(ByteBuffer reply, int transactionId) throws IOException {
+      ByteBuffer buffer = reply.duplicate();
+      try {
+        readHeader(buffer, BER_SEQUENCE);
+        // Version
+        skip(buffer, BER_INTEGER);
+        // Community
+        skip(buffer, BER_OCTET_STRING);
+        if ((buffer.get(buffer.position()) & 0xFF) != SNMP_RESPONSE) {
+          return null;
+        }
+        readHeader(buffer, SNMP_RESPONSE);
+        if (readUnsigned(buffer, readHeader(buffer, BER_INTEGER)) != (transactionId & 0x7FFFFFFF)) {
+          return null;
+        }
+        long errorStatus = readUnsigned(buffer, readHeader(buffer, BER_INTEGER));
+        if (errorStatus != 0) {
+          throw new IOException("SNMP error-status " + errorStatus);
+        }
+        // Error index
+        skip(buffer, BER_INTEGER);
+        readHeader(buffer, BER_SEQUENCE);
+        readHeader(buffer, BER_SEQUENCE);
+        // OID
+        skip(buffer, BER_OID);
+        if ((buffer.get(buffer.position()) & 0xFF) == SNMP_TIMETICKS) {
+          long ticks = readUnsigned(buffer, readHeader(buffer, SNMP_TIMETICKS));
+          return "SNMP sysUpTime " + (ticks / 100) + " seconds";
+        }
+        return "SNMP response";
+      } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+        throw new IOException("Invalid SNMP response", e);
+      }
+    }
+  }
+
+  /**
+   * Sends an SNMPv2c get of <code>sysUpTime.0</code>, succeeding on a response without error.
+   * Agents silently drop requests with an unknown community, which fail as no reply.
+   */
+  public static UdpProbe snmp(String community) {
+    return new Snmp(community);
+  }
+  // </editor-fold>
+
+  /**
+   * Gets the probe for a well-known port.  Only used when requested with <code>probe=auto</code>,
+   * since the default settings, such as the SNMP community <code>public</code>, may not match the service.
+   *
+   * @return  the DNS, NTP, or SNMP probe with default settings, otherwise {@link #silent()}
+   */
+  public static UdpProbe forPort(Port port) {
+    switch (port.getPort()) {
+      case DNS_PORT:
+        return dns(".", DNS_TYPE_NS);
+      case NTP_PORT:
+        return ntp();
+      case SNMP_PORT:
+        return snmp("public");
+      default:
+        return silent();
+    }
+  }
+
+  /**
+   * Gets the probe from monitoring parameters:
+   * <ul>
+   *   <li><code>probe=dns</code>, with optional <code>query</code>, defaulting to the root name servers</li>
+   *   <li><code>probe=ntp</code></li>
+   *   <li><code>probe=snmp</code>, with optional <code>community</code>, defaulting to <code>public</code></li>
+   *   <li><code>probe=hex</code>, with the <code>payload</code> in hexadecimal</li>
+   *   <li><code>probe=silent</code>, the default</li>
+   *   <li><code>probe=auto</code>, selected by {@link #forPort(com.aoapps.net.Port)}</li>
+   * </ul>
+   *
+   * @throws  IllegalArgumentException  when any parameter is invalid
+   */
+  public static UdpProbe valueOf(Port port, URIParameters monitoringParameters) throws IllegalArgumentException {
+    String probe = Strings.nullIfEmpty(monitoringParameters.getParameter("probe"));
+    if (probe == null) {
+      return silent();
+    }
+    switch (probe.toLowerCase(Locale.ROOT)) {
+      case "dns":
+        String query = Strings.nullIfEmpty(monitoringParameters.getParameter("query"));
+        return dns(query == null ? "." : query, DNS_TYPE_NS);
+      case "ntp":
+        return ntp();
+      case "snmp":
+        String community = Strings.nullIfEmpty(monitoringParameters.getParameter("community"));
+        return snmp(community == null ? "public" : community);
+      case "hex":
+        String payload = Strings.nullIfEmpty(monitoringParameters.getParameter("payload"));
+        if (payload == null) {
+          throw new IllegalArgumentException("monitoringParameters does not include the payload parameter");
+        }
+        return hex(payload);
+      case "silent":
+        return silent();
+      case "auto":
+        return forPort(port);
+      default:
+        throw new IllegalArgumentException("monitoringParameters contains unknown probe: " + probe);
+    }
+  }
+}
@@ -0,0 +1,383 @@
+/*
+ * noc-monitor-portmon - Port monitoring implementations.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of noc-monitor-portmon.
+ *
+ * noc-monitor-portmon is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * noc-monitor-portmon is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with noc-monitor-portmon.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.noc.monitor.portmon;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Sends {@link UdpProbe} requests and matches their replies without blocking a thread per check.
+ * A single selector thread multiplexes any number of outstanding probes.
+ *
+ * <p>Each probe uses its own connected, non-blocking {@link DatagramChannel}.  The operating system
+ * then only delivers datagrams from the probed address and port, and reports an ICMP port
+ * unreachable as a {@link java.net.PortUnreachableException}, which fails the probe.  An unconnected
+ * channel shared by all probes would never see the ICMP errors.  Replies are further matched by
+ * the transaction ID of the request.</p>
+ *
+ * <p>Requests are resent every {@link #RESEND_INTERVAL} milliseconds until a reply is received or the
+ * greeting timeout, limited by the total timeout, passes.</p>
+ *
+ * <p>Futures are completed on the selector thread.  Any dependent stage that may block should be
+ * added with one of the <code>*Async</code> methods of {@link CompletableFuture}.</p>
+ *
+ * @author  AO Industries, Inc.
+ */
+public class UdpProbeEngine implements Closeable {
+
+  private static final Logger logger = Logger.getLogger(UdpProbeEngine.class.getName());
+
+  /**
+   * The interval between resending requests, in milliseconds.
+   */
+  public static final int RESEND_INTERVAL = 1_000;
+
+  /**
+   * The largest UDP payload.
+   */
+  private static final int MAX_DATAGRAM = 65_507;
+
+  private static final AtomicInteger engineCounter = new AtomicInteger();
+
+  /**
+   * A single outstanding probe.
+   */
+  private static final class Pending {
+
+    private final InetSocketAddress address;
+    private final UdpProbe probe;
+    private final int transactionId = ThreadLocalRandom.current().nextInt();
+    private final TimeoutBudget budget;
+    private final long deadline;
+    private final CompletableFuture<String> future = new CompletableFuture<>();
+    private ByteBuffer request;
+    private long nextSend;
+    private volatile DatagramChannel channel;
+
+    private Pending(InetSocketAddress address, UdpProbe probe, Timeouts timeouts) throws PhaseTimeoutException {
+      this.address = address;
+      this.probe = probe;
+      this.budget = new TimeoutBudget(timeouts);
+      this.deadline = System.nanoTime() + Math.min(budget.begin(CheckPhase.GREETING), probe.getReplyTimeout()) * 1_000_000L;
+    }
+
+    /**
+     * The next time this probe needs attention, for a resend or its deadline.
+     */
+    private long getWake() {
+      return (nextSend - deadline < 0) ? nextSend : deadline;
+    }
+
+    private void close() {
+      DatagramChannel myChannel = channel;
+      if (myChannel != null) {
+        try {
+          myChannel.close();
+        } catch (IOException err) {
+          logger.log(Level.WARNING, null, err);
+        }
+      }
+    }
+
+    private void succeed(String result) {
+      close();
+      future.complete(result);
+    }
+
+    private void fail(Throwable t) {
+      close();
+      future.completeExceptionally(t);
+    }
+  }
+
+  /**
+   * The shared engine, created on first use.
+   */
+  private static final class Instance {
+    private static final UdpProbeEngine instance;
+
+    static {
+      try {
+        instance = new UdpProbeEngine();
+      } catch (IOException e) {
+        throw new ExceptionInInitializerError(e);
+      }
+    }
+  }
+
+  /**
+   * Gets the engine shared by all {@link DefaultUdpPortMonitor}, which is never closed.
+   */
+  public static UdpProbeEngine getInstance() {
+    return Instance.instance;
+  }
+
+  private final Selector selector;
+  private final Queue<Pending> registrations = new ConcurrentLinkedQueue<>();
+
+  /**
+   * Outstanding probes ordered by their next wake time, only accessed by the selector thread.
+   * Completed entries are removed lazily once they reach the head.
+   */
+  private final PriorityQueue<Pending> wakes = new PriorityQueue<>(
+      (p1, p2) -> Long.compare(p1.getWake() - p2.getWake(), 0)
+  );
+
+  /**
+   * Builds requests, only accessed by the selector thread.
+   */
+  private final ByteBuffer sendBuffer = ByteBuffer.allocate(MAX_DATAGRAM);
+
+  /**
+   * Receives all replies, only accessed by the selector thread.
+   */
+  private final ByteBuffer receiveBuffer = ByteBuffer.allocateDirect(MAX_DATAGRAM + 1);
+
+  private final Thread thread;
+  private volatile boolean closed;
+
+  /**
+   * Creates a new engine and starts its selector thread.
+   */
+  public UdpProbeEngine() throws IOException {
+    selector = Selector.open();
+    thread = new Thread(this::run, UdpProbeEngine.class.getSimpleName() + engineCounter.incrementAndGet());
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Sends a request.
+   *
+   * @throws  IOException  including {@link java.net.PortUnreachableException} from an earlier request
+   */
+  private static void send(Pending pending) throws IOException {
+    ByteBuffer request = pending.request.duplicate();
+    if (pending.channel.write(request) != request.limit()) {
+      throw new IOException("Partial datagram written");
+    }
+  }
+
+  private void register(Pending pending) {
+    if (pending.future.isDone()) {
+      return;
+    }
+    try {
+      sendBuffer.clear();
+      pending.probe.writeRequest(sendBuffer, pending.transactionId);
+      pending.request = ByteBuffer.wrap(Arrays.copyOf(sendBuffer.array(), sendBuffer.position()));
+      DatagramChannel channel = DatagramChannel.open();
+      pending.channel = channel;
+      // Canceled while opening
+      if (pending.future.isDone()) {
+        pending.close();
+        return;
+      }
+      channel.configureBlocking(false);
+      channel.connect(pending.address);
+      channel.register(selector, SelectionKey.OP_READ, pending);
+      send(pending);
+      pending.nextSend = System.nanoTime() + RESEND_INTERVAL * 1_000_000L;
+      wakes.add(pending);
+    } catch (BufferOverflowException e) {
+      pending.fail(new IOException("Request larger than " + MAX_DATAGRAM + " bytes", e));
+    } catch (IOException | RuntimeException e) {
+      // Includes ClosedChannelException when canceled concurrently, which is ignored by the completed future
+      pending.fail(e);
+    }
+  }
+
+  /**
+   * Reads all available replies.
+   */
+  private void read(SelectionKey key) {
+    Pending pending = (Pending) key.attachment();
+    DatagramChannel channel = (DatagramChannel) key.channel();
+    try {
+      while (true) {
+        receiveBuffer.clear();
+        if (channel.read(receiveBuffer) <= 0) {
+          // No more datagrams
+          return;
+        }
+        receiveBuffer.flip();
+        if (receiveBuffer.remaining() <= MAX_DATAGRAM) {
+          String result = pending.probe.checkReply(receiveBuffer, pending.transactionId);
+          if (result != null) {
+            key.cancel();
+            pending.succeed(result);
+            return;
+          }
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      key.cancel();
+      pending.fail(e);
+    }
+  }
+
+  /**
+   * Resends or times-out probes whose wake time has passed.
+   */
+  private void wake() {
+    long now = System.nanoTime();
+    Pending pending;
+    while ((pending = wakes.peek()) != null && (pending.future.isDone() || now - pending.getWake() >= 0)) {
+      wakes.remove();
+      if (pending.future.isDone()) {
+        continue;
+      }
+      if (now - pending.deadline >= 0) {
+        String result = pending.probe.noReply();
+        if (result != null) {
+          pending.succeed(result);
+        } else {
+          pending.fail(pending.budget.timedOut(new SocketTimeoutException("No reply")));
+        }
+      } else {
+        try {
+          send(pending);
+          pending.nextSend = now + RESEND_INTERVAL * 1_000_000L;
+          wakes.add(pending);
+        } catch (IOException | RuntimeException e) {
+          pending.fail(e);
+        }
+      }
+    }
+  }
+
+  private void run() {
+    try {
+      while (!closed) {
+        // Wait until the next wake, or indefinitely when nothing outstanding
+        long timeout;
+        Pending next = wakes.peek();
+        if (next == null) {
+          timeout = 0;
+        } else {
+          timeout = Math.max(1, (next.getWake() - System.nanoTime() + 999_999) / 1_000_000);
+        }
+        selector.select(timeout);
+        // New probes
+        Pending pending;
+        while ((pending = registrations.poll()) != null) {
+          register(pending);
+        }
+        // Replies
+        Iterator<SelectionKey> iter = selector.selectedKeys().iterator();
+        while (iter.hasNext()) {
+          SelectionKey key = iter.next();
+          iter.remove();
+          if (key.isValid()) {
+            read(key);
+          }
+        }
+        // Resends and timeouts
+        wake();
+      }
+    } catch (ClosedSelectorException e) {
+      // Closed by close()
+    } catch (IOException | RuntimeException e) {
+      logger.log(Level.SEVERE, null, e);
+    } finally {
+      IOException closedException = new IOException("Engine closed");
+      Pending pending;
+      while ((pending = registrations.poll()) != null) {
+        pending.fail(closedException);
+      }
+      while ((pending = wakes.poll()) != null) {
+        pending.fail(closedException);
+      }
+      try {
+        selector.close();
+      } catch (IOException err) {
+        logger.log(Level.WARNING, null, err);
+      }
+    }
+  }
+
+  /**
+   * Probes a UDP port.
+   *
+   * <p>Canceling or otherwise completing the returned future abandons the probe.</p>
+   *
+   * @return  a future completed with the result of the probe, or a {@link PhaseTimeoutException}
+   *          when no matching reply is received and the probe does not allow {@linkplain UdpProbe#noReply() no reply}
+   */
+  public CompletableFuture<String> probe(InetSocketAddress address, UdpProbe probe, Timeouts timeouts) {
+    Pending pending;
+    try {
+      pending = new Pending(address, probe, timeouts);
+    } catch (PhaseTimeoutException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+    CompletableFuture<String> future = pending.future;
+    future.whenComplete((result, t) -> {
+      if (Thread.currentThread() != thread) {
+        // Canceled or otherwise completed elsewhere, closing the channel cancels its key,
+        // wake-up so the selector deregisters it promptly
+        pending.close();
+        selector.wakeup();
+      }
+    });
+    registrations.add(pending);
+    if (closed) {
+      // Closed concurrently, the selector thread may have already drained its registrations
+      Pending p;
+      while ((p = registrations.poll()) != null) {
+        p.fail(new IOException("Engine closed"));
+      }
+    } else {
+      selector.wakeup();
+    }
+    return future;
+  }
+
+  /**
+   * Stops the selector thread, failing any outstanding probes.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    selector.wakeup();
+  }
+}
@@ -1,6 +1,6 @@
 /*
  * noc-monitor-portmon - Port monitoring implementations.
- * Copyright (C) 2021, 2022  AO Industries, Inc.
+ * Copyright (C) 2021, 2022, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -29,5 +29,8 @@ module com.aoindustries.noc.monitor.portmon {
   requires com.aoindustries.aoserv.client; // <groupId>com.aoindustries</groupId><artifactId>aoserv-client</artifactId>
   // Java SE
   requires java.logging;
+  requires java.management;
   requires java.sql;
+  // Services
+  uses com.aoindustries.noc.monitor.portmon.PortMonitorFactory;
 }
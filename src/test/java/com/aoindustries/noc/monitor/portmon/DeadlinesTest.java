@@ -0,0 +1,112 @@
+/*
+ * noc-monitor-portmon - Port monitoring implementations.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of noc-monitor-portmon.
+ *
+ * noc-monitor-portmon is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * noc-monitor-portmon is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with noc-monitor-portmon.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.noc.monitor.portmon;
+
+import static org.junit.Assert.assertTrue;
+
+import com.aoapps.net.InetAddress;
+import com.aoapps.net.Port;
+import com.aoapps.net.Protocol;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+/**
+ * Tests that {@link Deadlines} are not delayed by a blocking {@link PortMonitor#cancel()}.
+ *
+ * @author  AO Industries, Inc.
+ */
+public class DeadlinesTest {
+
+  /**
+   * Allowance for the wheel thread waking late, such as on a busy build server.
+   */
+  private static final long JITTER_MILLIS = 500;
+
+  /**
+   * A monitor that runs until canceled, with a {@link #cancel()} that blocks until released.
+   */
+  private static final class BlockingCancelMonitor extends PortMonitor {
+
+    private final CountDownLatch cancelStarted = new CountDownLatch(1);
+    private final CountDownLatch cancelReleased = new CountDownLatch(1);
+
+    private BlockingCancelMonitor() throws Exception {
+      super(InetAddress.valueOf("127.0.0.1"), Port.valueOf(1, Protocol.TCP));
+    }
+
+    @Override
+    public String checkPort() throws Exception {
+      cancelStarted.await();
+      return "canceled";
+    }
+
+    @Override
+    public void cancel() {
+      super.cancel();
+      cancelStarted.countDown();
+      try {
+        cancelReleased.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Asserts that a deadline scheduled once the monitor is being canceled still fires on time.
+   */
+  private static void assertOtherDeadlineNotDelayed(BlockingCancelMonitor monitor) throws InterruptedException {
+    assertTrue("cancel() not called after timeout", monitor.cancelStarted.await(10, TimeUnit.SECONDS));
+    CountDownLatch fired = new CountDownLatch(1);
+    Deadlines.schedule(fired::countDown, 10, TimeUnit.MILLISECONDS);
+    assertTrue("deadline delayed by a blocking cancel()", fired.await(10 + JITTER_MILLIS, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void testExecutorTimeoutDoesNotBlockDeadlines() throws Exception {
+    BlockingCancelMonitor monitor = new BlockingCancelMonitor();
+    try (PortMonitorExecutor executor = new PortMonitorExecutor()) {
+      try {
+        executor.submit(monitor, Duration.ofMillis(20));
+        assertOtherDeadlineNotDelayed(monitor);
+      } finally {
+        monitor.cancelReleased.countDown();
+      }
+    }
+  }
+
+  @Test
+  public void testCheckPortAsyncTimeoutDoesNotBlockDeadlines() throws Exception {
+    BlockingCancelMonitor monitor = new BlockingCancelMonitor();
+    try {
+      monitor.checkPortAsync(ForkJoinPool.commonPool(), Duration.ofMillis(20));
+      assertOtherDeadlineNotDelayed(monitor);
+    } finally {
+      monitor.cancelReleased.countDown();
+    }
+  }
+}
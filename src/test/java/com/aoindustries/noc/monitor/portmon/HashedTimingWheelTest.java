@@ -0,0 +1,155 @@
+/*
+ * noc-monitor-portmon - Port monitoring implementations.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of noc-monitor-portmon.
+ *
+ * noc-monitor-portmon is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * noc-monitor-portmon is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with noc-monitor-portmon.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoindustries.noc.monitor.portmon;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.junit.Test;
+
+/**
+ * Tests the accuracy and throughput of {@link HashedTimingWheel}.
+ *
+ * @author  AO Industries, Inc.
+ */
+public class HashedTimingWheelTest {
+
+  private static final long TICK_MILLIS = 10;
+
+  /**
+   * A small wheel, so longer delays take several rotations.
+   */
+  private static final int WHEEL_SIZE = 64;
+
+  /**
+   * Allowance for the wheel thread waking late, such as on a busy build server.
+   */
+  private static final long JITTER_MILLIS = 50;
+
+  private static final HashedTimingWheel wheel = new HashedTimingWheel(
+      HashedTimingWheelTest.class.getSimpleName(),
+      TICK_MILLIS,
+      TimeUnit.MILLISECONDS,
+      WHEEL_SIZE
+  );
+
+  @Test
+  public void testNeverEarlyAndWithinAboutOneTick() throws InterruptedException {
+    final int count = 500;
+    // Up to three rotations of the wheel
+    final long maxDelayMillis = 3 * TICK_MILLIS * WHEEL_SIZE;
+    Random random = new Random(0);
+    long[] delays = new long[count];
+    long[] scheduled = new long[count];
+    AtomicLongArray ran = new AtomicLongArray(count);
+    CountDownLatch done = new CountDownLatch(count);
+    for (int i = 0; i < count; i++) {
+      final int index = i;
+      delays[i] = TimeUnit.MILLISECONDS.toNanos(random.nextInt((int) maxDelayMillis + 1));
+      scheduled[i] = System.nanoTime();
+      wheel.schedule(
+          () -> {
+            ran.set(index, System.nanoTime());
+            done.countDown();
+          },
+          delays[i],
+          TimeUnit.NANOSECONDS
+      );
+    }
+    assertTrue("Timeouts not run", done.await(maxDelayMillis + 10_000, TimeUnit.MILLISECONDS));
+    long maxLateNanos = TimeUnit.MILLISECONDS.toNanos(TICK_MILLIS + JITTER_MILLIS);
+    for (int i = 0; i < count; i++) {
+      long actual = ran.get(i) - scheduled[i];
+      assertTrue("Ran early: delay=" + delays[i] + ", actual=" + actual, actual >= delays[i]);
+      assertTrue("Ran late: delay=" + delays[i] + ", actual=" + actual, actual - delays[i] <= maxLateNanos);
+    }
+  }
+
+  @Test
+  public void testCanceledNeverRun() throws InterruptedException {
+    final int count = 1000;
+    AtomicInteger canceledRan = new AtomicInteger();
+    CountDownLatch done = new CountDownLatch(count / 2);
+    List<HashedTimingWheel.Timeout> canceled = new ArrayList<>(count / 2);
+    for (int i = 0; i < count; i++) {
+      // Far enough away to be canceled before due
+      long delay = TICK_MILLIS * (10 + i % 20);
+      if (i % 2 == 0) {
+        canceled.add(wheel.schedule(canceledRan::incrementAndGet, delay, TimeUnit.MILLISECONDS));
+      } else {
+        wheel.schedule(done::countDown, delay, TimeUnit.MILLISECONDS);
+      }
+    }
+    for (HashedTimingWheel.Timeout timeout : canceled) {
+      assertTrue(timeout.cancel());
+    }
+    assertTrue("Timeouts not run", done.await(10, TimeUnit.SECONDS));
+    // Past the last due time of the canceled timeouts
+    Thread.sleep(TICK_MILLIS * 30 + JITTER_MILLIS);
+    assertEquals(0, canceledRan.get());
+    for (HashedTimingWheel.Timeout timeout : canceled) {
+      assertTrue(timeout.isCanceled());
+      assertFalse(timeout.isExpired());
+      assertFalse("Already canceled", timeout.cancel());
+    }
+  }
+
+  @Test
+  public void testScheduleAndCancel100k() throws InterruptedException {
+    final int count = 100_000;
+    AtomicInteger canceledRan = new AtomicInteger();
+    HashedTimingWheel.Timeout[] timeouts = new HashedTimingWheel.Timeout[count];
+    long start = System.nanoTime();
+    // Like the deadlines of checks, nearly all canceled well before they are due
+    for (int i = 0; i < count; i++) {
+      timeouts[i] = wheel.schedule(canceledRan::incrementAndGet, 60, TimeUnit.SECONDS);
+    }
+    for (HashedTimingWheel.Timeout timeout : timeouts) {
+      assertTrue(timeout.cancel());
+    }
+    long elapsed = System.nanoTime() - start;
+    assertTrue("Too slow: " + TimeUnit.NANOSECONDS.toMillis(elapsed) + " ms", elapsed < TimeUnit.SECONDS.toNanos(5));
+    assertEquals(0, canceledRan.get());
+  }
+
+  @Test
+  public void testRun100k() throws InterruptedException {
+    final int count = 100_000;
+    final long maxDelayMillis = 1000;
+    Random random = new Random(0);
+    CountDownLatch done = new CountDownLatch(count);
+    for (int i = 0; i < count; i++) {
+      wheel.schedule(done::countDown, random.nextInt((int) maxDelayMillis + 1), TimeUnit.MILLISECONDS);
+    }
+    assertTrue("Timeouts not run: " + done.getCount() + " remaining", done.await(maxDelayMillis + 5_000, TimeUnit.MILLISECONDS));
+  }
+}